@@ -3,9 +3,16 @@ arquivo XMath.java criado a partir de 25 de julho de 2018
 */
 package br.com.hkp.classes.math;
 
+import br.com.hkp.classes.math.combinatorial.BinomialTable;
+import br.com.hkp.classes.math.numberstheory.PrimeTable;
+import br.com.hkp.classes.math.numberstheory.SegmentedSieve;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -97,16 +104,19 @@ public class XMath
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
      * 
+     * @throws ArithmeticException Se o resultado nao couber em um long. Neste
+     * caso pode-se usar {@link #nPrBig(int, int) }.
+     * 
      * @since 1.0
      */
     public static long nPr(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         if ((r > n) || (r < 0) || (n < 0))
             throw new IllegalArgumentException();
         long npr = 1;
         for (int p = n - r + 1; p <= n; p++)
-            npr *= p;
+            npr = Math.multiplyExact(npr, p);
         return npr;
     }//fim de nPr()
     
@@ -124,15 +134,29 @@ public class XMath
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
      * 
+     * @throws ArithmeticException Se o resultado nao couber em um long. Neste
+     * caso pode-se usar {@link #nCPrBig(int, int) }.
+     * 
      * @since 1.0
      */
     public static long nCPr(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         /*
-        chamada de nPr() verifica se argumentos n e r sao validos
+        chamada de nCr() verifica se argumentos n e r sao validos
+        */
+        long ncr = nCr(n, r);
+        
+        if (r == 0) return 1;
+        
+        /*
+        nPr / r = nCr * r! / r = nCr * (r - 1)! Assim nenhum valor 
+        intermediario eh maior que o resultado, e nPr nao precisa caber em um
+        long.
         */
-        return (r == 0) ? 1 : nPr(n,r) / r; 
+        long ncpr = ncr;
+        for (int i = 2; i < r; i++) ncpr = Math.multiplyExact(ncpr, i);
+        return ncpr;
     }//fim de nCPr()
   
     /*[06]----------------------------------------------------------------------
@@ -180,10 +204,12 @@ public class XMath
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
      * 
+     * @throws ArithmeticException Se o resultado nao couber em um long.
+     * 
      * @since 1.0
      */
     public static long nPr(int[] frequency, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         int n = 0;
         for (int i = 0; i < frequency.length; i++)
@@ -191,45 +217,81 @@ public class XMath
         
         if ((r > n) || (r < 0))
             throw new IllegalArgumentException();
+        
+        /*
+        O resultado nao depende da ordem das frequencias, entao a chave do 
+        cache eh formada pelas frequencias positivas em ordem crescente e por r.
+        */
+        int[] signature = new int[frequency.length];
+        int types = 0;
+        for (int f : frequency) if (f > 0) signature[types++] = f;
+        signature = Arrays.copyOf(signature, types);
+        Arrays.sort(signature);
+        
+        NprKey key = new NprKey(signature, r);
+        
+        Long cached = NPR_CACHE.get(key);
+        if (cached != null) return cached;
+        
+        long npr = countArrangements(signature, r);
+        
+        if (NPR_CACHE.size() >= NPR_CACHE_LIMIT) NPR_CACHE.clear();
+        NPR_CACHE.put(key, npr);
      
-        return nPr(frequency,0,n,r);
+        return npr;
     }//fim de nPr()
     
     /*[07]----------------------------------------------------------------------
     *          Permutacoes de n a r com repeticao de elementos
     --------------------------------------------------------------------------*/
-    private static long nPr(int[] frequency, int i, int n, int r)
+    private static long countArrangements(int[] frequency, int r)
+        throws ArithmeticException
     { 
-        //nao ha mais posicoes disponiveis para incluir elementos de permutacao
-        if (r == 0) return 1;
+        /*
+        ways[j] eh o numero de arranjos de j posicoes que se pode fazer com os
+        tipos de elementos ja processados. Ao processar um tipo com frequencia
+        f, um arranjo de j posicoes com k elementos deste tipo ( k <= f ) eh
+        obtido escolhendo as k posicoes destes elementos entre as j, de 
+        C(j, k) maneiras, e preenchendo as outras j - k posicoes com um 
+        arranjo dos tipos anteriores. Logo 
+        ways'[j] = soma de C(j, k) * ways[j - k] para k = 0 ateh min(f, j)
+        Os coeficientes C(j, k) vem da tabela compartilhada BinomialTable, que
+        os retorna como Long.MAX_VALUE quando nao cabem em um long.
+        */
+        long[] ways = new long[r + 1];
+        ways[0] = 1;
         
-        //retornara o calculo de nPr
-        long npr = 0;
-                        
-        //numero de elementos que ainda sobrarao, no proximo nivel de recursao,
-        //para serem distribuidos pelas posicoes restantes
-        n = n - frequency[i]; 
-               
-        //chama o metodo recursivamente enquanto o numero de elementos que 
-        //restarem para serem distribuidos for maior ou igual ao numero de 
-        //posicoes disponiveis no proximo nivel de recursao
-        for (
-                int assignedsElements = Math.min(r, frequency[i]); 
-                (assignedsElements >= 0) && (n >= r - assignedsElements);
-                assignedsElements--
-            )
-         
-            //nCr() retorna o numero de maneiras que se pode distribuir 
-            //<assignedsElements> elementos de permutacao em <r> posicoes
-            //Eh multiplicado pelas permutacoes que ainda se pode fazer nas 
-            //posicoes restantes com os elementos restantes
-            npr += nCr(r, assignedsElements)
-                   * 
-                   nPr(frequency, i+1, n, r - assignedsElements);
+        for (int f : frequency)
+        {
+            /*
+            Percorre j em ordem decrescente para que ways[j - k], com k > 0,
+            ainda seja o valor anterior ao processamento deste tipo.
+            */
+            for (int j = r; j > 0; j--)
+            {
+                long sum = ways[j];
+                for (int k = 1; k <= Math.min(f, j); k++)
+                {
+                    if (ways[j - k] == 0) continue;
+                    
+                    /*
+                    Cada parcela conta arranjos distintos de j posicoes, e cada
+                    um deles eh o inicio de ao menos um arranjo de r posicoes.
+                    Entao se alguma parcela nao couber em um long, o resultado
+                    tambem nao cabe.
+                    */
+                    long c = BinomialTable.get(j, k);
+                    if (c == Long.MAX_VALUE) throw new ArithmeticException();
+                    
+                    sum = Math.addExact(sum, Math.multiplyExact(c, ways[j - k]));
+                }
+                ways[j] = sum;
+            }
+        }
          
-        return npr;
-    }//fim de nPr()
-      
+        return ways[r];
+    }//fim de countArrangements()
+    
     /*[08]----------------------------------------------------------------------
     *        Permutacoes circulares de  n a r, com repeticao de elementos
     --------------------------------------------------------------------------*/
@@ -276,10 +338,13 @@ public class XMath
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r negativo.
      * 
+     * @throws ArithmeticException Se o numero de permutacoes simples de r 
+     * elementos nao couber em um long.
+     * 
      * @since 1.0
      */
     public static long nCPr(int[] frequency, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         /*
         Se r = 0 o numero de permutacoes possiveis deve ser retornado como 1.
@@ -347,18 +412,19 @@ public class XMath
         long ncpr = 0;
         
         /*
-        Um lista ligada com todos os divisores de r ordenada em ordem crescente.
-        A lista inclui o 1 (um) e o proprio r.
+        Todos os divisores de r em ordem crescente, incluindo o 1 (um) e o 
+        proprio r.
         */
-        LinkedList<Integer> listOfDivR = allFactors(r);
+        long[] divisorsOfR = divisors(r);
         
         /*
         Para cada divisor de r (divR), calcula quantas permutacoes simples de 
         divR posicoes sao possiveis de modo que estas gerem um arranjo de 
         tamanho r com permutacao homogenea 
         */
-        for (int divR: listOfDivR)
+        for (int d = 0; d < divisorsOfR.length; d++)
         {
+            int divR = (int)divisorsOfR[d];
                         
             for (int i = 0; i < frequencyOfSubSet.length; i++)
                frequencyOfSubSet[i] = (frequency[i] * divR) / r;
@@ -375,16 +441,6 @@ public class XMath
                 atribuido 0 a mapOfDivR[divR]
                 */
                 mapOfDivR[divR] = nPr(frequencyOfSubSet, divR);
-                /*
-                Uma lista com todos os divisores de divR. Que obviamente tambem
-                sao divisores de r.
-                */
-                LinkedList<Integer> sublistOfDivR = allFactors(divR);
-                /*
-                Remove o proprio divR desta lista.
-                */
-                sublistOfDivR.removeLast();
-                
                 /*
                 Subtrai do numero de permutacoes simples atribuidas a 
                 mapOfDivR[divR], o numero de permutacoes simples que ja foram
@@ -396,7 +452,15 @@ public class XMath
                 permutacoes simples possiveis que ja foram calculadas para 
                 subarranjos de duas posicoes.
                 */
-                for (int dD: sublistOfDivR) mapOfDivR[divR] -= mapOfDivR[dD];
+                for (int k = 0; k < d; k++)
+                {
+                    /*
+                    Os divisores de divR menores que ele sao, obviamente, 
+                    divisores de r anteriores a divR no array.
+                    */
+                    int dD = (int)divisorsOfR[k];
+                    if (divR % dD == 0) mapOfDivR[divR] -= mapOfDivR[dD];
+                }
                  
                 /*
                 Adiciona a ncpr quantas permutacores circulares homogeneas
@@ -417,7 +481,7 @@ public class XMath
                 mapOfDivR[divR] = 0;
             }
                          
-        }//fim do for listOfDivR
+        }//fim do for d
         
         return ncpr;
         
@@ -438,28 +502,167 @@ public class XMath
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
      * 
+     * @throws ArithmeticException Se o resultado nao couber em um long. Neste
+     * caso pode-se usar {@link #nCrBig(int, int) }.
+     * 
      * @since 1.0
      */
     public static long nCr(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         if ((r > n) || (r < 0) || (n < 0))
             throw new IllegalArgumentException();
         
         r = Math.min(n - r, r);
         long ncr = 1;
-        long termOfRFatorial = 1;
         
-        for (int i = n - r + 1; i <= n; i++)
+        /*
+        Apos o passo i, ncr = C(n - r + i, i). O passo seguinte multiplica por
+        (n - r + i) e divide por i, o que eh exato. Dividindo antes ncr e i 
+        pelo mdc de ambos, i / g divide (n - r + i) e o unico produto feito 
+        eh o do proprio resultado parcial, entao soh ha estouro se o 
+        resultado parcial nao couber em um long.
+        */
+        for (int i = 1; i <= r; i++)
         {
-            ncr *= i;
-            while ((termOfRFatorial <= r) && (ncr % termOfRFatorial == 0))
-                ncr /= termOfRFatorial++;
+            long g = gcd(ncr, i);
+            ncr = Math.multiplyExact(ncr / g, (n - r + i) / (i / g));
         }
         
         return ncr;
     }//fim de nCr()
     
+    /*[09B]---------------------------------------------------------------------
+    *               Combinacoes de n a r em um BigInteger
+    --------------------------------------------------------------------------*/
+    /**
+     * Calcula o numero de subconjuntos com r elementos que podem ser extraidos
+     * de um conjunto com n elementos, sem limite para o tamanho do resultado.
+     * <p>
+     * O resultado eh montado a partir de sua fatoracao: pela formula de 
+     * Legendre, o expoente de cada primo p menor ou igual a n em 
+     * n! / (r! (n - r)!) eh a soma, para k = 1, 2, ..., de 
+     * n / p^k - r / p^k - (n - r) / p^k ( divisoes inteiras ). As potencias
+     * sao entao multiplicadas aos pares, de modo que os produtos sejam de 
+     * numeros de tamanhos proximos.
+     * 
+     * @param n Cardinalidade do conjunto
+     * @param r Cardinalidade dos subconjuntos extraidos
+     * 
+     * @return Combinacao de n a r
+     * 
+     * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @since 1.0
+     */
+    public static BigInteger nCrBig(int n, int r)
+        throws IllegalArgumentException
+    {
+        if ((r > n) || (r < 0) || (n < 0))
+            throw new IllegalArgumentException();
+        
+        return factorialQuotient(n, r, n - r);
+    }//fim de nCrBig()
+    
+    /*[09C]---------------------------------------------------------------------
+    *               Permutacoes de n a r em um BigInteger
+    --------------------------------------------------------------------------*/
+    /**
+     * Calcula quantas permutacoes de r elementos podem ser obtidas de uma lista
+     * com n elementos ( sem elementos repetidos nesta lista ), sem limite para
+     * o tamanho do resultado. O calculo eh feito como em 
+     * {@link #nCrBig(int, int) }.
+     * 
+     * @param n Numero de elementos a serem permutados
+     * @param r Quantos elementos em cada permutacao
+     * 
+     * @return resultado nPr
+     * 
+     * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @since 1.0
+     */
+    public static BigInteger nPrBig(int n, int r)
+        throws IllegalArgumentException
+    {
+        if ((r > n) || (r < 0) || (n < 0))
+            throw new IllegalArgumentException();
+        
+        return factorialQuotient(n, 0, n - r);
+    }//fim de nPrBig()
+    
+    /*[09D]---------------------------------------------------------------------
+    *          Permutacoes circulares de n a r em um BigInteger
+    --------------------------------------------------------------------------*/
+    /**
+     * Calcula quantas permutacoes circulares de r elementos podem ser obtidas
+     * de uma lista com n elementos ( sem elementos repetidos nesta lista ), sem
+     * limite para o tamanho do resultado.
+     * 
+     * @param n Numero de elementos a serem permutados
+     * @param r Quantos elementos em cada permutacao
+     * 
+     * @return resultado nCPr
+     * 
+     * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @since 1.0
+     */
+    public static BigInteger nCPrBig(int n, int r)
+        throws IllegalArgumentException
+    {
+        BigInteger npr = nPrBig(n, r);
+        return (r == 0) ? BigInteger.ONE : npr.divide(BigInteger.valueOf(r));
+    }//fim de nCPrBig()
+    
+    /*[09E]---------------------------------------------------------------------
+    *   Retorna n! / (a! b!), que deve ser inteiro, a partir da fatoracao de
+    *   cada fatorial pela formula de Legendre
+    --------------------------------------------------------------------------*/
+    private static BigInteger factorialQuotient(int n, int a, int b)
+    {
+        if (n < 2) return BigInteger.ONE;
+        
+        /*
+        As potencias de primos cujo produto eh o resultado.
+        */
+        ArrayList<BigInteger> powers = new ArrayList<BigInteger>();
+        
+        new SegmentedSieve(n).forEachPrime
+        (
+            p ->
+            {
+                int e = 0;
+                for (long q = p; q <= n; q *= p) 
+                    e += n / q - a / q - b / q;
+                
+                if (e > 0) powers.add(BigInteger.valueOf(p).pow(e));
+            }
+        );
+        
+        if (powers.isEmpty()) return BigInteger.ONE;
+        
+        /*
+        Multiplica os pares de elementos vizinhos ateh restar um unico 
+        produto.
+        */
+        int size = powers.size();
+        while (size > 1)
+        {
+            int half = 0;
+            for (int i = 0; i < size; i += 2)
+                powers.set
+                (
+                    half++, 
+                    (i + 1 < size) ? 
+                        powers.get(i).multiply(powers.get(i + 1)) : powers.get(i)
+                );
+            size = half;
+        }
+        
+        return powers.get(0);
+    }//fim de factorialQuotient()
+    
     /*[10]----------------------------------------------------------------------
     *        Realiza o somatorio de todos os elementos de um vetor int
     --------------------------------------------------------------------------*/
@@ -520,11 +723,15 @@ public class XMath
       
     /**
      * Retorna uma lista com todos os fatores primos do argumento <b>n</b>
+     * <p>
+     * A fatoracao eh feita por {@link #factorInto(long, long[]) }, entao 
+     * qualquer long eh fatorado em poucos milissegundos.
      * 
      * @param n O numero inteiro a ser fatorado
      * 
      * @return Uma LinkedList parametrizada como Long com os fatores primos de 
-     * <b>n</b>. Se <b>n</b> for primo a lista é retornada vazia.
+     * <b>n</b> em ordem crescente. Se <b>n</b> for primo a lista é retornada
+     * vazia.
      * 
      * @throws IllegalArgumentException Se n menor que 1 a excecao eh lancada 
      * com a mensagem Integer less than 1
@@ -544,68 +751,277 @@ public class XMath
         */
         LinkedList<Long> listFactors = new LinkedList<Long>();
         
+        long[] factors = new long[MAX_FACTORS];
+        int count = factorInto(n, factors);
+        
+        /*
+        Se n eh primo seu unico fator eh ele mesmo, e a lista eh retornada 
+        vazia.
+        */
+        if (count > 1) for (int i = 0; i < count; i++) listFactors.add(factors[i]);
+        
+        return listFactors;
+    }//fim de primeFactors()
+    
+    /**
+     * Retorna um array com todos os fatores primos do argumento <b>n</b>. Ao
+     * contrario de {@link #primeFactors(long) }, se n for primo o array contem
+     * o proprio n.
+     * 
+     * @param n O numero inteiro a ser fatorado
+     * 
+     * @return Os fatores primos de n, com repeticoes, em ordem crescente. Se n
+     * for 1 o array eh vazio.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @since 1.0
+     */
+    /*[13B]---------------------------------------------------------------------
+    *         Fatora um inteiro retornando os fatores em um array
+    --------------------------------------------------------------------------*/
+    public static long[] primeFactorsAsArray(long n)
+        throws IllegalArgumentException
+    {
+        long[] factors = new long[MAX_FACTORS];
+        return Arrays.copyOf(factors, factorInto(n, factors));
+    }//fim de primeFactorsAsArray()
+    
+    /**
+     * Fatora <b>n</b> gravando seus fatores primos, com repeticoes e em ordem
+     * crescente, no inicio do array dest. Nao cria nenhum objeto, o que o 
+     * torna adequado para fatorar muitos numeros em sequencia.
+     * <p>
+     * Os fatores menores que 2^16 sao obtidos por divisao pelos primos de uma
+     * tabela gerada uma unica vez por um crivo. Se o que resta nao for primo
+     * ( pelo teste de {@link #isPrime(long) } ) eh decomposto pelo metodo rho
+     * de Pollard, na variante de Brent, com os mdc calculados em lotes.
+     * 
+     * @param n O numero inteiro a ser fatorado
+     * 
+     * @param dest O array que recebe os fatores. Como nenhum long tem mais de
+     * 62 fatores primos, um array de tamanho 64 eh sempre suficiente.
+     * 
+     * @return Quantos fatores foram gravados em dest. Se n for 1 retorna 0, e
+     * se n for primo retorna 1.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @throws ArrayIndexOutOfBoundsException Se dest nao comportar todos os
+     * fatores.
+     * 
+     * @since 1.0
+     */
+    /*[13C]---------------------------------------------------------------------
+    *        Fatora um inteiro gravando os fatores em um array
+    --------------------------------------------------------------------------*/
+    public static int factorInto(long n, long[] dest)
+        throws IllegalArgumentException, ArrayIndexOutOfBoundsException
+    {
+        if (n < 1) throw new IllegalArgumentException("Integer < 1: " + n);
+        
+        int count = 0;
+        
+        /*
+        Divide n pelos primos da tabela enquanto o quadrado do primo nao for
+        maior que o valor corrente de n.
+        */
+        for (int p : SmallPrimes.TABLE)
+        {
+            if ((long)p * p > n) break;
+            
+            while (n % p == 0)
+            {
+                dest[count++] = p;
+                n /= p;
+            }
+        }
+        
+        if (n == 1) return count;
+        
+        /*
+        Se n nao tem fatores menores que 2^16 e eh menor que 2^32 entao eh 
+        primo. Senao eh decomposto por splitInto().
+        */
+        if (n < TRIAL_LIMIT * TRIAL_LIMIT)
+            dest[count++] = n;
+        else
+        {
+            count = splitInto(n, dest, count);
+            Arrays.sort(dest, 0, count);
+        }
+        
+        return count;
+    }//fim de factorInto()
+    
+    /*[13D]---------------------------------------------------------------------
+    *   Grava em dest, a partir de from, os fatores primos de n, que eh impar e
+    *   nao tem fatores menores que 2^16. Retorna a nova quantidade de fatores.
+    --------------------------------------------------------------------------*/
+    private static int splitInto(long n, long[] dest, int from)
+    {
+        if (isPrime(n))
+        {
+            dest[from] = n;
+            return from + 1;
+        }
+        
+        long d = pollardBrent(n);
+        
+        return splitInto(n / d, dest, splitInto(d, dest, from));
+    }//fim de splitInto()
+    
+    /*[13E]---------------------------------------------------------------------
+    *   Retorna um divisor proprio do composto impar n pelo metodo rho de 
+    *   Pollard na variante de Brent
+    --------------------------------------------------------------------------*/
+    private static long pollardBrent(long n)
+    {
         /*
-        Nao podem existir 2 fatores primos de n maiores que raiz de n. No 
-        maximo pode haver 1 fator primo de n maior que raiz de n. Logo, se 
-        listFactors estiver vazia e a busca nao encontrar nenhum fator primo
-        menor ou igual raiz de n, entao n eh primo. Se listFactors nao estiver
-        vazia, entao o corrente valor de n serah o ultimo fator primo do valor
-        que foi passado pelo argumento n ao metodo.
+        O metodo rho nao separa as potencias de um primo, e para n pequeno as
+        poucas constantes c possiveis podem todas falhar. Nos dois casos o
+        divisor eh encontrado antes.
         */
-        long sqrt = (long)Math.sqrt(n);
+        for (int p : SMALL_PRIMES) if (n % p == 0) return p;
+        
+        long root = perfectRoot(n);
+        if (root != 0) return root;
+        
+        long inv = inverse(n);
+        long one = Long.remainderUnsigned(-n, n);
         
         /*
-        Inicia tentando dividir n pelo menor primo que eh 2. Divide n 
-        sucessivamente por fatores primos encontrados ateh n ser igual a 1.
+        Iteracoes de f(y) = y^2 + c mod n, na representacao de Montgomery. Se
+        uma constante c nao encontra um divisor proprio, tenta a seguinte.
         */
-        long div = 2;
-        while (n > 1) 
+        for (long c = one; ; c = addMod(c, one, n))
         {
+            long y = c;
+            long x = y;
+            long ys = y;
+            long q = one;
+            long g = 1;
+            
+            for (int r = 1; g == 1; r <<= 1)
+            {
+                x = y;
+                for (int i = 0; i < r; i++) y = addMod(montMul(y, y, n, inv), c, n);
+                
+                /*
+                Os produtos das diferencas |x - y| sao acumulados em q, e soh
+                a cada RHO_BATCH iteracoes eh calculado o mdc de q e n.
+                */
+                for (int k = 0; (k < r) && (g == 1); k += RHO_BATCH)
+                {
+                    ys = y;
+                    for (int i = Math.min(RHO_BATCH, r - k); i > 0; i--)
+                    {
+                        y = addMod(montMul(y, y, n, inv), c, n);
+                        q = montMul(q, (x > y) ? x - y : y - x, n, inv);
+                    }
+                    g = gcd(q, n);
+                }
+            }
+            
             /*
-            Procura um divisor primo para o valor corrente de n. O loop termina
-            se encontrado o divisor (fator primo) ou se nao for encontrado 
-            fator primo menor ou igual a raiz quadrada do valor corrente de n
+            Se o lote inteiro levou q a 0 mod n, refaz suas iteracoes uma a
+            uma a partir de ys para encontrar o divisor.
             */
-            while ( (div <= sqrt) && ((n % div) != 0) )
-                div++;
+            if (g == n)
+            {
+                do
+                {
+                    ys = addMod(montMul(ys, ys, n, inv), c, n);
+                    g = gcd((x > ys) ? x - ys : ys - x, n);
+                } while (g == 1);
+            }
+            
+            if (g != n) return g;
+        }
+    }//fim de pollardBrent()
+    
+    /*[13F]---------------------------------------------------------------------
+    *   Retorna a + b mod n, com a e b em [0, n) e n menor que 2^63
+    --------------------------------------------------------------------------*/
+    private static long addMod(long a, long b, long n)
+    {
+        long s = a + b;
+        return (Long.compareUnsigned(s, n) >= 0) ? s - n : s;
+    }//fim de addMod()
+    
+    /*[13G]---------------------------------------------------------------------
+    *   Maximo divisor comum de dois inteiros nao negativos ( algoritmo 
+    *   binario de Stein )
+    --------------------------------------------------------------------------*/
+    private static long gcd(long a, long b)
+    {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>>= Long.numberOfTrailingZeros(a);
+        
+        while (b != 0)
+        {
+            b >>>= Long.numberOfTrailingZeros(b);
+            if (a > b)
+            {
+                long t = a;
+                a = b;
+                b = t;
+            }
+            b -= a;
+        }
+        
+        return a << shift;
+    }//fim de gcd()
+    
+    /*[13H]---------------------------------------------------------------------
+    *   Se n = m^k, com k > 1, retorna o menor destes m. Senao retorna 0. n
+    *   nao tem fatores menores que 64, entao m >= 64 e k <= log2(n) / 6.
+    --------------------------------------------------------------------------*/
+    private static long perfectRoot(long n)
+    {
+        for (int k = (63 - Long.numberOfLeadingZeros(n)) / 6; k > 1; k--)
+        {
+            long m = Math.round(Math.pow(n, 1.0 / k));
             
             /*
-            Se nao for encontrado fator primo menor ou igual a raiz quadrada do
-            valor corrente de n, entao o valor corrente de n soh eh divisivel
-            por ele mesmo. Logo, se a lista de fatores primos estiver vazia,
-            entao o valor corrente de n neste loop eh o valor que foi passado 
-            ao paramentro n do metodo e n eh primo. Sendo n primo nao eh 
-            fatoravel e a lista eh retornada vazia. Se a lista nao estiver vazia
-            entao o valor corrente de n eh o ultimo fator primo do inteiro que
-            foi passado ao metodo no pelo parametro n.
+            Math.pow() pode errar a raiz por uma unidade
             */
-            if (div > sqrt)
+            for (long x = Math.max(m - 1, 2); x <= m + 1; x++)
             {
-                if (listFactors.size() > 0) listFactors.add(n);
-                break;
+                long power = 1;
+                int i = 0;
+                while ((i < k) && (power <= n / x))
+                {
+                    power *= x;
+                    i++;
+                }
+                if ((i == k) && (power == n)) return x;
             }
-            
-            sqrt = (long)Math.sqrt(n);
-            n /= div; 
-            listFactors.add(div);
-           
         }
-        return listFactors;
-    }//fim de primeFactors()
+        
+        return 0;
+    }//fim de perfectRoot()
     
     /**
      * Retorna uma lista com todos os fatores primos do argumento <b>n</b>
+     * <p>
+     * Para fatorar muitos numeros sem criar objetos use
+     * {@link #primeFactors(long, int[], long[], int[]) }.
      * 
      * @param n O numero inteiro a ser fatorado
      * 
-     * @param listPrimes Uma LinkedList com fatores primos em um intervalo 
-     * qualquer de 2 ateh n. Pode ser obtida com um objeto da classe 
-     * br.com.hkp.classes.math.numbertheory.Sieve Se list for passada como null
-     * o metodo {@link #primeFactors(long) } eh chamado para retornar a lista de 
-     * fatores primos.
+     * @param listPrimes Uma LinkedList com os primos, em ordem crescente, de um
+     * intervalo qualquer que se inicia em 2. Pode ser obtida com um objeto da 
+     * classe br.com.hkp.classes.math.numberstheory.QuickSieve Se list for 
+     * passada como null o metodo {@link #primeFactors(long) } eh chamado para
+     * retornar a lista de fatores primos.
      * 
      * @return Uma LinkedList parametrizada como Long com os fatores primos de 
-     * <b>n</b>. Se <b>n</b> for primo a lista é retornada vazia.
+     * <b>n</b> em ordem crescente. Se <b>n</b> for primo a lista é retornada
+     * vazia.
      * 
      * @throws IllegalArgumentException Se n menor que 1 a excecao eh lancada 
      * com a mensagem Integer less than 1
@@ -625,86 +1041,929 @@ public class XMath
               
         LinkedList<Long> listFactors = new LinkedList<Long>();
         
-        Iterator<Integer> it = listPrimes.iterator();
-        
-        long sqrt = (long)Math.sqrt(n);
-            
-        long div = it.next();
+        long original = n;
         
-        while (n > 1) 
+        /*
+        Divide n pelos primos da lista enquanto o quadrado do primo nao for
+        maior que o valor corrente de n.
+        */
+        for (int p : listPrimes)
         {
-            while ( (div <= sqrt) && ((n % div) != 0) )
-            {
-                if (it.hasNext()) 
-                    div = it.next();
-                else
-                    div++;
-            }
+            if ((long)p * p > n) break;
             
-            if (div > sqrt)
-            { 
-                if (listFactors.size() > 0) listFactors.add(n);
-                break;
+            while (n % p == 0)
+            {
+                listFactors.add((long)p);
+                n /= p;
             }
-            
-            sqrt = (long)Math.sqrt(n);
-            n /= div; 
-            listFactors.add(div);
-           
         }
+        
+        /*
+        Se sobrou um valor maior que 1, e a lista de primos acabou antes de 
+        chegar a raiz deste valor, ele eh fatorado por factorInto() em vez de
+        ser testado por divisao por todos os inteiros seguintes.
+        */
+        if ((n > 1) && (n != original))
+        {
+            long[] factors = new long[MAX_FACTORS];
+            int count = factorInto(n, factors);
+            for (int i = 0; i < count; i++) listFactors.add(factors[i]);
+        }
+        else if (n == original)
+        {
+            /*
+            Nenhum primo da lista divide n. Se n eh primo a lista eh retornada
+            vazia, senao seus fatores sao todos maiores que os da lista.
+            */
+            return primeFactors(n);
+        }
+        
         return listFactors;
     }//fim de primeFactors()
     
     /**
-     * Retorna uma LinkedList de Integers com todos os divisores do argumento 
-     * <b>n</b>, sejam primos ou nao.
+     * Fatora <b>n</b> gravando seus fatores primos distintos em factors e os 
+     * respectivos expoentes em exponents, sem criar nenhum objeto. Eh o metodo
+     * indicado para fatorar uma sequencia de numeros reaproveitando a mesma
+     * tabela de primos e os mesmos arrays.
+     * <p>
+     * n eh dividido pelos primos da tabela. Se a tabela acabar antes da raiz
+     * quadrada do que restou de n, o restante eh fatorado por Miller-Rabin e
+     * pelo metodo rho de Pollard, como em {@link #factorInto(long, long[]) }.
      * 
-     * @param n O inteiro positivo maior que zero, do qual se quer encontrar
-     * todos os divisores.
+     * @param n O numero inteiro a ser fatorado
      * 
-     * @return Uma LinkedList com todos os divisores de  <b>n</b>
+     * @param primes Primos em ordem crescente a partir de 2. Pode ser obtido de
+     * {@link br.com.hkp.classes.math.numberstheory.PrimeTable#toArray() }.
      * 
-     * @throws IllegalArgumentException Lancada se n menor que 1
+     * @param factors Recebe os fatores primos distintos de n em ordem 
+     * crescente. Como nenhum long tem mais que 15 fatores primos distintos, um
+     * array de tamanho 15 eh sempre suficiente.
+     * 
+     * @param exponents Recebe na posicao i o expoente de factors[i]. Deve ter
+     * ao menos o tamanho de factors.
+     * 
+     * @return Quantos fatores primos distintos tem n. Se n for 1 retorna 0.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @throws ArrayIndexOutOfBoundsException Se factors ou exponents nao 
+     * comportarem todos os fatores.
      * 
      * @since 1.0
      */
-    /*[15]----------------------------------------------------------------------
-    *               Encontra todos os divisores de um inteiro
+    /*[14B]---------------------------------------------------------------------
+    *   Fatora um inteiro, com uma tabela de primos, sem criar objetos
     --------------------------------------------------------------------------*/
-    public static LinkedList<Integer> allFactors(int n)
-        throws IllegalArgumentException
+    public static int primeFactors(long n, int[] primes, long[] factors, 
+                                   int[] exponents)
+        throws IllegalArgumentException, ArrayIndexOutOfBoundsException
     {
         if (n < 1) throw new IllegalArgumentException("Integer < 1: " + n);
         
-        /*
-        Cria as listas que retornarao os divisores do argumento n
-        */
-        LinkedList<Integer> listD = new LinkedList<Integer>();
-        LinkedList<Integer> listQ = new LinkedList<Integer>();
-       
-        int sqrt = (int)Math.sqrt(n);
-       
-        int d = 1;
-        do 
+        int count = removeTwos(n, factors, exponents);
+        if (count > 0) n >>>= exponents[0];
+        
+        long tried = 2;
+        
+        for (int k = 0; k < primes.length; k++)
         {
-                                 
-            listD.add(d);
-            int q = n / d;
-            if (d != q) listQ.addFirst(q);
+            int p = primes[k];
+            tried = p;
+            if (p == 2) continue;
+            if ((long)p * p > n) break;
             
-            do
+            if (n % p == 0)
             {
-                d++;
-            }while ( ((n % d) != 0) && (d <= sqrt) );
-           
-        }while (d <= sqrt);
-        
-        listD.addAll(listQ);
+                int e = 0;
+                do
+                {
+                    n /= p;
+                    e++;
+                } while (n % p == 0);
+                
+                factors[count] = p;
+                exponents[count++] = e;
+            }
+        }
+        
+        return splitDistinct(n, factors, exponents, count, tried);
+    }//fim de primeFactors()
+    
+    /**
+     * Fatora <b>n</b> gravando seus fatores primos distintos em factors e os 
+     * respectivos expoentes em exponents, sem criar nenhum objeto. Eh o mesmo
+     * que {@link #primeFactors(long, int[], long[], int[]) } usando os primos
+     * de uma tabela obtida de um dos crivos.
+     * 
+     * @param n O numero inteiro a ser fatorado
+     * 
+     * @param primes Uma tabela de primos obtida de um dos crivos do pacote
+     * br.com.hkp.classes.math.numberstheory
+     * 
+     * @param factors Recebe os fatores primos distintos de n em ordem 
+     * crescente. Um array de tamanho 15 eh sempre suficiente.
+     * 
+     * @param exponents Recebe na posicao i o expoente de factors[i].
+     * 
+     * @return Quantos fatores primos distintos tem n. Se n for 1 retorna 0.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @throws ArrayIndexOutOfBoundsException Se factors ou exponents nao 
+     * comportarem todos os fatores.
+     * 
+     * @since 1.0
+     */
+    /*[14C]---------------------------------------------------------------------
+    *   Fatora um inteiro, com a tabela de um crivo, sem criar objetos
+    --------------------------------------------------------------------------*/
+    public static int primeFactors(long n, PrimeTable primes, long[] factors, 
+                                   int[] exponents)
+        throws IllegalArgumentException, ArrayIndexOutOfBoundsException
+    {
+        if (n < 1) throw new IllegalArgumentException("Integer < 1: " + n);
+        
+        int count = removeTwos(n, factors, exponents);
+        if (count > 0) n >>>= exponents[0];
+        
+        long tried = 2;
+        
+        int size = primes.size();
+        for (int k = 1; k < size; k++)
+        {
+            long p = primes.get(k);
+            tried = p;
+            if (p * p > n) break;
+            
+            if (n % p == 0)
+            {
+                int e = 0;
+                do
+                {
+                    n /= p;
+                    e++;
+                } while (n % p == 0);
+                
+                factors[count] = p;
+                exponents[count++] = e;
+            }
+        }
+        
+        return splitDistinct(n, factors, exponents, count, tried);
+    }//fim de primeFactors()
+    
+    /*[14D]---------------------------------------------------------------------
+    *   Se n for par grava o fator 2 e seu expoente na posicao 0. Retorna 
+    *   quantos fatores foram gravados.
+    --------------------------------------------------------------------------*/
+    private static int removeTwos(long n, long[] factors, int[] exponents)
+    {
+        int twos = Long.numberOfTrailingZeros(n);
+        if (twos == 0) return 0;
+        
+        factors[0] = 2;
+        exponents[0] = twos;
+        return 1;
+    }//fim de removeTwos()
+    
+    /*[14E]---------------------------------------------------------------------
+    *   Acrescenta os fatores primos do impar n, que nao tem fatores entre os
+    *   count ja gravados nem primos menores ou iguais a tried, mantendo 
+    *   factors em ordem crescente. Retorna a nova quantidade de fatores 
+    *   distintos.
+    --------------------------------------------------------------------------*/
+    private static int splitDistinct(long n, long[] factors, int[] exponents, 
+                                     int count, long tried)
+    {
+        if (n == 1) return count;
+        
+        if (isPrime(n)) return addFactor(n, 1, factors, exponents, count);
+        
+        /*
+        A tabela do chamador pode ter acabado antes dos fatores pequenos de n.
+        Eles sao retirados por divisao, como em factorInto(), pois o metodo 
+        rho nao deve receber numeros pequenos.
+        */
+        if (tried < TRIAL_LIMIT)
+        {
+            for (int p : SmallPrimes.TABLE)
+            {
+                if (p <= tried) continue;
+                if ((long)p * p > n) break;
+                
+                if (n % p == 0)
+                {
+                    int e = 0;
+                    do
+                    {
+                        n /= p;
+                        e++;
+                    } while (n % p == 0);
+                    
+                    count = addFactor(p, e, factors, exponents, count);
+                }
+            }
+            
+            if (n == 1) return count;
+            
+            if (isPrime(n)) return addFactor(n, 1, factors, exponents, count);
+        }
+        
+        long d = pollardBrent(n);
+        count = splitDistinct(d, factors, exponents, count, TRIAL_LIMIT);
+        return splitDistinct(n / d, factors, exponents, count, TRIAL_LIMIT);
+    }//fim de splitDistinct()
+    
+    /*[14F]---------------------------------------------------------------------
+    *   Insere o primo p, com expoente e, na posicao que mantem factors em 
+    *   ordem, ou apenas soma e ao seu expoente se ele ja estiver entre os 
+    *   fatores. Retorna a nova quantidade de fatores distintos.
+    --------------------------------------------------------------------------*/
+    private static int addFactor(long p, int e, long[] factors, 
+                                 int[] exponents, int count)
+    {
+        int i = count;
+        while ((i > 0) && (factors[i - 1] > p)) i--;
+        
+        if ((i > 0) && (factors[i - 1] == p))
+        {
+            exponents[i - 1] += e;
+            return count;
+        }
+        
+        System.arraycopy(factors, i, factors, i + 1, count - i);
+        System.arraycopy(exponents, i, exponents, i + 1, count - i);
+        factors[i] = p;
+        exponents[i] = e;
+        
+        return count + 1;
+    }//fim de addFactor()
+    
+    /**
+     * Retorna uma LinkedList de Integers com todos os divisores do argumento 
+     * <b>n</b>, sejam primos ou nao.
+     * 
+     * @param n O inteiro positivo maior que zero, do qual se quer encontrar
+     * todos os divisores.
+     * 
+     * @return Uma LinkedList com todos os divisores de  <b>n</b> em ordem 
+     * crescente. Para obter os divisores em um array use 
+     * {@link #divisors(long) }.
+     * 
+     * @throws IllegalArgumentException Lancada se n menor que 1
+     * 
+     * @since 1.0
+     */
+    /*[15]----------------------------------------------------------------------
+    *               Encontra todos os divisores de um inteiro
+    --------------------------------------------------------------------------*/
+    public static LinkedList<Integer> allFactors(int n)
+        throws IllegalArgumentException
+    {
+        if (n < 1) throw new IllegalArgumentException("Integer < 1: " + n);
+        
+        /*
+        Cria a lista que retornara os divisores do argumento n
+        */
+        LinkedList<Integer> listD = new LinkedList<Integer>();
+        
+        for (long d : divisors(n)) listD.add((int)d);
         
         return listD;
       
     }//fim de allFactors()
     
+    /*
+    Os primos menores que 64, usados para descartar rapidamente os multiplos de
+    primos pequenos antes do teste de Miller-Rabin.
+    */
+    private static final int[] SMALL_PRIMES =
+        {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61};
+    
+    /*
+    Com estas 7 bases o teste de Miller-Rabin eh deterministico para todo 
+    inteiro menor que 2^64 (Jim Sinclair, 2011).
+    */
+    private static final long[] MR_BASES =
+        {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+    
+    /*
+    Os fatores primos menores que este valor sao obtidos por divisao.
+    */
+    private static final long TRIAL_LIMIT = 1 << 16;
+    
+    /*
+    Valores ja calculados por nPr(int[], int), indexados pelas frequencias
+    positivas em ordem crescente e por r. Se atingir NPR_CACHE_LIMIT entradas
+    o cache eh esvaziado.
+    */
+    private static final ConcurrentHashMap<NprKey, Long> NPR_CACHE =
+        new ConcurrentHashMap<NprKey, Long>();
+    
+    private static final int NPR_CACHE_LIMIT = 4096;
+    
+    /*
+    A chave do cache de nPr(int[], int): as frequencias positivas em ordem
+    crescente e r, comparados diretamente, sem formatar uma String.
+    */
+    private static final class NprKey
+    {
+        private final int[] signature;
+        private final int r;
+        private final int hash;
+        
+        NprKey(int[] signature, int r)
+        {
+            this.signature = signature;
+            this.r = r;
+            hash = 31 * Arrays.hashCode(signature) + r;
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof NprKey)) return false;
+            NprKey other = (NprKey)o;
+            return (r == other.r) && Arrays.equals(signature, other.signature);
+        }
+    }//fim da classe NprKey
+    
+    /*
+    Nenhum long positivo tem mais que 62 fatores primos.
+    */
+    private static final int MAX_FACTORS = 64;
+    
+    /*
+    Nenhum long positivo tem mais que 15 fatores primos distintos.
+    */
+    private static final int MAX_DISTINCT_FACTORS = 15;
+    
+    /*
+    Quantas iteracoes do metodo rho de Pollard sao feitas entre dois calculos
+    de mdc.
+    */
+    private static final int RHO_BATCH = 128;
+    
+    /*
+    A tabela de primos menores que TRIAL_LIMIT soh eh gerada no primeiro uso
+    de factorInto().
+    */
+    private static final class SmallPrimes
+    {
+        static final int[] TABLE = 
+            new SegmentedSieve((int)TRIAL_LIMIT).getPrimeTable().toArray();
+    }//fim da classe SmallPrimes
+    
+    /*
+    O maior primo que cabe em um long.
+    */
+    private static final long LAST_LONG_PRIME = 9223372036854775783L;
+    
+    /**
+     * Informa se um inteiro eh primo. 
+     * <p>
+     * Depois de descartados os multiplos dos primos menores que 64, eh 
+     * aplicado o teste de Miller-Rabin com um conjunto de 7 bases que o torna
+     * deterministico para qualquer long. As multiplicacoes modulares sao
+     * feitas pelo metodo de Montgomery, sem divisoes, de modo que o custo eh 
+     * de poucos microssegundos mesmo para primos proximos de Long.MAX_VALUE.
+     * 
+     * @param n O inteiro a ser testado.
+     * 
+     * @return true se n for primo. Numeros menores que 2 nao sao primos.
+     * 
+     * @since 1.0
+     */
+    /*[16]----------------------------------------------------------------------
+    *                     Informa se um inteiro eh primo
+    --------------------------------------------------------------------------*/
+    public static boolean isPrime(long n)
+    {
+        if (n < 2) return false;
+        
+        for (int p : SMALL_PRIMES) if (n % p == 0) return n == p;
+        
+        /*
+        Um composto sem fatores menores que 64 eh maior ou igual a 67^2.
+        */
+        if (n < 67 * 67) return true;
+        
+        return millerRabin(n);
+    }//fim de isPrime()
+    
+    /**
+     * Retorna o menor primo maior que <b>n</b>.
+     * 
+     * @param n Um inteiro qualquer.
+     * 
+     * @return O menor primo maior que n.
+     * 
+     * @throws IllegalArgumentException Se nao houver primo maior que n que 
+     * possa ser representado por um long.
+     * 
+     * @since 1.0
+     */
+    /*[17]----------------------------------------------------------------------
+    *                 Retorna o menor primo maior que n
+    --------------------------------------------------------------------------*/
+    public static long nextPrime(long n)
+        throws IllegalArgumentException
+    {
+        if (n < 2) return 2;
+        if (n >= LAST_LONG_PRIME) throw new
+            IllegalArgumentException("No prime > " + n + " fits in a long");
+        
+        /*
+        Testa apenas os impares a partir de n + 1.
+        */
+        long candidate = (n + 1) | 1;
+        while (!isPrime(candidate)) candidate += 2;
+        
+        return candidate;
+    }//fim de nextPrime()
+    
+    /**
+     * Retorna o maior primo menor que <b>n</b>.
+     * 
+     * @param n Um inteiro maior que 2.
+     * 
+     * @return O maior primo menor que n.
+     * 
+     * @throws IllegalArgumentException Se n menor ou igual a 2.
+     * 
+     * @since 1.0
+     */
+    /*[18]----------------------------------------------------------------------
+    *                 Retorna o maior primo menor que n
+    --------------------------------------------------------------------------*/
+    public static long prevPrime(long n)
+        throws IllegalArgumentException
+    {
+        if (n <= 2) throw new IllegalArgumentException("No prime < " + n);
+        if (n == 3) return 2;
+        
+        /*
+        Testa apenas os impares a partir de n - 1.
+        */
+        long candidate = (n - 2) | 1;
+        while (!isPrime(candidate)) candidate -= 2;
+        
+        return candidate;
+    }//fim de prevPrime()
+    
+    /*[19]----------------------------------------------------------------------
+    *   Teste de Miller-Rabin deterministico para n impar e maior que 2
+    --------------------------------------------------------------------------*/
+    private static boolean millerRabin(long n)
+    {
+        /*
+        n - 1 = d * 2^s com d impar
+        */
+        int s = Long.numberOfTrailingZeros(n - 1);
+        long d = (n - 1) >>> s;
+        
+        /*
+        Constantes da aritmetica de Montgomery com R = 2^64: o inverso de n
+        modulo 2^64, R mod n ( a representacao de 1 ), a representacao de
+        n - 1, e R^2 mod n, usado para converter os valores para a 
+        representacao de Montgomery.
+        */
+        long inv = inverse(n);
+        long one = Long.remainderUnsigned(-n, n);
+        long minusOne = n - one;
+        long r2 = one;
+        for (int i = 0; i < 64; i++) r2 = doubleMod(r2, n);
+        
+        for (long base : MR_BASES)
+        {
+            long a = base % n;
+            if (a == 0) continue;
+            
+            long x = powMont(montMul(a, r2, n, inv), d, one, n, inv);
+            if ((x == one) || (x == minusOne)) continue;
+            
+            boolean composite = true;
+            for (int i = 1; i < s; i++)
+            {
+                x = montMul(x, x, n, inv);
+                if (x == minusOne)
+                {
+                    composite = false;
+                    break;
+                }
+                if (x == one) break;
+            }
+            
+            if (composite) return false;
+        }
+        
+        return true;
+    }//fim de millerRabin()
+    
+    /*[20]----------------------------------------------------------------------
+    *   Retorna o inverso multiplicativo de n ( impar ) modulo 2^64
+    --------------------------------------------------------------------------*/
+    private static long inverse(long n)
+    {
+        /*
+        Pelo metodo de Newton cada iteracao dobra o numero de bits corretos.
+        n eh o inverso de si mesmo modulo 8 ( 3 bits ), entao 5 iteracoes 
+        bastam para 96 bits.
+        */
+        long x = n;
+        for (int i = 0; i < 5; i++) x *= 2 - n * x;
+        return x;
+    }//fim de inverse()
+    
+    /*[21]----------------------------------------------------------------------
+    *   Retorna 2 * x mod n, com x em [0, n) e n menor que 2^63
+    --------------------------------------------------------------------------*/
+    private static long doubleMod(long x, long n)
+    {
+        x <<= 1;
+        return (Long.compareUnsigned(x, n) >= 0) ? x - n : x;
+    }//fim de doubleMod()
+    
+    /*[22]----------------------------------------------------------------------
+    *   Retorna os 64 bits mais significativos do produto sem sinal de 128 
+    *   bits de a por b
+    --------------------------------------------------------------------------*/
+    private static long unsignedMultiplyHigh(long a, long b)
+    {
+        /*
+        O mesmo algoritmo de Math.multiplyHigh() ( Java 9 ), que opera com 
+        sinal, seguido da correcao para operandos sem sinal.
+        */
+        long a1 = a >> 32;
+        long a2 = a & 0xFFFFFFFFL;
+        long b1 = b >> 32;
+        long b2 = b & 0xFFFFFFFFL;
+        
+        long z2 = a2 * b2;
+        long t = a1 * b2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += a2 * b1;
+        
+        long high = a1 * b1 + z0 + (z1 >> 32);
+        
+        return high + ((a >> 63) & b) + ((b >> 63) & a);
+    }//fim de unsignedMultiplyHigh()
+    
+    /*[23]----------------------------------------------------------------------
+    *   Produto de Montgomery: retorna a * b / 2^64 mod n, com a e b em [0, n),
+    *   n impar e menor que 2^63, e inv o inverso de n modulo 2^64
+    --------------------------------------------------------------------------*/
+    private static long montMul(long a, long b, long n, long inv)
+    {
+        long high = unsignedMultiplyHigh(a, b);
+        long m = a * b * inv;
+        
+        /*
+        Os 64 bits menos significativos de a * b e de m * n sao iguais. Entao
+        a * b - m * n eh exatamente a diferenca das partes altas vezes 2^64.
+        */
+        long t = high - unsignedMultiplyHigh(m, n);
+        return (t < 0) ? t + n : t;
+    }//fim de montMul()
+    
+    /*[24]----------------------------------------------------------------------
+    *   Potencia modular na representacao de Montgomery
+    --------------------------------------------------------------------------*/
+    private static long powMont(long base, long e, long one, long n, long inv)
+    {
+        long result = one;
+        while (e > 0)
+        {
+            if ((e & 1) != 0) result = montMul(result, base, n, inv);
+            base = montMul(base, base, n, inv);
+            e >>>= 1;
+        }
+        return result;
+    }//fim de powMont()
+    
+    /**
+     * Retorna todos os divisores de <b>n</b>, em ordem crescente. Os divisores
+     * sao gerados a partir da fatoracao de n, obtida por 
+     * {@link #factorInto(long, long[]) }, e nao por tentativa.
+     * 
+     * @param n O inteiro do qual se quer os divisores.
+     * 
+     * @return Um array com todos os divisores de n, incluindo 1 e n.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @since 1.0
+     */
+    /*[25]----------------------------------------------------------------------
+    *          Retorna todos os divisores de um inteiro em um array
+    --------------------------------------------------------------------------*/
+    public static long[] divisors(long n)
+        throws IllegalArgumentException
+    {
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        
+        int count = primeFactors(n, SmallPrimes.TABLE, factors, exponents);
+        
+        long[] dest = new long[(int)tau(exponents, count)];
+        divisors(factors, exponents, count, dest);
+        
+        return dest;
+    }//fim de divisors()
+    
+    /**
+     * Grava no inicio de dest, em ordem crescente, todos os divisores do 
+     * inteiro cuja fatoracao eh dada por factors e exponents. A fatoracao pode
+     * ser obtida de {@link #primeFactors(long, int[], long[], int[]) }.
+     * 
+     * @param factors Os fatores primos distintos do inteiro.
+     * 
+     * @param exponents Na posicao i, o expoente de factors[i].
+     * 
+     * @param count Quantos fatores primos distintos ha em factors.
+     * 
+     * @param dest Recebe os divisores. Deve ter ao menos o tamanho retornado 
+     * por {@link #tau(int[], int) }. Nenhum long tem mais que 103680 
+     * divisores.
+     * 
+     * @return Quantos divisores foram gravados em dest.
+     * 
+     * @throws ArrayIndexOutOfBoundsException Se dest nao comportar todos os
+     * divisores.
+     * 
+     * @since 1.0
+     */
+    /*[26]----------------------------------------------------------------------
+    *     Grava em um array todos os divisores a partir da fatoracao
+    --------------------------------------------------------------------------*/
+    public static int divisors(long[] factors, int[] exponents, int count,
+                               long[] dest)
+        throws ArrayIndexOutOfBoundsException
+    {
+        dest[0] = 1;
+        int size = 1;
+        
+        /*
+        Copia dos divisores obtidos com os fatores anteriores ao corrente.
+        */
+        long[] block = new long[(int)(tau(exponents, count) / 2) + 1];
+        
+        /*
+        Os divisores obtidos com os primeiros i fatores formam um bloco, em 
+        ordem crescente. O fator seguinte, p, com expoente e, acrescenta e 
+        copias deste bloco, multiplicadas por p, p^2, ..., p^e. Cada copia eh
+        intercalada aos divisores ja obtidos, de tras para frente, mantendo a 
+        ordem sem que seja preciso ordenar o array no final.
+        */
+        for (int i = 0; i < count; i++)
+        {
+            int m = size;
+            System.arraycopy(dest, 0, block, 0, m);
+            
+            long power = 1;
+            for (int j = 0; j < exponents[i]; j++)
+            {
+                power *= factors[i];
+                
+                int a = size - 1;
+                int b = m - 1;
+                int w = size + m - 1;
+                
+                while (b >= 0)
+                {
+                    long candidate = block[b] * power;
+                    if ((a >= 0) && (dest[a] > candidate))
+                        dest[w--] = dest[a--];
+                    else
+                    {
+                        dest[w--] = candidate;
+                        b--;
+                    }
+                }
+                
+                size += m;
+            }
+        }
+        
+        return size;
+    }//fim de divisors()
+    
+    /**
+     * Retorna quantos divisores tem <b>n</b>.
+     * 
+     * @param n Um inteiro positivo.
+     * 
+     * @return O numero de divisores de n, incluindo 1 e n.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @since 1.0
+     */
+    /*[27]----------------------------------------------------------------------
+    *               Funcao tau: quantos divisores tem um inteiro
+    --------------------------------------------------------------------------*/
+    public static long tau(long n)
+        throws IllegalArgumentException
+    {
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        
+        return tau(exponents, primeFactors(n, SmallPrimes.TABLE, factors, exponents));
+    }//fim de tau()
+    
+    /**
+     * Retorna quantos divisores tem o inteiro cujos fatores primos distintos
+     * tem os expoentes em exponents.
+     * 
+     * @param exponents Os expoentes dos fatores primos distintos do inteiro.
+     * 
+     * @param count Quantos fatores primos distintos tem o inteiro.
+     * 
+     * @return O numero de divisores do inteiro.
+     * 
+     * @since 1.0
+     */
+    /*[27B]---------------------------------------------------------------------
+    *           Funcao tau a partir dos expoentes da fatoracao
+    --------------------------------------------------------------------------*/
+    public static long tau(int[] exponents, int count)
+    {
+        long tau = 1;
+        for (int i = 0; i < count; i++) tau *= exponents[i] + 1;
+        return tau;
+    }//fim de tau()
+    
+    /**
+     * Retorna a soma de todos os divisores de <b>n</b>.
+     * 
+     * @param n Um inteiro positivo.
+     * 
+     * @return A soma dos divisores de n, incluindo 1 e n.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @throws ArithmeticException Se a soma nao couber em um long.
+     * 
+     * @since 1.0
+     */
+    /*[28]----------------------------------------------------------------------
+    *           Funcao sigma: soma dos divisores de um inteiro
+    --------------------------------------------------------------------------*/
+    public static long sigma(long n)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        
+        int count = primeFactors(n, SmallPrimes.TABLE, factors, exponents);
+        
+        return sigma(factors, exponents, count);
+    }//fim de sigma()
+    
+    /**
+     * Retorna a soma dos divisores do inteiro cuja fatoracao eh dada por 
+     * factors e exponents.
+     * 
+     * @param factors Os fatores primos distintos do inteiro.
+     * 
+     * @param exponents Na posicao i, o expoente de factors[i].
+     * 
+     * @param count Quantos fatores primos distintos ha em factors.
+     * 
+     * @return A soma dos divisores do inteiro.
+     * 
+     * @throws ArithmeticException Se a soma nao couber em um long.
+     * 
+     * @since 1.0
+     */
+    /*[28B]---------------------------------------------------------------------
+    *           Funcao sigma a partir da fatoracao
+    --------------------------------------------------------------------------*/
+    public static long sigma(long[] factors, int[] exponents, int count)
+        throws ArithmeticException
+    {
+        /*
+        sigma eh multiplicativa: o produto, para cada fator p^e, de 
+        1 + p + p^2 + ... + p^e
+        */
+        long sigma = 1;
+        for (int i = 0; i < count; i++)
+        {
+            long power = 1;
+            long sum = 1;
+            for (int j = 0; j < exponents[i]; j++)
+            {
+                power = Math.multiplyExact(power, factors[i]);
+                sum = Math.addExact(sum, power);
+            }
+            sigma = Math.multiplyExact(sigma, sum);
+        }
+        return sigma;
+    }//fim de sigma()
+    
+    /**
+     * Funcao totiente de Euler: quantos inteiros do intervalo [1, n] sao primos
+     * entre si com <b>n</b>.
+     * 
+     * @param n Um inteiro positivo.
+     * 
+     * @return phi(n)
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @since 1.0
+     */
+    /*[29]----------------------------------------------------------------------
+    *                     Funcao totiente de Euler
+    --------------------------------------------------------------------------*/
+    public static long phi(long n)
+        throws IllegalArgumentException
+    {
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        
+        int count = primeFactors(n, SmallPrimes.TABLE, factors, exponents);
+        
+        return phi(n, factors, count);
+    }//fim de phi()
+    
+    /**
+     * Funcao totiente de Euler calculada a partir dos fatores primos distintos
+     * de <b>n</b>.
+     * 
+     * @param n Um inteiro positivo.
+     * 
+     * @param factors Os fatores primos distintos de n.
+     * 
+     * @param count Quantos fatores primos distintos ha em factors.
+     * 
+     * @return phi(n)
+     * 
+     * @since 1.0
+     */
+    /*[29B]---------------------------------------------------------------------
+    *          Funcao totiente de Euler a partir da fatoracao
+    --------------------------------------------------------------------------*/
+    public static long phi(long n, long[] factors, int count)
+    {
+        long phi = n;
+        for (int i = 0; i < count; i++) phi = phi / factors[i] * (factors[i] - 1);
+        return phi;
+    }//fim de phi()
+    
+    /**
+     * Funcao de Mobius.
+     * 
+     * @param n Um inteiro positivo.
+     * 
+     * @return 0 se n for divisivel pelo quadrado de algum primo, 1 se n tiver
+     * um numero par de fatores primos distintos, e -1 se tiver um numero 
+     * impar.
+     * 
+     * @throws IllegalArgumentException Se n menor que 1.
+     * 
+     * @since 1.0
+     */
+    /*[30]----------------------------------------------------------------------
+    *                          Funcao de Mobius
+    --------------------------------------------------------------------------*/
+    public static int mu(long n)
+        throws IllegalArgumentException
+    {
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        
+        return mu(exponents, primeFactors(n, SmallPrimes.TABLE, factors, exponents));
+    }//fim de mu()
+    
+    /**
+     * Funcao de Mobius a partir dos expoentes da fatoracao.
+     * 
+     * @param exponents Os expoentes dos fatores primos distintos do inteiro.
+     * 
+     * @param count Quantos fatores primos distintos tem o inteiro.
+     * 
+     * @return 0, 1 ou -1.
+     * 
+     * @since 1.0
+     */
+    /*[30B]---------------------------------------------------------------------
+    *           Funcao de Mobius a partir dos expoentes da fatoracao
+    --------------------------------------------------------------------------*/
+    public static int mu(int[] exponents, int count)
+    {
+        for (int i = 0; i < count; i++) if (exponents[i] > 1) return 0;
+        return ((count & 1) == 0) ? 1 : -1;
+    }//fim de mu()
+    
   
     /**
      * Um programa exemplificando usos de metodos da classe
@@ -715,9 +1974,56 @@ public class XMath
     {
         int[] f = {3,3,1}; 
         
+        System.out.println(isPrime(9223372036854775783L) + " " + 
+                           isPrime(3825123056546413051L));
+        System.out.println(nextPrime(1000000000000000000L) + " " +
+                           prevPrime(Long.MAX_VALUE));
+        System.out.println(primeFactors(4611686014132420609L) + " " +
+                           Arrays.toString(primeFactorsAsArray(Long.MAX_VALUE)));
+        System.out.println(Arrays.toString(divisors(360)) + " tau = " + tau(360) +
+                           " sigma = " + sigma(360) + " phi = " + phi(360) +
+                           " mu = " + mu(360));
+        System.out.println(nCr(66, 33) + " " + nCrBig(200, 100));
+        
         //System.out.println(nCPr(f,3));
         System.out.println(nCPr(f,3));
         
+        /*
+        Com tabelas de primos curtas, o que sobra de n depois da tabela pode 
+        ter fatores pequenos ou ser potencia de um primo. Confere com 
+        factorInto().
+        */
+        int[][] tables =
+        {
+            {}, {2}, {2, 3},
+            new br.com.hkp.classes.math.numberstheory.QuickSieve(2).
+                getPrimeTable().toArray()
+        };
+        long[] hard = {9, 25, 27, 121, 65537L * 65537L,
+                       65537L * 65537L * 65537L, 2147483647L * 2147483647L,
+                       4052555153018976267L, 4611686014132420609L,
+                       Long.MAX_VALUE};
+        long[] factors = new long[MAX_DISTINCT_FACTORS];
+        int[] exponents = new int[MAX_DISTINCT_FACTORS];
+        boolean ok = true;
+        for (int[] table : tables)
+            for (long k = 1; ok && (k <= 100000 + hard.length); k++)
+            {
+                long n = (k <= 100000) ? k : hard[(int)(k - 100001)];
+                int count = primeFactors(n, table, factors, exponents);
+                
+                long[] expected = primeFactorsAsArray(n);
+                int size = 0;
+                for (int i = 0; i < count; i++)
+                    for (int e = 0; e < exponents[i]; e++) 
+                        ok &= (size < expected.length) && 
+                              (expected[size++] == factors[i]);
+                ok &= (size == expected.length);
+                
+                if (!ok) System.out.println("Falhou: " + n);
+            }
+        System.out.println("Tabelas curtas: " + (ok ? "Ok" : "FALHOU"));
+        
         System.exit(0);
         
         /*
@@ -0,0 +1,201 @@
+/*arquivo BinomialTable.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import br.com.hkp.classes.math.XMath;
+import java.util.Arrays;
+
+/**
+ * Uma tabela de coeficientes binomiais C(n, k) ( o triangulo de Pascal ),
+ * compartilhada por todos os objetos do pacote.
+ * <p>
+ * A tabela cresce sob demanda: na primeira consulta a uma linha n, sao
+ * calculadas, por somas, todas as linhas que ainda faltam ateh n. A partir dai
+ * cada C(n, k) eh obtido por uma unica consulta a um array, o que torna
+ * metodos como {@link Combination#getCombination(long, int, int) } ordens de
+ * grandeza mais rapidos do que calculando cada coeficiente.
+ * <p>
+ * Cada linha eh um array de long que guarda apenas C(n, k) para k ateh n / 2,
+ * pois C(n, k) = C(n, n - k). Os valores que nao cabem em um long sao
+ * retornados como Long.MAX_VALUE, e a linha termina antes do primeiro deles,
+ * jah que os seguintes, ateh k = n / 2, sao ainda maiores. Assim uma linha
+ * nunca tem mais que 34 posicoes, e para n grande apenas umas poucas.
+ * <p>
+ * A tabela tem no maximo {@link #MAX_ROWS} linhas, ocupando alguns megabytes.
+ * Para n maior, C(n, k) eh calculado a cada consulta por
+ * {@link XMath#nCr(int, int) }, o que ainda eh rapido, pois com n tao grande
+ * apenas os coeficientes com k ( ou n - k ) pequeno cabem em um long.
+ * <p>
+ * A tabela eh segura para uso por varias threads: as linhas nunca sao
+ * alteradas depois de criadas, e o crescimento publica um novo array de linhas
+ * por meio de um campo volatile.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class BinomialTable
+{
+    /*
+    rows[n][k] eh C(n, k) para k no intervalo [0, rows[n].length - 1]. As
+    linhas soh sao substituidas por um array maior, nunca alteradas.
+    */
+    private static volatile long[][] rows = {{1}};
+
+    /**
+     * O numero maximo de linhas da tabela. Coeficientes C(n, k) com n maior
+     * ou igual a este valor sao calculados a cada consulta.
+     */
+    public static final int MAX_ROWS = 1 << 16;
+
+    /*[00]----------------------------------------------------------------------
+    *   Construtor private impede que seja criado um objeto dessa classe, pois
+    *   a mesma soh possui metodos static
+    --------------------------------------------------------------------------*/
+    private BinomialTable()
+    {
+
+    }//fim de construtor BinomialTable()
+
+    /**
+     * Retorna o coeficiente binomial C(n, k): quantos subconjuntos de k
+     * elementos podem ser extraidos de um conjunto de n elementos.
+     *
+     * @param n Cardinalidade do conjunto. Nao pode ser negativo.
+     * @param k Cardinalidade dos subconjuntos.
+     *
+     * @return C(n, k), ou 0 se k for negativo ou maior que n, ou
+     * Long.MAX_VALUE se C(n, k) nao couber em um long.
+     *
+     * @throws IllegalArgumentException Se n negativo.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                    Retorna o coeficiente binomial C(n, k)
+    --------------------------------------------------------------------------*/
+    public static long get(int n, int k)
+        throws IllegalArgumentException
+    {
+        if (n < 0) throw new IllegalArgumentException();
+
+        if ((k < 0) || (k > n)) return 0;
+
+        if (n >= MAX_ROWS) return compute(n, Math.min(k, n - k));
+
+        long[][] table = rows;
+        if (n >= table.length) table = grow(n);
+
+        return lookup(table[n], Math.min(k, n - k));
+    }//fim de get()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Calcula C(n, k) para n alem da tabela. nCr() lanca ArithmeticException
+    *   logo que um resultado parcial nao cabe em um long, entao o custo eh de
+    *   poucas iteracoes mesmo quando o resultado satura.
+    --------------------------------------------------------------------------*/
+    private static long compute(int n, int k)
+    {
+        if (k < 2) return (k == 0) ? 1 : n;
+
+        if (k == 2) return (long)n * (n - 1) / 2;
+
+        try
+        {
+            return XMath.nCr(n, k);
+        }
+        catch (ArithmeticException e)
+        {
+            return Long.MAX_VALUE;
+        }
+    }//fim de compute()
+
+    /*[02]----------------------------------------------------------------------
+    *   Retorna C(n, k) de uma linha, com k <= n / 2
+    --------------------------------------------------------------------------*/
+    private static long lookup(long[] row, int k)
+    {
+        return (k < row.length) ? row[k] : Long.MAX_VALUE;
+    }//fim de lookup()
+
+    /*[03]----------------------------------------------------------------------
+    *   Acrescenta a tabela as linhas que faltam ateh n e retorna o novo array
+    *   de linhas
+    --------------------------------------------------------------------------*/
+    private static synchronized long[][] grow(int n)
+    {
+        long[][] table = rows;
+        if (n < table.length) return table;
+
+        /*
+        Ao menos dobra o numero de linhas, para que consultas a linhas
+        sucessivas nao criem um novo array de linhas a cada vez.
+        */
+        int length = Math.min(MAX_ROWS, Math.max(n + 1, 2 * table.length));
+
+        long[][] newTable = Arrays.copyOf(table, length);
+
+        for (int i = table.length; i < length; i++)
+        {
+            /*
+            C(i, k) >= C(i - 1, k), entao a linha i nao se estende alem de uma
+            posicao depois do fim da linha anterior.
+            */
+            long[] previous = newTable[i - 1];
+            long[] row = new long[Math.min(i / 2 + 1, previous.length + 1)];
+
+            row[0] = 1;
+            int k = 1;
+            for (; k < row.length; k++)
+            {
+                /*
+                C(i, k) = C(i - 1, k - 1) + C(i - 1, k). O segundo termo, se
+                k > (i - 1) / 2, esta na linha anterior como C(i - 1, i - 1 - k)
+                */
+                long a = lookup(previous, k - 1);
+                long b = lookup(previous, Math.min(k, i - 1 - k));
+                long c = a + b;
+
+                if ((a == Long.MAX_VALUE) || (b == Long.MAX_VALUE) || (c < 0))
+                    break;
+
+                row[k] = c;
+            }
+
+            newTable[i] = (k < row.length) ? Arrays.copyOf(row, k) : row;
+        }
+
+        rows = newTable;
+        return newTable;
+    }//fim de grow()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        for (int n = 0; n <= 8; n++)
+        {
+            for (int k = 0; k <= n; k++) System.out.print(get(n, k) + " ");
+            System.out.println();
+        }
+
+        System.out.println("C(66, 33) = " + get(66, 33));
+        System.out.println("C(67, 33) = " + get(67, 33) + " ( saturado )");
+        System.out.println("C(1000000, 3) = " + get(1000000, 3));
+        System.out.println("C(1000000, 4) = " + get(1000000, 4) +
+                           " ( saturado )");
+        System.out.println("C(1000000, 999998) = " + get(1000000, 999998));
+
+        /*
+        Confere os coeficientes da tabela, para n < MAX_ROWS, e os calculados
+        diretamente, com nCr().
+        */
+        boolean ok = true;
+        for (int n = 0; n < MAX_ROWS + 100; n += (n < 200) ? 1 : 997)
+            for (int k = 0; k <= Math.min(n, 40); k++)
+                ok &= (get(n, k) == compute(n, k)) &&
+                      (get(n, n - k) == get(n, k));
+        System.out.println("Tabela conferida: " + (ok ? "Ok" : "FALHOU"));
+
+    }//fim de main()
+
+}//fim da classe BinomialTable
@@ -3,6 +3,7 @@ package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * Metodos para resolver problemas de analise combinatoria relativos a
@@ -70,12 +71,15 @@ public class Combination extends Combinatorial
      * @param r Quantos elementos terah cada subconjunto extraido.
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @throws ArithmeticException Se o numero de combinacoes nao couber em um
+     * long.
      */
     /*[01]----------------------------------------------------------------------
     *                   O construtor da classe
     --------------------------------------------------------------------------*/
     public Combination(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         super(n, r, XMath.nCr(n, r));
       
@@ -279,13 +283,15 @@ public class Combination extends Combinatorial
             {
                 step++;
                 subSetIndex -= nCr;
-                nCr = XMath.nCr(n - step, r);
+                nCr = BinomialTable.get(n - step, r);
                 
             }while(subSetIndex - nCr >= 0);
                 
             /*
             <step> eh o passo em que o somatorio dos nCr se tornou
-            maior que o valor de <subSetIndex>.
+            maior que o valor de <subSetIndex>. Um nCr que nao cabe em um long
+            eh retornado pela tabela como Long.MAX_VALUE, que eh maior que
+            qualquer indice valido.
             O valor do proximo elemento a ser inserido terah que ser 
             pelo menos uma unidade maior que o numero inserido nesta
             iteracao do loop i
@@ -300,6 +306,83 @@ public class Combination extends Combinatorial
         
     }//fim de getCombination()
        
+    /**
+     * Retorna um Stream sequencial com todas as combinacoes de n elementos
+     * tomados r a r, em ordem lexografica. Se tornado paralelo com parallel(),
+     * as combinacoes sao divididas em intervalos de indices e cada intervalo eh
+     * gerado por um objeto Combination proprio. Veja
+     * {@link CombinatorialSpliterator}.
+     *
+     * @param n A cardinalidade do conjunto.
+     * @param r A cardinalidade de cada subconjunto.
+     *
+     * @return Um Stream com as combinacoes.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor
+     * {@link #Combination(int, int) }.
+     *
+     * @throws ArithmeticException Se o numero de combinacoes nao couber em um
+     * long.
+     */
+    /*[05B]---------------------------------------------------------------------
+    *                   Retorna um Stream com as combinacoes
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int n, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        return CombinatorialSpliterator.stream
+        (
+            () -> new Combination(n, r)
+        );
+    }//fim de stream()
+    
+    /**
+     * Retorna o indice lexografico de uma combinacao, o inverso de 
+     * {@link #getSubSet(long) }. O indice eh obtido pelo sistema de numeracao
+     * combinatorial, com r consultas a {@link BinomialTable}.
+     * 
+     * @param subSet Uma combinacao: r elementos distintos do intervalo 
+     * [0, n - 1] em ordem crescente.
+     * 
+     * @return O indice da combinacao, no intervalo [0, nCr - 1].
+     * 
+     * @throws IllegalArgumentException Se subSet nao for uma combinacao de n
+     * elementos tomados r a r.
+     */
+    /*[05C]---------------------------------------------------------------------
+    *              Retorna o indice lexografico de uma combinacao
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != subSetCardinality) throw new
+            IllegalArgumentException("Invalid combination.");
+        
+        /*
+        As combinacoes de indice maior que o de subSet sao, para cada posicao
+        i, as que coincidem com subSet ateh a posicao i - 1 e tem na posicao i
+        um elemento maior que subSet[i]: C(n - 1 - subSet[i], r - i) 
+        combinacoes. O indice eh o numero total menos 1 menos a soma destas.
+        */
+        long index = getNumberOfSubSets() - 1;
+        int previous = -1;
+        
+        for (int i = 0; i < subSetCardinality; i++)
+        {
+            int element = subSet[i];
+            
+            if ((element <= previous) || (element >= setCardinality)) throw new
+                IllegalArgumentException("Invalid combination.");
+            
+            index -= BinomialTable.get(setCardinality - 1 - element, 
+                                       subSetCardinality - i);
+            previous = element;
+        }
+        
+        return index;
+    }//fim de rank()
+    
     /*[06]----------------------------------------------------------------------
     *    Metodo private usado para testar os metodos getCombination() e 
     *    e nextCombination(), comparando os subconjuntos retornados por ambos
@@ -362,6 +445,16 @@ public class Combination extends Combinatorial
         }
     }//fim de nCr()
     
+    /*[08]----------------------------------------------------------------------
+    *   Retorna quantos bytes a thread corrente ja alocou, ou 0 se bean for
+    *   null, isto eh, se a JVM nao informar este valor
+    --------------------------------------------------------------------------*/
+    private static long allocatedBytes(com.sun.management.ThreadMXBean bean)
+    {
+        if (bean == null) return 0;
+        
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }//fim de allocatedBytes()
    
     /**
      * Um metodo para testar a classe
@@ -402,6 +495,78 @@ public class Combination extends Combinatorial
                 System.out.println("");
             }
        
+        /*
+        Compara, percorrendo todas as combinacoes 28C10, o tempo e a memoria
+        alocada por nextSubSet(), nextSubSet(int[]) e nextSubSetView().
+        */
+        System.out.println("Percorrendo " + XMath.nCr(28, 10) + 
+                           " combinacoes 28C10...\n");
+        
+        /*
+        A memoria alocada por thread soh eh informada por JVMs que oferecem
+        com.sun.management.ThreadMXBean. Nas outras apenas o tempo eh medido.
+        */
+        java.lang.management.ThreadMXBean mx = 
+            java.lang.management.ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean bean = 
+            (mx instanceof com.sun.management.ThreadMXBean) ?
+            (com.sun.management.ThreadMXBean)mx : null;
+        
+        Combination c = new Combination(28, 10);
+        int[] dest = new int[10];
+        
+        for (int method = 0; method < 3; method++)
+        {
+            long sum = 0;
+            long bytes = allocatedBytes(bean);
+            long t = System.currentTimeMillis();
+            
+            for (long i = 0; i < c.getNumberOfSubSets(); i++)
+            {
+                int[] subSet;
+                switch (method)
+                {
+                    case 0: subSet = c.nextSubSet(); break;
+                    case 1: subSet = c.nextSubSet(dest); break;
+                    default: subSet = c.nextSubSetView();
+                }
+                sum += subSet[9];
+            }
+            
+            t = System.currentTimeMillis() - t;
+            bytes = allocatedBytes(bean) - bytes;
+            
+            System.out.println
+            (
+                ((method == 0) ? "nextSubSet()      " : 
+                 (method == 1) ? "nextSubSet(int[]) " : "nextSubSetView()  ") + 
+                t + " milseg " + 
+                ((bean == null) ? "" : bytes + " bytes alocados ") + 
+                "( " + sum + " )"
+            );
+        }
+        
+        /*
+        O mesmo percurso em blocos de 1024 combinacoes com nextSubSets().
+        */
+        int[] block = new int[1024 * 10];
+        long sum = 0;
+        long bytes = allocatedBytes(bean);
+        long t = System.currentTimeMillis();
+        
+        c.setNextIndex(0);
+        do
+        {
+            int written = c.nextSubSets(1024, block);
+            for (int j = 0; j < written; j++) sum += block[j * 10 + 9];
+        }while (!c.wasTheLast());
+        
+        t = System.currentTimeMillis() - t;
+        bytes = allocatedBytes(bean) - bytes;
+        
+        System.out.println("nextSubSets()     " + t + " milseg " + 
+                           ((bean == null) ? "" : bytes + " bytes alocados ") +
+                           "( " + sum + " )");
         
     }//fim de main()
     
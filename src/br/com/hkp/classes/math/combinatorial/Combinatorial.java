@@ -1,6 +1,7 @@
 package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 
 
@@ -424,16 +425,24 @@ public abstract class Combinatorial
         
         nextIndex = next; 
         
-        if (nextIndex == 0) 
-            currentSubSet = getSubSet(numberOfSubSets - 1);
-        else
-            currentSubSet = getSubSet(nextIndex - 1);
+        currentSubSet = subSetBefore(next);
                   
         currentAvailables = frequency.clone();
         for (int i = 0; i < subSetCardinality; i++) 
             currentAvailables[currentSubSet[i]]--;
     }//fim de setNextIndex()
     
+    /*[03B]---------------------------------------------------------------------
+    *   Retorna o arranjo a partir do qual nextSubSet() gera o de indice next:
+    *   o de indice next - 1, ou o ultimo se next for 0. Uma subclasse cujo
+    *   sucessor do ultimo arranjo nao dependa dele pode sobrescrever este
+    *   metodo para evitar calcular o ultimo a cada construtor.
+    --------------------------------------------------------------------------*/
+    protected int[] subSetBefore(long next)
+    {
+        return getSubSet((next == 0) ? numberOfSubSets - 1 : next - 1);
+    }//fim de subSetBefore()
+    
     /**
      * Retorna o indice do proximo arranjo gerado quando for executado o metodo 
      * nextSubSet()
@@ -506,6 +515,11 @@ public abstract class Combinatorial
     * lexografica crescente. A cada vez que for executado, retornando o sucessor
     * lexografico do arranjo gerado na chamada anterior. A menos que esta ordem
     * seja alterada por uma ou mais chamada ao metodo setNextIndex()
+    * <p>
+    * Cada chamada cria um novo array. Para percorrer um grande numero de 
+    * arranjos sem criar objetos use {@link #nextSubSet(int[]) }, 
+    * {@link #nextSubSetView() } ou, em blocos, 
+    * {@link #nextSubSets(int, int[]) }.
     * 
     * @return Um vetor com os elementos do arranjo sucessor lexografico do
     * arranjo que era corrente quando nextSubSet() iniciou sua execucao.
@@ -517,6 +531,63 @@ public abstract class Combinatorial
     *     iniciando novamente o ciclo.
     --------------------------------------------------------------------------*/
     public int[] nextSubSet()
+    {
+        return nextSubSetView().clone();
+    }//fim de nextSubSet()
+    
+   /**
+    * Gera o mesmo arranjo que seria retornado por {@link #nextSubSet() }, mas
+    * o copia para um array fornecido pelo chamador em vez de criar um novo.
+    * Assim um loop que percorre todos os arranjos pode reutilizar sempre o
+    * mesmo array, sem criar nenhum objeto.
+    * 
+    * @param dest O array que recebe, nas suas primeiras posicoes, os elementos
+    * do arranjo. Deve ter ao menos r posicoes.
+    * 
+    * @return O proprio array dest.
+    * 
+    * @throws IllegalArgumentException Se dest tiver menos que r posicoes. Neste
+    * caso nenhum arranjo eh gerado.
+    */
+    /*[06B]---------------------------------------------------------------------
+    *     Gera o proximo arranjo e o copia para um array do chamador
+    --------------------------------------------------------------------------*/
+    public int[] nextSubSet(int[] dest)
+        throws IllegalArgumentException
+    {
+        if (dest.length < subSetCardinality) throw new
+            IllegalArgumentException("Array is too short.");
+        
+        System.arraycopy(nextSubSetView(), 0, dest, 0, subSetCardinality);
+        
+        return dest;
+    }//fim de nextSubSet()
+    
+   /**
+    * Gera o mesmo arranjo que seria retornado por {@link #nextSubSet() }, sem
+    * copia-lo. O array retornado eh o proprio campo {@link #currentSubSet}, e
+    * deve ser tratado como somente leitura: seu conteudo eh substituido pela
+    * proxima chamada a qualquer um dos metodos nextSubSet() ou 
+    * {@link #setNextIndex(long) }, e altera-lo corrompe a sequencia de arranjos
+    * gerados.
+    * <p>
+    * Eh a forma mais rapida de percorrer os arranjos, quando cada um deles eh
+    * consumido antes que o proximo seja gerado:
+    * <pre>
+    * {@code 
+    * for (long i = 0; i < c.getNumberOfSubSets(); i++)
+    *     process(c.nextSubSetView());
+    * }
+    * </pre>
+    * 
+    * @return O arranjo sucessor lexografico do arranjo que era corrente quando
+    * o metodo iniciou sua execucao. Nao deve ser alterado.
+    */
+    /*[06C]---------------------------------------------------------------------
+    *     Gera o proximo arranjo e retorna, sem copia-lo, o array que o 
+    *     armazena
+    --------------------------------------------------------------------------*/
+    public int[] nextSubSetView()
     {
         if (++nextIndex == numberOfSubSets) nextIndex = 0;
         
@@ -533,9 +604,117 @@ public abstract class Combinatorial
         
         updateCurrentSubSetAfterIPos(i);
          
-        return currentSubSet.clone();
+        return currentSubSet;
         
-    }//fim de nextSubSet()
+    }//fim de nextSubSetView()
+    
+   /**
+    * Gera, de uma vez, os proximos count arranjos e os copia em sequencia para
+    * um array do chamador: o arranjo j ocupa as posicoes [j * r, j * r + r)
+    * de dest. Equivale a count chamadas a {@link #nextSubSet(int[]) }, mas sem
+    * um novo array para cada arranjo, para quem processa os arranjos em
+    * blocos.
+    * <p>
+    * A geracao para logo apos o arranjo de indice numberOfSubSets - 1, mesmo
+    * que menos de count arranjos tenham sido gerados. Assim
+    * {@link #wasTheLast() } continua indicando o fim do ciclo, e o loop
+    * abaixo processa cada arranjo exatamente uma vez:
+    * <pre>
+    * {@code 
+    * int[] block = new int[1024 * r];
+    * do
+    * {
+    *     int written = c.nextSubSets(1024, block);
+    *     process(block, written);
+    * }while (! c.wasTheLast());
+    * }
+    * </pre>
+    * 
+    * @param count Quantos arranjos gerar, no maximo.
+    * @param dest O array que recebe os arranjos. Deve ter ao menos count * r
+    * posicoes.
+    * 
+    * @return Quantos arranjos foram gerados e copiados para dest.
+    * 
+    * @throws IllegalArgumentException Se count for negativo ou dest tiver
+    * menos que count * r posicoes. Neste caso nenhum arranjo eh gerado.
+    */
+    /*[06D]---------------------------------------------------------------------
+    *     Gera os proximos count arranjos e os copia em sequencia para um 
+    *     array do chamador
+    --------------------------------------------------------------------------*/
+    public int nextSubSets(int count, int[] dest)
+        throws IllegalArgumentException
+    {
+        checkBlock(count, dest.length, "Array is too short.");
+        
+        int written = 0;
+        
+        for (int offset = 0; written < count; offset += subSetCardinality)
+        {
+            System.arraycopy
+            (
+                nextSubSetView(), 0, dest, offset, subSetCardinality
+            );
+            written++;
+            
+            if (nextIndex == 0) break;
+        }
+        
+        return written;
+    }//fim de nextSubSets()
+    
+   /**
+    * Como {@link #nextSubSets(int, int[]) }, mas os arranjos sao escritos em
+    * um IntBuffer a partir da sua posicao corrente, que avanca r posicoes por
+    * arranjo. Se o buffer for direto, os arranjos podem ser lidos fora da JVM
+    * sem outra copia.
+    * 
+    * @param count Quantos arranjos gerar, no maximo.
+    * @param dest O buffer que recebe os arranjos. Deve ter ao menos count * r
+    * posicoes restantes.
+    * 
+    * @return Quantos arranjos foram gerados e escritos em dest.
+    * 
+    * @throws IllegalArgumentException Se count for negativo ou dest tiver
+    * menos que count * r posicoes restantes. Neste caso nenhum arranjo eh 
+    * gerado.
+    */
+    /*[06E]---------------------------------------------------------------------
+    *     Gera os proximos count arranjos e os escreve em um IntBuffer
+    --------------------------------------------------------------------------*/
+    public int nextSubSets(int count, IntBuffer dest)
+        throws IllegalArgumentException
+    {
+        checkBlock(count, dest.remaining(), "Buffer is too short.");
+        
+        int written = 0;
+        
+        while (written < count)
+        {
+            dest.put(nextSubSetView(), 0, subSetCardinality);
+            written++;
+            
+            if (nextIndex == 0) break;
+        }
+        
+        return written;
+    }//fim de nextSubSets()
+    
+    /*[06F]---------------------------------------------------------------------
+    *   A validacao comum a todos os metodos nextSubSets(), inclusive os de
+    *   MappedCombinatorial. Se count for negativo, ou se count * r for maior
+    *   que room, o espaco disponivel no destino, lanca
+    *   IllegalArgumentException, com a mensagem tooShort no segundo caso.
+    --------------------------------------------------------------------------*/
+    void checkBlock(int count, long room, String tooShort)
+        throws IllegalArgumentException
+    {
+        if (count < 0) throw new IllegalArgumentException("Invalid count.");
+        
+        if ((long)count * subSetCardinality > room) throw new
+            IllegalArgumentException(tooShort);
+    }//fim de checkBlock()
     
     /**
      * Deve ser sobrescrito na subclasse se for necessario inicializar
@@ -703,6 +882,56 @@ public abstract class Combinatorial
     *                     Retorna uma enesima permutacao
     --------------------------------------------------------------------------*/
     public abstract int[] getSubSet(long subSetIndex);
+    
+    /**
+     * Retorna o indice lexografico de um arranjo. Eh o inverso de 
+     * {@link #getSubSet(long) }: para todo indice valido i, 
+     * rank(getSubSet(i)) == i. Permite, por exemplo, armazenar um arranjo
+     * como um unico long em vez de um array.
+     * <p>
+     * Ao contrario de {@link #getSubSet(long) }, o argumento eh validado, pois
+     * normalmente vem de fora do objeto.
+     * 
+     * @param subSet Um arranjo que possa ser gerado por este objeto.
+     * 
+     * @return O indice de subSet, no intervalo [0, numberOfSubSets - 1].
+     * 
+     * @throws IllegalArgumentException Se subSet nao for um arranjo que este
+     * objeto possa gerar.
+     */
+    /*[11]----------------------------------------------------------------------
+    *                 Retorna o indice lexografico de um arranjo
+    --------------------------------------------------------------------------*/
+    public abstract long rank(int[] subSet)
+        throws IllegalArgumentException;
+    
+    /**
+     * Calcula o indice lexografico de cada arranjo de um array de arranjos.
+     * Subclasses podem sobrescrever este metodo para reaproveitar, entre um
+     * arranjo e outro, as estruturas usadas por {@link #rank(int[]) }.
+     * 
+     * @param subSets Os arranjos.
+     * @param dest O array que recebe os indices: dest[i] serah o indice de
+     * subSets[i]. Deve ter ao menos subSets.length posicoes.
+     * 
+     * @return O proprio array dest.
+     * 
+     * @throws IllegalArgumentException Se dest for menor que subSets, ou se 
+     * algum dos arranjos nao puder ser gerado por este objeto.
+     */
+    /*[12]----------------------------------------------------------------------
+    *       Calcula o indice lexografico de cada arranjo de um array
+    --------------------------------------------------------------------------*/
+    public long[] rank(int[][] subSets, long[] dest)
+        throws IllegalArgumentException
+    {
+        if (dest.length < subSets.length) throw new
+            IllegalArgumentException("Array is too short.");
+        
+        for (int i = 0; i < subSets.length; i++) dest[i] = rank(subSets[i]);
+        
+        return dest;
+    }//fim de rank()
   
     
 }//fim da classe Combinatorial
@@ -0,0 +1,683 @@
+/*arquivo CombinatorialRange.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Reader;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Descreve um intervalo de indices [from, to) dos arranjos de um objeto
+ * Combinatorial, para que o trabalho de percorrer um grande numero de arranjos
+ * possa ser dividido entre varios processos.
+ * <p>
+ * O descritor eh pequeno e imutavel: guarda apenas o tipo de arranjo, n, r, a
+ * frequencia dos elementos ( para EnhancedPermutation e
+ * EnhancedCyclicPermutation ) e os limites do intervalo. Pode ser enviado a
+ * outro processo por serializacao ou gravado em um arquivo de texto com
+ * {@link #save(Path) }. Quem o recebe obtem os arranjos
+ * do intervalo com {@link #iterator() }, que posiciona um novo objeto
+ * Combinatorial no indice from com {@link Combinatorial#setNextIndex(long) }.
+ * <p>
+ * O arquivo gravado por {@link #save(Path) } tambem serve como checkpoint. Um
+ * processo que percorre um intervalo pode, de tempos em tempos, chamar
+ * {@link RangeIterator#checkpoint(Path) }, que grava o intervalo que ainda
+ * falta percorrer. Se o processo for interrompido, {@link #load(Path) } le o
+ * arquivo e o trabalho recomeca do indice seguinte ao do ultimo arranjo
+ * entregue antes do checkpoint. O arquivo eh um arquivo de propriedades, por
+ * exemplo:
+ * <pre>
+ * type=COMBINATION
+ * n=40
+ * r=8
+ * frequency=
+ * from=19223760
+ * to=38447520
+ * </pre>
+ * <p>
+ * Exemplo: o processo k de um total de p processos
+ * <pre>
+ * {@code
+ * CombinatorialRange range = Files.exists(checkpoint) ?
+ *     CombinatorialRange.load(checkpoint) :
+ *     new CombinatorialRange(Type.COMBINATION, 40, 8, 0, -1).split(p)[k];
+ *
+ * CombinatorialRange.RangeIterator it = range.iterator();
+ * while (it.hasNext())
+ * {
+ *     process(it.next());
+ *     if (it.nextIndex() % 1000000 == 0) it.checkpoint(checkpoint);
+ * }
+ * }
+ * </pre>
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class CombinatorialRange implements Serializable, Iterable<int[]>
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Os tipos de arranjo que podem ser descritos.
+     */
+    public enum Type
+    {
+        /**
+         * Arranjos de {@link Combination}.
+         */
+        COMBINATION,
+        /**
+         * Arranjos de {@link Permutation}.
+         */
+        PERMUTATION,
+        /**
+         * Arranjos de {@link CyclicPermutation}.
+         */
+        CYCLIC_PERMUTATION,
+        /**
+         * Arranjos de {@link EnhancedPermutation}.
+         */
+        ENHANCED_PERMUTATION,
+        /**
+         * Arranjos de {@link EnhancedCyclicPermutation}.
+         */
+        ENHANCED_CYCLIC_PERMUTATION
+    }//fim de Type
+
+    private final Type type;
+    private final int n;
+    private final int r;
+
+    /*
+    A frequencia de cada elemento. Soh eh usada por ENHANCED_PERMUTATION e
+    ENHANCED_CYCLIC_PERMUTATION, e nos outros tipos eh null.
+    */
+    private final int[] frequency;
+
+    private final long from;
+    private final long to;
+
+    /**
+     * Cria o descritor de um intervalo de arranjos de Combination, Permutation
+     * ou CyclicPermutation.
+     *
+     * @param type O tipo de arranjo.
+     * @param n A cardinalidade do conjunto.
+     * @param r A cardinalidade de cada arranjo.
+     * @param from O indice do primeiro arranjo do intervalo.
+     * @param to O indice seguinte ao do ultimo arranjo do intervalo. Um valor
+     * negativo indica o numero total de arranjos.
+     *
+     * @throws IllegalArgumentException Se type for ENHANCED_PERMUTATION ou
+     * ENHANCED_CYCLIC_PERMUTATION, nas mesmas condicoes do construtor da classe
+     * do tipo, ou se o intervalo nao estiver contido em
+     * [0, getNumberOfSubSets()].
+     *
+     * @throws ArithmeticException Se o numero de arranjos nao couber em um
+     * long.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public CombinatorialRange(Type type, int n, int r, long from, long to)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        if (usesFrequency(type)) throw new
+            IllegalArgumentException("Frequency array is required.");
+
+        this.type = type;
+        this.n = n;
+        this.r = r;
+        frequency = null;
+
+        long total = newGenerator().getNumberOfSubSets();
+        this.from = from;
+        this.to = (to < 0) ? total : to;
+
+        checkRange(total);
+    }//fim de CombinatorialRange()
+
+    /**
+     * Cria o descritor de um intervalo de arranjos de EnhancedPermutation.
+     *
+     * @param elementsFrequency A frequencia de cada elemento no conjunto, como
+     * no construtor de EnhancedPermutation.
+     * @param r A cardinalidade de cada arranjo.
+     * @param from O indice do primeiro arranjo do intervalo.
+     * @param to O indice seguinte ao do ultimo arranjo do intervalo. Um valor
+     * negativo indica o numero total de arranjos.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor de
+     * EnhancedPermutation, ou se o intervalo nao estiver contido em
+     * [0, getNumberOfSubSets()].
+     *
+     * @throws ArithmeticException Se o numero de arranjos nao couber em um
+     * long.
+     */
+    /*[01B]---------------------------------------------------------------------
+    *             Construtor para arranjos de EnhancedPermutation
+    --------------------------------------------------------------------------*/
+    public CombinatorialRange(int[] elementsFrequency, int r, long from, long to)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        this(Type.ENHANCED_PERMUTATION, elementsFrequency, r, from, to);
+    }//fim de CombinatorialRange()
+
+    /**
+     * Cria o descritor de um intervalo de arranjos de EnhancedPermutation ou
+     * EnhancedCyclicPermutation.
+     *
+     * @param type ENHANCED_PERMUTATION ou ENHANCED_CYCLIC_PERMUTATION.
+     * @param elementsFrequency A frequencia de cada elemento no conjunto, como
+     * no construtor da classe do tipo.
+     * @param r A cardinalidade de cada arranjo.
+     * @param from O indice do primeiro arranjo do intervalo.
+     * @param to O indice seguinte ao do ultimo arranjo do intervalo. Um valor
+     * negativo indica o numero total de arranjos.
+     *
+     * @throws IllegalArgumentException Se type for outro tipo, nas mesmas
+     * condicoes do construtor da classe do tipo, ou se o intervalo nao estiver
+     * contido em [0, getNumberOfSubSets()].
+     *
+     * @throws ArithmeticException Se o numero de arranjos nao couber em um
+     * long.
+     */
+    /*[01C]---------------------------------------------------------------------
+    *      Construtor para arranjos de um tipo que usa a frequencia
+    --------------------------------------------------------------------------*/
+    public CombinatorialRange
+    (
+        Type type,
+        int[] elementsFrequency,
+        int r,
+        long from,
+        long to
+    )
+        throws IllegalArgumentException, ArithmeticException
+    {
+        if (!usesFrequency(type)) throw new
+            IllegalArgumentException("Frequency array is not used.");
+
+        this.type = type;
+        frequency = elementsFrequency.clone();
+        n = Arrays.stream(frequency).map(f -> Math.max(f, 0)).sum();
+        this.r = r;
+
+        long total = newGenerator().getNumberOfSubSets();
+        this.from = from;
+        this.to = (to < 0) ? total : to;
+
+        checkRange(total);
+    }//fim de CombinatorialRange()
+
+    /*[01D]---------------------------------------------------------------------
+    *   Construtor private que cria um subintervalo de um descritor valido
+    --------------------------------------------------------------------------*/
+    private CombinatorialRange(CombinatorialRange range, long from, long to)
+    {
+        type = range.type;
+        n = range.n;
+        r = range.r;
+        frequency = range.frequency;
+        this.from = from;
+        this.to = to;
+    }//fim de CombinatorialRange()
+
+    /*[02]----------------------------------------------------------------------
+    *   Lanca IllegalArgumentException se [from, to) nao estiver contido em
+    *   [0, total]
+    --------------------------------------------------------------------------*/
+    private void checkRange(long total)
+        throws IllegalArgumentException
+    {
+        if ((from < 0) || (to < from) || (to > total)) throw new
+            IllegalArgumentException("Invalid range.");
+    }//fim de checkRange()
+
+    /*[02B]---------------------------------------------------------------------
+    *   true se os arranjos do tipo sao definidos pela frequencia dos elementos
+    --------------------------------------------------------------------------*/
+    private static boolean usesFrequency(Type type)
+    {
+        return (type == Type.ENHANCED_PERMUTATION) ||
+               (type == Type.ENHANCED_CYCLIC_PERMUTATION);
+    }//fim de usesFrequency()
+
+    /*[03]----------------------------------------------------------------------
+    *   Valida um descritor recebido por desserializacao
+    --------------------------------------------------------------------------*/
+    private void readObject(ObjectInputStream in)
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+
+        try
+        {
+            if ((type == null) ||
+                (usesFrequency(type) != (frequency != null)))
+                throw new IllegalArgumentException();
+
+            checkRange(newGenerator().getNumberOfSubSets());
+        }
+        catch (IllegalArgumentException | ArithmeticException e)
+        {
+            throw new InvalidObjectException("Invalid range.");
+        }
+    }//fim de readObject()
+
+    /**
+     * Cria um novo objeto Combinatorial do tipo descrito, posicionado no
+     * arranjo de indice 0.
+     *
+     * @return Um objeto Combination, Permutation, CyclicPermutation,
+     * EnhancedPermutation ou EnhancedCyclicPermutation.
+     */
+    /*[04]----------------------------------------------------------------------
+    *            Cria um novo objeto Combinatorial do tipo descrito
+    --------------------------------------------------------------------------*/
+    public Combinatorial newGenerator()
+    {
+        switch (type)
+        {
+            case COMBINATION: return new Combination(n, r);
+            case PERMUTATION: return new Permutation(n, r);
+            case CYCLIC_PERMUTATION: return new CyclicPermutation(n, r);
+            case ENHANCED_PERMUTATION:
+                return new EnhancedPermutation(frequency, r);
+            default: return new EnhancedCyclicPermutation(frequency, r);
+        }
+    }//fim de newGenerator()
+
+    /**
+     * Divide o intervalo em partes consecutivas de tamanhos iguais ( a menos
+     * de um arranjo ), uma para cada processo.
+     *
+     * @param parts Em quantas partes dividir o intervalo.
+     *
+     * @return Um array com as partes, em ordem. Se houver menos arranjos que
+     * partes, algumas serao intervalos vazios.
+     *
+     * @throws IllegalArgumentException Se parts nao for positivo.
+     */
+    /*[05]----------------------------------------------------------------------
+    *                  Divide o intervalo em partes iguais
+    --------------------------------------------------------------------------*/
+    public CombinatorialRange[] split(int parts)
+        throws IllegalArgumentException
+    {
+        if (parts < 1) throw new IllegalArgumentException("Invalid parts.");
+
+        CombinatorialRange[] ranges = new CombinatorialRange[parts];
+
+        long size = to - from;
+        long start = from;
+        for (int i = 0; i < parts; i++)
+        {
+            long end = from + size / parts * (i + 1) +
+                       Math.min(i + 1, size % parts);
+            ranges[i] = new CombinatorialRange(this, start, end);
+            start = end;
+        }
+
+        return ranges;
+    }//fim de split()
+
+    /**
+     * Retorna um iterador sobre os arranjos do intervalo.
+     *
+     * @return Um iterador que comeca no arranjo de indice from e termina no de
+     * indice to - 1.
+     */
+    /*[06]----------------------------------------------------------------------
+    *              Retorna um iterador sobre os arranjos do intervalo
+    --------------------------------------------------------------------------*/
+    @Override
+    public RangeIterator iterator()
+    {
+        return new RangeIterator();
+    }//fim de iterator()
+
+    /**
+     * Retorna um Stream sequencial sobre os arranjos do intervalo, que pode ser
+     * tornado paralelo com parallel(). Veja {@link CombinatorialSpliterator}.
+     *
+     * @return Um Stream com os arranjos do intervalo, em ordem lexografica.
+     */
+    /*[07]----------------------------------------------------------------------
+    *               Retorna um Stream com os arranjos do intervalo
+    --------------------------------------------------------------------------*/
+    public Stream<int[]> stream()
+    {
+        return StreamSupport.stream
+        (
+            new CombinatorialSpliterator(this::newGenerator, from, to), false
+        );
+    }//fim de stream()
+
+    /**
+     * Grava o descritor em um arquivo de propriedades. O arquivo eh gravado
+     * primeiro com outro nome e depois renomeado, de forma que uma interrupcao
+     * durante a gravacao nao destroi um checkpoint anterior.
+     *
+     * @param file O arquivo.
+     *
+     * @throws IOException Se ocorrer erro de escrita.
+     */
+    /*[08]----------------------------------------------------------------------
+    *                Grava o descritor em um arquivo de texto
+    --------------------------------------------------------------------------*/
+    public void save(Path file)
+        throws IOException
+    {
+        Properties p = new Properties();
+        p.setProperty("type", type.name());
+        p.setProperty("n", Integer.toString(n));
+        p.setProperty("r", Integer.toString(r));
+        p.setProperty("frequency", (frequency == null) ? "" :
+                      Arrays.toString(frequency).replaceAll("[\\[\\] ]", ""));
+        p.setProperty("from", Long.toString(from));
+        p.setProperty("to", Long.toString(to));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8))
+        {
+            p.store(out, "CombinatorialRange");
+        }
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }//fim de save()
+
+    /**
+     * Le um descritor gravado por {@link #save(Path) } ou por
+     * {@link RangeIterator#checkpoint(Path) }.
+     *
+     * @param file O arquivo.
+     *
+     * @return O descritor gravado no arquivo.
+     *
+     * @throws IOException Se ocorrer erro de leitura ou se o arquivo nao
+     * descrever um intervalo valido.
+     */
+    /*[09]----------------------------------------------------------------------
+    *                 Le um descritor de um arquivo de texto
+    --------------------------------------------------------------------------*/
+    public static CombinatorialRange load(Path file)
+        throws IOException
+    {
+        Properties p = new Properties();
+
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            p.load(in);
+        }
+
+        try
+        {
+            Type type = Type.valueOf(p.getProperty("type"));
+            int r = Integer.parseInt(p.getProperty("r"));
+            long from = Long.parseLong(p.getProperty("from"));
+            long to = Long.parseLong(p.getProperty("to"));
+
+            if (!usesFrequency(type))
+                return new CombinatorialRange
+                (
+                    type, Integer.parseInt(p.getProperty("n")), r, from, to
+                );
+
+            int[] frequency = Arrays.stream(p.getProperty("frequency")
+                                             .split(","))
+                                    .mapToInt(Integer::parseInt)
+                                    .toArray();
+
+            return new CombinatorialRange(type, frequency, r, from, to);
+        }
+        catch (NullPointerException | IllegalArgumentException |
+               ArithmeticException e)
+        {
+            throw new IOException("Invalid range file: " + file, e);
+        }
+    }//fim de load()
+
+    /**
+     * O tipo de arranjo.
+     *
+     * @return O tipo de arranjo do intervalo.
+     */
+    /*[10]----------------------------------------------------------------------
+    *                       Retorna o tipo de arranjo
+    --------------------------------------------------------------------------*/
+    public Type getType()
+    {
+        return type;
+    }//fim de getType()
+
+    /**
+     * O indice do primeiro arranjo do intervalo.
+     *
+     * @return O limite inferior, inclusivo, do intervalo.
+     */
+    /*[11]----------------------------------------------------------------------
+    *              Retorna o indice do primeiro arranjo do intervalo
+    --------------------------------------------------------------------------*/
+    public long getFrom()
+    {
+        return from;
+    }//fim de getFrom()
+
+    /**
+     * O indice seguinte ao do ultimo arranjo do intervalo.
+     *
+     * @return O limite superior, exclusivo, do intervalo.
+     */
+    /*[12]----------------------------------------------------------------------
+    *          Retorna o indice seguinte ao do ultimo arranjo do intervalo
+    --------------------------------------------------------------------------*/
+    public long getTo()
+    {
+        return to;
+    }//fim de getTo()
+
+    /**
+     * Quantos arranjos ha no intervalo.
+     *
+     * @return to - from.
+     */
+    /*[13]----------------------------------------------------------------------
+    *                 Retorna quantos arranjos ha no intervalo
+    --------------------------------------------------------------------------*/
+    public long size()
+    {
+        return to - from;
+    }//fim de size()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return O tipo, n, r, a frequencia ( se houver ) e o intervalo.
+     */
+    /*[14]----------------------------------------------------------------------
+    *                 Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return type + " n=" + n + " r=" + r +
+               ((frequency == null) ? "" : " " + Arrays.toString(frequency)) +
+               " [" + from + ", " + to + ")";
+    }//fim de toString()
+
+    /**
+     * Um iterador sobre os arranjos de um intervalo, que sabe o indice do
+     * proximo arranjo e pode gravar o intervalo que ainda falta percorrer.
+     */
+    public final class RangeIterator implements Iterator<int[]>
+    {
+        private final Combinatorial generator;
+        private long index;
+
+        /*[01]------------------------------------------------------------------
+        *   Construtor. Posiciona um novo objeto Combinatorial no indice from
+        ----------------------------------------------------------------------*/
+        private RangeIterator()
+        {
+            generator = newGenerator();
+            generator.setNextIndex(from);
+            index = from;
+        }//fim de RangeIterator()
+
+        /**
+         * Informa se ainda ha arranjos no intervalo.
+         *
+         * @return true se o arranjo de indice to - 1 ainda nao foi entregue.
+         */
+        /*[02]------------------------------------------------------------------
+        *               Informa se ainda ha arranjos no intervalo
+        ----------------------------------------------------------------------*/
+        @Override
+        public boolean hasNext()
+        {
+            return index < to;
+        }//fim de hasNext()
+
+        /**
+         * Retorna, em um novo array, o proximo arranjo do intervalo.
+         *
+         * @return O arranjo de indice {@link #nextIndex() }.
+         *
+         * @throws NoSuchElementException Se nao houver mais arranjos.
+         */
+        /*[03]------------------------------------------------------------------
+        *                    Retorna o proximo arranjo
+        ----------------------------------------------------------------------*/
+        @Override
+        public int[] next()
+            throws NoSuchElementException
+        {
+            return nextView().clone();
+        }//fim de next()
+
+        /**
+         * Retorna o proximo arranjo do intervalo sem copia-lo. Veja
+         * {@link Combinatorial#nextSubSetView() }: o array nao deve ser
+         * alterado e eh sobrescrito pela proxima chamada.
+         *
+         * @return O arranjo de indice {@link #nextIndex() }.
+         *
+         * @throws NoSuchElementException Se nao houver mais arranjos.
+         */
+        /*[04]------------------------------------------------------------------
+        *            Retorna o proximo arranjo sem copia-lo
+        ----------------------------------------------------------------------*/
+        public int[] nextView()
+            throws NoSuchElementException
+        {
+            if (index >= to) throw new NoSuchElementException();
+
+            index++;
+            return generator.nextSubSetView();
+        }//fim de nextView()
+
+        /**
+         * O indice do proximo arranjo que sera entregue.
+         *
+         * @return O indice seguinte ao do ultimo arranjo entregue.
+         */
+        /*[05]------------------------------------------------------------------
+        *           Retorna o indice do proximo arranjo a ser entregue
+        ----------------------------------------------------------------------*/
+        public long nextIndex()
+        {
+            return index;
+        }//fim de nextIndex()
+
+        /**
+         * O intervalo que ainda falta percorrer.
+         *
+         * @return Um descritor do intervalo [nextIndex(), to).
+         */
+        /*[06]------------------------------------------------------------------
+        *            Retorna o intervalo que ainda falta percorrer
+        ----------------------------------------------------------------------*/
+        public CombinatorialRange remaining()
+        {
+            return new CombinatorialRange(CombinatorialRange.this, index, to);
+        }//fim de remaining()
+
+        /**
+         * Grava em um arquivo o intervalo que ainda falta percorrer, para que
+         * o trabalho possa ser retomado por
+         * {@link CombinatorialRange#load(Path) }. Deve ser chamado depois que
+         * o ultimo arranjo entregue tiver sido processado: os arranjos
+         * entregues depois do ultimo checkpoint serao entregues novamente se o
+         * trabalho for retomado.
+         *
+         * @param file O arquivo.
+         *
+         * @throws IOException Se ocorrer erro de escrita.
+         */
+        /*[07]------------------------------------------------------------------
+        *      Grava em um arquivo o intervalo que ainda falta percorrer
+        ----------------------------------------------------------------------*/
+        public void checkpoint(Path file)
+            throws IOException
+        {
+            remaining().save(file);
+        }//fim de checkpoint()
+
+    }//fim da classe RangeIterator
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     *
+     * @throws IOException Se nao for possivel gravar o checkpoint.
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        CombinatorialRange all = new CombinatorialRange(Type.COMBINATION,
+                                                        10, 4, 0, -1);
+        for (CombinatorialRange range : all.split(4)) System.out.println(range);
+
+        /*
+        Percorre a parte 2, simulando uma interrupcao apos um checkpoint, e
+        retoma o trabalho a partir do arquivo.
+        */
+        Path file = Files.createTempFile("range", ".properties");
+
+        CombinatorialRange.RangeIterator it = all.split(4)[2].iterator();
+        for (int i = 0; i < 20; i++)
+        {
+            System.out.println(it.nextIndex() + " " + Arrays.toString(it.next()));
+            if (i == 9) it.checkpoint(file);
+        }
+
+        System.out.println("\n" + new String(Files.readAllBytes(file),
+                                             StandardCharsets.UTF_8));
+
+        CombinatorialRange resumed = CombinatorialRange.load(file);
+        System.out.println("Retomando " + resumed);
+        for (it = resumed.iterator(); it.hasNext(); )
+            System.out.println(it.nextIndex() + " " + Arrays.toString(it.next()));
+
+        Files.delete(file);
+
+    }//fim de main()
+
+}//fim da classe CombinatorialRange
@@ -0,0 +1,316 @@
+/*arquivo CombinatorialSpliterator.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Um Spliterator que percorre, em ordem lexografica, os arranjos de indices
+ * [from, to) de um objeto Combinatorial, e que pode ser dividido para que
+ * estes arranjos sejam processados em paralelo.
+ * <p>
+ * A divisao eh feita por intervalos de indices. Como um objeto Combinatorial
+ * guarda o estado do ultimo arranjo gerado, cada parte recebe seu proprio
+ * objeto, criado pela Supplier passada ao construtor e posicionado no inicio
+ * do seu intervalo por {@link Combinatorial#setNextIndex(long) }. A partir dai
+ * os arranjos sao gerados por {@link Combinatorial#nextSubSet() }, sem
+ * necessidade de sincronizacao entre as threads.
+ * <p>
+ * Exemplo: conta, em paralelo, as combinacoes 30C10 cuja soma eh 145
+ * <pre>
+ * {@code
+ * long count = Combination.stream(30, 10).parallel()
+ *                         .filter(c -> Arrays.stream(c).sum() == 145)
+ *                         .count();
+ * }
+ * </pre>
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class CombinatorialSpliterator implements Spliterator<int[]>
+{
+    /*
+    Intervalos com menos arranjos que este valor nao sao divididos: o custo de
+    criar e posicionar um novo objeto Combinatorial nao compensaria.
+    */
+    private static final long MIN_SPLIT = 1024;
+
+    /*
+    Cria um novo objeto Combinatorial para cada parte obtida por trySplit().
+    */
+    private final Supplier<? extends Combinatorial> factory;
+
+    /*
+    O proximo indice a ser percorrido e o fim ( exclusivo ) do intervalo.
+    */
+    private long index;
+    private final long end;
+
+    /*
+    O objeto que gera os arranjos deste intervalo. Eh criado apenas quando
+    necessario e soh estah posicionado em index se positioned for true.
+    */
+    private Combinatorial generator;
+    private boolean positioned;
+
+    /**
+     * Cria um Spliterator sobre todos os arranjos gerados pelos objetos de
+     * factory.
+     *
+     * @param factory Cria objetos Combinatorial identicos, um para cada parte
+     * em que o Spliterator for dividido.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public CombinatorialSpliterator(Supplier<? extends Combinatorial> factory)
+    {
+        this.factory = factory;
+        generator = factory.get();
+        positioned = true;
+        index = 0;
+        end = generator.getNumberOfSubSets();
+    }//fim de CombinatorialSpliterator()
+
+    /**
+     * Cria um Spliterator sobre os arranjos de indices [from, to).
+     *
+     * @param factory Cria objetos Combinatorial identicos, um para cada parte
+     * em que o Spliterator for dividido.
+     * @param from O indice do primeiro arranjo.
+     * @param to O indice seguinte ao do ultimo arranjo.
+     *
+     * @throws IllegalArgumentException Se o intervalo nao estiver contido em
+     * [0, getNumberOfSubSets()].
+     */
+    /*[01B]---------------------------------------------------------------------
+    *            Construtor de um Spliterator sobre um intervalo
+    --------------------------------------------------------------------------*/
+    public CombinatorialSpliterator
+    (
+        Supplier<? extends Combinatorial> factory,
+        long from,
+        long to
+    )
+        throws IllegalArgumentException
+    {
+        this.factory = factory;
+        generator = factory.get();
+
+        if ((from < 0) || (to < from) || (to > generator.getNumberOfSubSets()))
+            throw new IllegalArgumentException("Invalid range.");
+
+        positioned = (from == 0);
+        index = from;
+        end = to;
+    }//fim de CombinatorialSpliterator()
+
+    /*[02]----------------------------------------------------------------------
+    *   Construtor private usado por trySplit(). Cria um Spliterator sobre os
+    *   arranjos de parent de indices [parent.index, to). O objeto
+    *   Combinatorial soh serah criado se a parte for percorrida.
+    --------------------------------------------------------------------------*/
+    private CombinatorialSpliterator(CombinatorialSpliterator parent, long to)
+    {
+        factory = parent.factory;
+        generator = null;
+        positioned = false;
+        index = parent.index;
+        end = to;
+    }//fim de CombinatorialSpliterator()
+
+    /*[03]----------------------------------------------------------------------
+    *   Retorna o objeto Combinatorial posicionado no arranjo de indice index
+    --------------------------------------------------------------------------*/
+    private Combinatorial generator()
+    {
+        if (generator == null) generator = factory.get();
+
+        if (!positioned)
+        {
+            generator.setNextIndex(index);
+            positioned = true;
+        }
+
+        return generator;
+    }//fim de generator()
+
+    /**
+     * Entrega a action o proximo arranjo do intervalo, em um novo array.
+     *
+     * @param action A acao executada sobre o arranjo.
+     *
+     * @return false se todos os arranjos do intervalo jah foram percorridos.
+     */
+    /*[04]----------------------------------------------------------------------
+    *               Entrega a action o proximo arranjo
+    --------------------------------------------------------------------------*/
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action)
+    {
+        if (index >= end) return false;
+
+        int[] subSet = generator().nextSubSet();
+        index++;
+        action.accept(subSet);
+        return true;
+    }//fim de tryAdvance()
+
+    /**
+     * Entrega a action, cada um em um novo array, todos os arranjos restantes
+     * do intervalo.
+     *
+     * @param action A acao executada sobre cada arranjo.
+     */
+    /*[05]----------------------------------------------------------------------
+    *           Entrega a action todos os arranjos restantes
+    --------------------------------------------------------------------------*/
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action)
+    {
+        if (index >= end) return;
+
+        Combinatorial c = generator();
+        long count = end - index;
+        index = end;
+
+        for (long i = 0; i < count; i++) action.accept(c.nextSubSet());
+    }//fim de forEachRemaining()
+
+    /**
+     * Entrega a action todos os arranjos restantes do intervalo sem criar
+     * nenhum array: a action recebe sempre o mesmo array, obtido por
+     * {@link Combinatorial#nextSubSetView() }, que eh sobrescrito pelo arranjo
+     * seguinte assim que ela retorna. A action nao deve, portanto, alterar o
+     * array nem guardar uma referencia a ele.
+     *
+     * @param action A acao executada sobre cada arranjo.
+     */
+    /*[05B]---------------------------------------------------------------------
+    *   Entrega a action todos os arranjos restantes, sem criar arrays
+    --------------------------------------------------------------------------*/
+    public void forEachRemainingView(Consumer<? super int[]> action)
+    {
+        if (index >= end) return;
+
+        Combinatorial c = generator();
+        long count = end - index;
+        index = end;
+
+        for (long i = 0; i < count; i++) action.accept(c.nextSubSetView());
+    }//fim de forEachRemainingView()
+
+    /**
+     * Divide o intervalo ao meio. A primeira metade eh retornada em um novo
+     * Spliterator e este passa a percorrer a segunda metade.
+     *
+     * @return Um Spliterator sobre a primeira metade dos arranjos restantes,
+     * ou null se restarem poucos arranjos para que a divisao compense.
+     */
+    /*[06]----------------------------------------------------------------------
+    *                      Divide o intervalo ao meio
+    --------------------------------------------------------------------------*/
+    @Override
+    public Spliterator<int[]> trySplit()
+    {
+        long remaining = end - index;
+        if (remaining < 2 * MIN_SPLIT) return null;
+
+        long middle = index + remaining / 2;
+
+        CombinatorialSpliterator prefix =
+            new CombinatorialSpliterator(this, middle);
+
+        index = middle;
+        positioned = false;
+
+        return prefix;
+    }//fim de trySplit()
+
+    /**
+     * Quantos arranjos ainda restam no intervalo.
+     *
+     * @return O numero exato de arranjos restantes.
+     */
+    /*[07]----------------------------------------------------------------------
+    *            Retorna quantos arranjos restam no intervalo
+    --------------------------------------------------------------------------*/
+    @Override
+    public long estimateSize()
+    {
+        return end - index;
+    }//fim de estimateSize()
+
+    /**
+     * As caracteristicas deste Spliterator.
+     *
+     * @return ORDERED, SIZED, SUBSIZED e NONNULL.
+     */
+    /*[08]----------------------------------------------------------------------
+    *               Retorna as caracteristicas do Spliterator
+    --------------------------------------------------------------------------*/
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }//fim de characteristics()
+
+    /**
+     * Cria um Stream sequencial sobre todos os arranjos gerados pelos objetos
+     * de factory. Use parallel() para processa-los em paralelo.
+     *
+     * @param factory Cria objetos Combinatorial identicos.
+     *
+     * @return Um Stream com todos os arranjos, em ordem lexografica.
+     */
+    /*[09]----------------------------------------------------------------------
+    *          Retorna um Stream sobre os arranjos de um Combinatorial
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(Supplier<? extends Combinatorial> factory)
+    {
+        return StreamSupport.stream(new CombinatorialSpliterator(factory),
+                                    false);
+    }//fim de stream()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        for (int rep = 0; rep < 2; rep++)
+        {
+            boolean parallel = (rep == 1);
+
+            long t = System.currentTimeMillis();
+
+            Stream<int[]> s = Combination.stream(30, 10);
+            if (parallel) s = s.parallel();
+
+            long count = s.filter(c -> java.util.Arrays.stream(c).sum() == 145)
+                          .count();
+
+            System.out.println((parallel ? "parallel  " : "sequential") +
+                               " : " + count + " combinacoes 30C10 com soma " +
+                               "145 em " + (System.currentTimeMillis() - t) +
+                               " milseg");
+        }
+
+        /*
+        A ordem dos arranjos eh preservada mesmo em paralelo.
+        */
+        int[][] all = Permutation.stream(5, 5).parallel()
+                                 .toArray(int[][]::new);
+        System.out.println(all.length + " permutacoes 5P5. A de indice 77 eh " +
+                           java.util.Arrays.toString(all[77]) + " = " +
+                           java.util.Arrays.toString(
+                               new Permutation(5, 5).getSubSet(77)));
+
+    }//fim de main()
+
+}//fim da classe CombinatorialSpliterator
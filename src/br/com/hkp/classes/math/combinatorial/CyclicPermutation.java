@@ -3,6 +3,7 @@ package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * Esta classe estende Permutation para que seus objetos sejam interpretados 
@@ -23,12 +24,15 @@ public final class CyclicPermutation extends Permutation
      * @param r Quantos elementos em cada permutacao.
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @throws ArithmeticException Se o numero de permutacoes circulares nao
+     * couber em um long.
      */
     /*[01]----------------------------------------------------------------------
     *                       Construtor da classe
     --------------------------------------------------------------------------*/
     public CyclicPermutation(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         super(n,r,XMath.nCPr(n, r));
         
@@ -154,6 +158,13 @@ public final class CyclicPermutation extends Permutation
               
         int n = setCardinality - 1; 
         int r = subSetCardinality - 1;
+        
+        /*
+        As permutacoes circulares que comecam pelo elemento f sao
+        C(n - f, r) * r!, onde r! = numberOfSubSets / C(n + 1, r + 1).
+        */
+        long rFactorial = getNumberOfSubSets() /
+                          BinomialTable.get(setCardinality, subSetCardinality);
  
         subSet[0] = -1;
 
@@ -163,23 +174,113 @@ public final class CyclicPermutation extends Permutation
         {
             subSet[0]++;
             subSetIndex -= nPr;
-            nPr = XMath.nPr(n - subSet[0], r);
+            nPr = BinomialTable.get(n - subSet[0], r) * rFactorial;
             
         }while(subSetIndex - nPr >= 0);
-
-        int[] s = new Permutation(n - subSet[0], r).getSubSet(subSetIndex);
-             
-        int plus = subSet[0] + 1;
         
-        for (int i = 1; i < subSetCardinality; i++)
-            subSet[i] = s[i - 1] + plus;
-        
-        return subSet;
+        /*
+        Os elementos seguintes formam a permutacao de indice subSetIndex dos
+        elementos maiores que subSet[0].
+        */
+        return lehmerUnrank(subSetIndex, n - subSet[0], subSet, 1,
+                            subSet[0] + 1);
      
     }//fim de getSubSet()
    
    
     
+    /**
+     * Ajusta o indice da proxima permutacao circular que sera gerada quando for
+     * chamado o metodo nextSubSet().
+     * 
+     * @param next O indice da proxima permutacao retornada pelo metodo
+     * nextSubSet(). Indices invalidos fora do intervalo
+     * [0, numberOfSubSets - 1] serao ignorados.
+     */
+    /*[04B]---------------------------------------------------------------------
+    *       Ajusta qual serah a proxima permutacao retornada pelo metodo
+    *       nextSubSet()
+    --------------------------------------------------------------------------*/
+    @Override
+    public void setNextIndex(long next)
+    {
+        super.setNextIndex(next);
+        
+        /*
+        changeCurrentSubSetAtIPos() e updateCurrentSubSetAfterIPos() contam
+        que os elementos menores que o primeiro da permutacao corrente estejam
+        indisponiveis, pois nenhuma permutacao circular seguinte pode conte-los.
+        Mas o metodo da superclasse os marca como disponiveis.
+        */
+        if (subSetCardinality > 0)
+            Arrays.fill(currentAvailables, 0, currentSubSet[0], 0);
+    }//fim de setNextIndex()
+    
+    /**
+     * Retorna um Stream sequencial com todas as permutacoes circulares de n
+     * elementos tomados r a r, em ordem lexografica. Se tornado paralelo com
+     * parallel(), as permutacoes circulares sao divididas em intervalos de
+     * indices e cada intervalo eh gerado por um objeto CyclicPermutation
+     * proprio. Veja {@link CombinatorialSpliterator}.
+     *
+     * @param n A cardinalidade do conjunto.
+     * @param r A cardinalidade de cada subconjunto.
+     *
+     * @return Um Stream com as permutacoes circulares.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor
+     * {@link #CyclicPermutation(int, int) }.
+     *
+     * @throws ArithmeticException Se o numero de permutacoes circulares nao
+     * couber em um long.
+     */
+    /*[05]----------------------------------------------------------------------
+    *             Retorna um Stream com as permutacoes circulares
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int n, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        return CombinatorialSpliterator.stream
+        (
+            () -> new CyclicPermutation(n, r)
+        );
+    }//fim de stream()
+    
+    /*[06]----------------------------------------------------------------------
+    *   Retorna o indice lexografico de uma permutacao circular. Chamado pelos
+    *   metodos rank() herdados de Permutation.
+    *
+    *   Na forma em que sao geradas, as permutacoes circulares comecam pelo
+    *   menor dos seus elementos. As que comecam por um elemento f menor que 
+    *   subSet[0] sao, somando de f = 0 ateh subSet[0] - 1, 
+    *   (C(n, r) - C(n - subSet[0], r)) * (r - 1)!. A estas se soma o indice 
+    *   dos elementos seguintes como uma permutacao dos elementos maiores que
+    *   subSet[0].
+    --------------------------------------------------------------------------*/
+    @Override
+    long rank(int[] subSet, FenwickTree tree)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != subSetCardinality) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        if (subSetCardinality == 0) return 0;
+        
+        int first = subSet[0];
+        
+        if ((first < 0) || (first > firstElementMaxValue)) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        long nCr = BinomialTable.get(setCardinality, subSetCardinality);
+        
+        long index = (nCr - BinomialTable.get(setCardinality - first, 
+                                              subSetCardinality)) *
+                     (getNumberOfSubSets() / nCr);
+        
+        return index + lehmerRank(subSet, 1, first + 1, 
+                                  setCardinality - first - 1, tree);
+    }//fim de rank()
+    
     /**
      * Um teste exemplificando usos da classe
      * 
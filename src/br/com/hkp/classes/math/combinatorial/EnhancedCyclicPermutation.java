@@ -3,28 +3,69 @@ package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * Permutacoes circulares dos elementos de um conjunto que permite elementos 
  * repetidos.
+ * <p>
+ * Cada permutacao circular eh representada pela sua rotacao de menor ordem
+ * lexografica, e {@link #nextSubSet() } as gera em ordem lexografica crescente
+ * destes representantes, com indices no intervalo
+ * [0, {@link #getNumberOfSubSets() } - 1].
+ * <p>
+ * {@link #getSubSet(long) }, {@link #rank(int[]) } e
+ * {@link #setNextIndex(long) } nao percorrem as permutacoes que antecedem o
+ * indice. Se nenhum elemento puder se repetir, as permutacoes circulares sao
+ * as de {@link CyclicPermutation} sobre os elementos presentes, e sao obtidas
+ * pelo codigo de Lehmer, como naquela classe. Senao, cada elemento da
+ * permutacao eh escolhido contando quantas permutacoes circulares comecam por
+ * um prefixo menor, pela mesma soma sobre os divisores de r que
+ * {@link XMath#nCPr(int[], int) } usa, restrita ao prefixo. O custo nao
+ * depende do numero de permutacoes, mas do numero de combinacoes de
+ * quantidades de cada elemento, o produto das frequencias mais 1. Por isso as
+ * permutacoes circulares podem ser divididas em intervalos para processamento
+ * paralelo ( veja {@link #stream(int[], int) } e {@link CombinatorialRange} ).
  * 
  * @author Hugo Kaulino Pereira
  * @since 24 de setembro de 2018
  */
-public class EnhancedCyclicPermutation 
+public class EnhancedCyclicPermutation extends Combinatorial
 {
     /*
-    A classe usa um objeto EnhancedPermutation que possui metodos para retornar
-    todas as permutacoes obtiveis de um  conjunto C que pode ter elementos 
-    repetidos, para extrair todas as permutacoes circulares desse mesmo 
-    conjunto. Jah que este conjunto de todas as permutacoes circulares eh um
-    subconjunto de todas as permutacoes nao circulares que se pode obter deste
-    conjunto C definido na chamada do construtor da classe.
+    As permutacoes circulares sao geradas diretamente na forma normalizada: o
+    representante de cada uma eh a rotacao de menor ordem lexografica, um
+    "colar" ( necklace ). Todo prefixo de um colar eh um pre-colar, e os
+    pre-colares formam uma arvore em que os filhos de a[0..t-1], de periodo p,
+    sao os elementos j >= a[t - p]: se j = a[t - p] o periodo continua p, se
+    for maior passa a ser t + 1. Um pre-colar de tamanho r eh um colar quando
+    r eh multiplo do seu periodo ( algoritmo de Fredricksen, Kessler e Maiorana
+    ). search() percorre esta arvore em profundidade, sem recursao, usando
+    apenas os elementos ainda disponiveis.
+
+    period[t] eh o periodo do prefixo currentSubSet[0..t]. Eh criado por
+    Initializer(), pois setNextIndex() o usa jah no construtor de
+    Combinatorial.
     */
-    private final EnhancedPermutation ep;
-    
-    private final long numberOfSubSets;
-  
+    private int[] period;
+
+    /*
+    Se nenhum elemento puder se repetir, element tem os elementos presentes em
+    ordem crescente, e distinct gera as permutacoes circulares das suas
+    posicoes em element. Senao counter conta as permutacoes circulares por
+    prefixo. Tambem sao criados por Initializer().
+    */
+    private int[] element;
+    private CyclicPermutation distinct;
+    private NecklaceCounter counter;
+
+    /*
+    Em getSubSet(), se subSetIndex estiver a menos que este numero de
+    permutacoes do inicio do bloco do prefixo jah escolhido, as permutacoes
+    sao percorridas por search() em vez de divididas por contagens.
+    */
+    private static final long WALK_LIMIT = 4096;
+
     /**
      * Inicializa um objeto EnhancedCyclicPermutation
      * 
@@ -42,107 +83,475 @@ public class EnhancedCyclicPermutation
      * @param r Quantos elementos em cada permutacao.
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @throws ArithmeticException Se o numero de permutacoes circulares nao
+     * couber em um long.
      */
     /*[01]----------------------------------------------------------------------
     *                       Construtor da classe
     --------------------------------------------------------------------------*/
     public EnhancedCyclicPermutation(int[] elementsFrequency, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
-        
-        ep = new EnhancedPermutation(elementsFrequency, r);
-        
-        numberOfSubSets = XMath.nCPr(elementsFrequency, r);
-               
+        /*
+        nCPr() troca por 0 as frequencias negativas do array que recebe, e por
+        isso recebe uma copia. A de Combinatorial tambem nao deve te-las.
+        */
+        super
+        (
+            nonNegative(elementsFrequency), r,
+            XMath.nCPr(elementsFrequency.clone(), r)
+        );
+
     }//fim do construtor EnhancedCyclicPermutation
     
-    /**
-     * O numero total de permutacoes circulares extraidas de um conjunto que
-     * pode ter elementos repetidos, e que foi definido na chamada do construtor
-     * desta classe, eh obtido com a chamada a este metodo.
-     * 
-     * @return O numero total de permutacoes circulares que podem ser obtidas
-     * do conjunto definido no construtor da classe.
-     */
-    /*[02]----------------------------------------------------------------------
-    *               Retorna a numero de permutacoes ciclicas possiveis
+    /*[01B]---------------------------------------------------------------------
+    *   Cria o array usado por setNextIndex() e nextSubSet(), e o objeto que
+    *   getSubSet() e rank() usam para contar as permutacoes circulares
     --------------------------------------------------------------------------*/
-    public long getNumberOfSubSets()
+    @Override
+    protected void Initializer()
     {
-        return numberOfSubSets;
-    }//fim de getNumberOfSubSets()
+        period = new int[subSetCardinality];
+
+        if (subSetCardinality == 0) return;
+
+        if (Arrays.stream(frequency).allMatch(f -> f <= 1))
+        {
+            element = new int[XMath.sum(frequency)];
+            for (int e = 0, k = 0; e < frequency.length; e++)
+                if (frequency[e] == 1) element[k++] = e;
+
+            distinct = new CyclicPermutation(element.length, subSetCardinality);
+        }
+        else
+            counter = new NecklaceCounter(frequency, subSetCardinality);
+    }//fim de Initializer()
+    
+    /*[01C]---------------------------------------------------------------------
+    *   Retorna uma copia de frequency com os valores negativos trocados por 0
+    --------------------------------------------------------------------------*/
+    private static int[] nonNegative(int[] frequency)
+    {
+        return Arrays.stream(frequency).map(f -> Math.max(f, 0)).toArray();
+    }//fim de nonNegative()
     
     /**
      * Chamar este metodo faz com que a proxima permutacao ciclica gerada por
-     * {@link #nextSubSet() } seja a de indice 0.
+     * {@link #nextSubSet() } seja a de indice 0. O mesmo que
+     * setNextIndex(0).
      */
-    /*[03]----------------------------------------------------------------------
+    /*[02]----------------------------------------------------------------------
     *        Reseta nextSubSet() para a permutacao de indice 0
     --------------------------------------------------------------------------*/
     public void reset()
     {
-        ep.setNextIndex(0);
+        setNextIndex(0);
     }//fim de reset()
     
+    /*[03]----------------------------------------------------------------------
+    *   Gera a permutacao circular sucessora. Como a busca pelo proximo colar
+    *   nao segue a regra de Combinatorial ( a ultima posicao que pode ser
+    *   incrementada ), toda a atualizacao eh feita na primeira chamada, com
+    *   i = r - 1, e o metodo sempre retorna true.
+    --------------------------------------------------------------------------*/
+    @Override
+    protected boolean changeCurrentSubSetAtIPos(int i)
+    {
+        int[] a = currentSubSet;
+        int last = subSetCardinality - 1;
+        
+        /*
+        A de indice 0 eh sempre buscada do zero. A busca a partir da ultima
+        terminaria no mesmo ponto, mas soh depois de percorrer todos os
+        pre-colares posteriores a ela, que nao se completam. E depois de
+        setNextIndex(0) a permutacao corrente nem eh a ultima ( veja
+        subSetBefore() ).
+        */
+        if ((getNextIndex() == 1) || (getNumberOfSubSets() == 1))
+        {
+            for (int e : a) currentAvailables[e]++;
+            search(a, period, currentAvailables, 0, 0, 0);
+            return true;
+        }
+        
+        currentAvailables[a[last]]++;
+        search(a, period, currentAvailables, last, a[last] + 1, 0);
+        
+        return true;
+    }//fim de changeCurrentSubSetAtIPos()
+    
+    /*[03B]---------------------------------------------------------------------
+    *   Nada a fazer: changeCurrentSubSetAtIPos() jah gerou toda a permutacao
+    --------------------------------------------------------------------------*/
+    @Override
+    protected void updateCurrentSubSetAfterIPos(int i)
+    {
+        
+    }//fim de updateCurrentSubSetAfterIPos()
+    
+    /*[03C]---------------------------------------------------------------------
+    *   Continua a busca em profundidade pelo proximo colar em a, tentando na
+    *   posicao t os elementos a partir de from. Os elementos das posicoes
+    *   anteriores a t jah devem ter sido descontados de availables. Retorna
+    *   false se nao houver mais colares com o prefixo a[0..stop-1]: neste caso
+    *   os elementos das posicoes a partir de stop foram devolvidos a
+    *   availables.
+    --------------------------------------------------------------------------*/
+    private static boolean search(int[] a, int[] period, int[] availables,
+                                  int t, int from, int stop)
+    {
+        int r = a.length;
+        
+        while (t >= stop)
+        {
+            int j = from;
+            while ((j < availables.length) && (availables[j] == 0)) j++;
+
+            /*
+            Nenhum elemento de um colar eh menor que o primeiro: a[0] = j soh
+            serve se houver ao menos r elementos disponiveis a partir de j, e
+            se nao houver tambem nao havera para os maiores.
+            */
+            if ((t == 0) && (j < availables.length))
+            {
+                int atLeastJ = 0;
+                for (int i = j; i < availables.length; i++)
+                    atLeastJ += availables[i];
+                if (atLeastJ < r) return false;
+            }
+
+            if (j == availables.length)
+            {
+                //nenhum elemento cabe na posicao t: volta a posicao anterior
+                if (--t >= stop)
+                {
+                    availables[a[t]]++;
+                    from = a[t] + 1;
+                }
+                continue;
+            }
+
+            a[t] = j;
+            availables[j]--;
+
+            if (t == 0)
+                period[0] = 1;
+            else if (j == a[t - period[t - 1]])
+                period[t] = period[t - 1];
+            else
+                period[t] = t + 1;
+
+            if (t < r - 1)
+            {
+                t++;
+                from = a[t - period[t - 1]];
+            }
+            else if (r % period[t] == 0)
+                return true;
+            else
+            {
+                //eh um pre-colar mas nao um colar: tenta o proximo elemento
+                availables[j]++;
+                from = j + 1;
+            }
+        }//fim do while
+        
+        return false;
+    }//fim de search()
+    
+    /*[04]----------------------------------------------------------------------
+    *   Retorna quantas permutacoes circulares comecam por um elemento menor
+    *   que first. O representante de cada uma comeca pelo seu menor elemento,
+    *   entao as demais sao as que soh usam elementos maiores ou iguais a
+    *   first, e sao contadas diretamente por nCPr().
+    --------------------------------------------------------------------------*/
+    private long countBefore(int first)
+    {
+        int[] f = frequency.clone();
+        Arrays.fill(f, 0, first, 0);
+        
+        long atLeastFirst =
+            (XMath.sum(f) < subSetCardinality) ? 0 :
+            XMath.nCPr(f, subSetCardinality);
+        
+        return getNumberOfSubSets() - atLeastFirst;
+    }//fim de countBefore()
+    
+    /*[04B]---------------------------------------------------------------------
+    *   Retorna quantas permutacoes circulares tem os primeiros t + 1
+    *   elementos menores que a[0..t-1] seguido de j. Altera a[t].
+    --------------------------------------------------------------------------*/
+    private long countBelow(int[] a, int t, int j)
+    {
+        a[t] = j;
+        
+        if (t == 0) return countBefore(j);
+        
+        return getNumberOfSubSets() - counter.countNotBelow(a, t + 1);
+    }//fim de countBelow()
+    
     /**
-     * Este metodo retorna sucessivamente permutacoes circulares dos elementos
-     * de um conjunto ( definido no construtor da classe ) que pode conter 
-     * elementos repetidos. Quando chamado pela 1 vez o metodo retorna a 
-     * permutacao de indice 0, e depois sempre a permutacao lexograficamente
-     * sucessora da permutacao previamente gerada. Sendo a ultima permutacao,
-     * a de indice {@link #getNumberOfSubSets() - 1}, predecessora da permutacao
-     * de indice 0.
+     * Calcula e retorna a permutacao circular de indice subSetIndex, com
+     * indices no intervalo [0, {@link #getNumberOfSubSets() } - 1]. Cada
+     * elemento eh escolhido por uma busca binaria entre os candidatos, cada
+     * passo contando quantas permutacoes comecam por um prefixo menor, ateh
+     * que o indice esteja perto da primeira permutacao com o prefixo jah
+     * escolhido, e as permutacoes sao entao percorridas a partir dela. Se nenhum elemento puder se
+     * repetir, o custo eh o de
+     * {@link CyclicPermutation#getSubSet(long) }.
+     * 
+     * @param subSetIndex O indice da permutacao. Nenhuma checagem eh feita.
+     * Portanto deve ser verificado antes se o indice passado ao metodo eh
+     * valido, caso contrario o resultado retornado serah incorreto.
      * 
-     * @return A permutacao circular lexograficamente sucessora da ultima 
-     * permutacao circular gerada por este metodo. Quando chamado pela 1 vez
-     * este metodo retorna a permutacao de indice 0 (lexograficamente de menor
-     * ordem). Se o metodo retornou a ultima permutacao circular, a 
-     * lexograficamente de maior ordem, entao a proxima permutacao a ser gerada
-     * por este metodo sera a de indice 0.
+     * @return A permutacao circular de indice subSetIndex, na forma da sua
+     * rotacao de menor ordem lexografica.
      */
-    /*[04]----------------------------------------------------------------------
-    *      Retorna permutacoes em ordem lexografica crescente. filtrando
-    *      qualquer permutacao que represente uma permutacao circular que 
-    *      já tenha sido retornada pelo  metodo, a partir da de indice
-    *      zero, e que embora sendo uma permutacao simples distinta, indique
-    *      alguma permutacao circular que jah foi gerada por outra permutacao
-    *      simples neste metodo. 
+    /*[05]----------------------------------------------------------------------
+    *                 Retorna uma enesima permutacao circular
     --------------------------------------------------------------------------*/
-    public int[] nextSubSet()
+    @Override
+    public int[] getSubSet(long subSetIndex)
     {
+        if (subSetCardinality == 0) return EMPTY_SET;
+        
+        if (distinct != null)
+        {
+            int[] a = distinct.getSubSet(subSetIndex);
+            for (int i = 0; i < a.length; i++) a[i] = element[a[i]];
+            return a;
+        }
+        
+        int[] a = new int[subSetCardinality];
+        int[] availables = frequency.clone();
+        
+        int[] candidates = new int[availables.length];
+        int[] pr = new int[subSetCardinality];
+        
         /*
-        Uma permutacao circular com r elementos pode estar representada em 
-        varias permutacoes simples de r elementos. A ideia deste metodo eh
-        gerar uma permutacao simples e verificar se esta permutacao pode ser
-        "normalizada", isto eh, se pode se pode ser rearranjada de forma a ser
-        a mesma permutacao circular, porem representada por uma permutacao 
-        simples de ordem lexografica menor. Se isto for possivel o metodo 
-        descarta esta permutacao, pois como as permutacoes simples sao geradas
-        em ordem lexograficamente crescente, isto significaria que esta 
-        permutacao circular jah teria sido gerada pelo metodo, apresentada por 
-        uma outra permutacao simples mas de ordem lexografica menor que a gerada
-        na atual chamada deste metodo.
-        Dessa forma, filtrando todas as permutacoes simples que representem
-        todas as permutacoes circulares que jah tenham sido geradas previamente
-        por chamadas previas deste metodo, nextSubSet() ira gerar todas as 
-        permutacoes circulares possiveis em sequencia lexografica crescente,
-        podem sem repetir arranjos que representem permutacoes circulares
-        ja geradas na forma de alguma outra permutacao simples diferente. Mas 
-        que no entanto eh a mesma permutacao circular que serah descartada 
-        na chamada atual deste metodo.
+        As permutacoes cujo representante tem o prefixo a[0..t-1] sao as de
+        indices em [start, end).
         */
+        long start = 0;
+        long end = getNumberOfSubSets();
+        
+        for (int t = 0; t < subSetCardinality; t++)
+        {
+            int lowerBound = (t == 0) ? 0 : a[t - pr[t - 1]];
+            
+            /*
+            Se subSetIndex estiver perto do inicio do bloco eh mais barato
+            percorrer as permutacoes a partir da primeira do que contar as de
+            cada candidato.
+            */
+            if (subSetIndex - start < WALK_LIMIT)
+            {
+                search(a, pr, availables, t, lowerBound, t);
+                for (long k = start; k < subSetIndex; k++)
+                {
+                    availables[a[subSetCardinality - 1]]++;
+                    search
+                    (
+                        a, pr, availables, subSetCardinality - 1,
+                        a[subSetCardinality - 1] + 1, t
+                    );
+                }
+                return a;
+            }
+            
+            /*
+            Num colar, a[t] nao pode ser menor que a[t - p]. Entre os
+            elementos disponiveis a partir dele, a[t] eh o maior j para o qual
+            as permutacoes com prefixo menor que a[0..t-1] seguido de j nao
+            passam de subSetIndex.
+            */
+            int count = 0;
+            for (int j = lowerBound; j < availables.length; j++)
+                if (availables[j] > 0) candidates[count++] = j;
+            
+            int low = 0;
+            int high = count - 1;
+            while (low < high)
+            {
+                int middle = (low + high + 1) >>> 1;
+                long below = countBelow(a, t, candidates[middle]);
+                if (below <= subSetIndex)
+                {
+                    low = middle;
+                    start = below;
+                }
+                else
+                {
+                    high = middle - 1;
+                    end = below;
+                }
+            }
+            
+            int j = candidates[low];
+            a[t] = j;
+            availables[j]--;
+            
+            if (t == 0)
+                pr[0] = 1;
+            else if (j == a[t - pr[t - 1]])
+                pr[t] = pr[t - 1];
+            else
+                pr[t] = t + 1;
+        }
+        
+        return a;
+    }//fim de getSubSet()
+    
+    /**
+     * Ajusta o indice da proxima permutacao circular que sera gerada quando for
+     * chamado o metodo nextSubSet(). O custo eh o de
+     * {@link #getSubSet(long) }, que nao percorre as permutacoes anteriores, e
+     * para next = 0 nenhuma contagem eh feita.
+     * 
+     * @param next O indice da proxima permutacao retornada pelo metodo
+     * nextSubSet(). Indices invalidos fora do intervalo
+     * [0, numberOfSubSets - 1] serao ignorados.
+     */
+    /*[06]----------------------------------------------------------------------
+    *       Ajusta qual serah a proxima permutacao retornada pelo metodo
+    *       nextSubSet()
+    --------------------------------------------------------------------------*/
+    @Override
+    public void setNextIndex(long next)
+    {
+        super.setNextIndex(next);
+        
+        int[] a = currentSubSet;
+        
+        for (int t = 0; t < subSetCardinality; t++)
+            period[t] = ((t == 0) || (a[t] != a[t - period[t - 1]])) ?
+                        t + 1 : period[t - 1];
+    }//fim de setNextIndex()
+    
+    /*[06B]---------------------------------------------------------------------
+    *   Retorna a permutacao a partir da qual nextSubSet() gera a de indice
+    *   next. Para next = 0 nao eh preciso calcular a ultima:
+    *   changeCurrentSubSetAtIPos() recomeca a busca do zero quando gera a de
+    *   indice 0, entao basta qualquer permutacao valida, e a primeira sai de
+    *   search() sem nenhuma contagem.
+    --------------------------------------------------------------------------*/
+    @Override
+    protected int[] subSetBefore(long next)
+    {
+        if ((next > 0) || (subSetCardinality == 0))
+            return super.subSetBefore(next);
+        
+        int[] a = new int[subSetCardinality];
+        search(a, new int[subSetCardinality], frequency.clone(), 0, 0, 0);
+        return a;
+    }//fim de subSetBefore()
+    
+    /**
+     * Retorna o indice de uma permutacao circular: quantas permutacoes
+     * circulares sao menores que ela, contadas de uma vez, como em
+     * {@link #getSubSet(long) }.
+     * 
+     * @param subSet Uma permutacao circular na forma em que eh gerada: a sua
+     * rotacao de menor ordem lexografica.
+     * 
+     * @return O indice de subSet, no intervalo [0, numberOfSubSets - 1].
+     * 
+     * @throws IllegalArgumentException Se subSet nao tiver r elementos, usar
+     * algum elemento mais vezes que o permitido ou nao for a rotacao de menor
+     * ordem lexografica de si mesmo.
+     */
+    /*[07]----------------------------------------------------------------------
+    *            Retorna o indice de uma permutacao circular
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        int r = subSetCardinality;
+        
+        if (subSet.length != r) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        if (r == 0) return 0;
+        
+        int[] availables = frequency.clone();
+        int p = 1;
+        
+        for (int t = 0; t < r; t++)
+        {
+            int element = subSet[t];
+            
+            if ((element < 0) || (element >= availables.length) ||
+                (availables[element]-- == 0) ||
+                ((t > 0) && (element < subSet[t - p])))
+                throw new IllegalArgumentException("Invalid permutation.");
+            
+            if ((t > 0) && (element > subSet[t - p])) p = t + 1;
+        }
+        
+        if (r % p != 0) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        if (distinct != null)
+        {
+            int[] positions = new int[r];
+            for (int t = 0; t < r; t++)
+                positions[t] = Arrays.binarySearch(element, subSet[t]);
+            return distinct.rank(positions);
+        }
+        
+        return getNumberOfSubSets() - counter.countNotBelow(subSet, r);
+    }//fim de rank()
+    
+    /**
+     * Retorna um Stream sequencial com todas as permutacoes circulares de r
+     * elementos do conjunto, em ordem lexografica. Se tornado paralelo com
+     * parallel(), as permutacoes sao divididas em intervalos de indices e cada
+     * intervalo eh gerado por um objeto EnhancedCyclicPermutation proprio.
+     * Veja {@link CombinatorialSpliterator}.
+     *
+     * @param elementsFrequency A frequencia de cada elemento no conjunto.
+     * @param r A cardinalidade de cada permutacao.
+     *
+     * @return Um Stream com as permutacoes circulares.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor
+     * {@link #EnhancedCyclicPermutation(int[], int) }.
+     *
+     * @throws ArithmeticException Se o numero de permutacoes circulares nao
+     * couber em um long.
+     */
+    /*[08]----------------------------------------------------------------------
+    *             Retorna um Stream com as permutacoes circulares
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int[] elementsFrequency, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        int[] frequency = elementsFrequency.clone();
+
+        return CombinatorialSpliterator.stream
+        (
+            () -> new EnhancedCyclicPermutation(frequency, r)
+        );
+    }//fim de stream()
+    
+    /*[09]----------------------------------------------------------------------
+    *   O metodo usado anteriormente por nextSubSetView(), mantido apenas para
+    *   comparacao em main(). Gera permutacoes simples com ep, em ordem
+    *   lexografica, e descarta as que tem alguma rotacao de ordem lexografica
+    *   menor, pois esta permutacao circular jah teria sido gerada.
+    --------------------------------------------------------------------------*/
+    private static int[] nextByFilter(EnhancedPermutation ep)
+    {
         boolean isNormalized;
         int[] v;
-        /*
-        Verifica se a permutacao obtida ja esta na forma normalizada. Caso 
-        contrario, se puder normalizada, eh descartada pois esta permutacao
-        ciclica ja foi gerada.
-        */
+
         do
         {
             isNormalized = false;
-            v = ep.nextSubSet(); 
-          
+            v = ep.nextSubSetView();
+
             for (int i = 1; ((i < v.length) && (! isNormalized)); i++)
                 if (v[i] == v[0])
                 {
@@ -153,21 +562,21 @@ public class EnhancedCyclicPermutation
                         int k = (j < fromIToEnd)? i + j : j - fromIToEnd;
 
                         if (v[k] < v[j])
-                            isNormalized = true;//interrompe for j e for i  
+                            isNormalized = true;//interrompe for j e for i
                         else if (v[k] > v[j])
                             break;//interrompe for j
-                        
+
                     }//fim do for j
 
                 }//fim do if
-                else 
+                else
                     if (v[i] < v[0]) isNormalized = true;//interrompe for i
-        
+
         }while (isNormalized);
-        
+
         return v;
-    }//fim de nextSubSet()
-    
+    }//fim de nextByFilter()
+
     /**
      * Um metodo demonstrando usos da classe.
      * 
@@ -190,18 +599,23 @@ public class EnhancedCyclicPermutation
 
             int[] e0 = null;
             EnhancedCyclicPermutation e = new EnhancedCyclicPermutation(v, r);
+            EnhancedPermutation ep = new EnhancedPermutation(v, r);
             long n = e.getNumberOfSubSets();
             System.out.println(n + " arranjos com " + r + " elementos.");
             for (long i = 0; i < n; i++)
             {
+                int[] c = e.nextSubSet();
                 if (i == 0)
                 {
-                    e0 = e.nextSubSet();
+                    e0 = c;
                     System.out.println(i+" "+Arrays.toString(e0));
                 }
-                else
-                    e.nextSubSet();
-                    //System.out.println(i+" "+Arrays.toString(e.nextSubSet()));
+
+                if (!Arrays.equals(c, nextByFilter(ep)))
+                {
+                    System.out.println("Arranjo " + i + " difere do filtro.");
+                    System.exit(1);
+                }
             }
 
             System.out.println("Se arranjo n + 1 = arranjo 0 o programa terá" +
@@ -217,7 +631,55 @@ public class EnhancedCyclicPermutation
            
             
         }//fim do for rep
-        
+
+        /*
+        Compara o tempo para percorrer todo o ciclo das permutacoes circulares,
+        ateh voltar a de indice 0, com o do metodo anterior, que filtra as
+        permutacoes simples.
+        */
+        int[][] sets = {{1,1,1,1,1,1,1,1,1,1,1}, {4,4,4,4}, {2,2,2,2,2,2},
+                        {3,3,3,3,3}};
+        int[] rs = {11, 16, 12, 10};
+
+        for (int k = 0; k < sets.length; k++)
+        {
+            EnhancedCyclicPermutation e =
+                new EnhancedCyclicPermutation(sets[k], rs[k]);
+            EnhancedPermutation ep = new EnhancedPermutation(sets[k], rs[k]);
+            long n = e.getNumberOfSubSets();
+            long sum = 0;
+
+            long t = System.currentTimeMillis();
+            for (long i = 0; i <= n; i++) sum += e.nextSubSetView()[rs[k] - 1];
+            long direct = System.currentTimeMillis() - t;
+
+            t = System.currentTimeMillis();
+            for (long i = 0; i <= n; i++) sum -= nextByFilter(ep)[rs[k] - 1];
+            long filter = System.currentTimeMillis() - t;
+
+            System.out.println(Arrays.toString(sets[k]) + " r = " + rs[k] +
+                               " : " + n + " permutacoes circulares. " +
+                               direct + " milseg, filtro " + filter +
+                               " milseg" + ((sum == 0) ? "" : " ERRO"));
+        }
+
+        /*
+        Posiciona nextSubSet() no meio das permutacoes circulares e confere os
+        indices com rank().
+        */
+        EnhancedCyclicPermutation e =
+            new EnhancedCyclicPermutation(new int[] {3, 3, 3, 3}, 12);
+        long middle = e.getNumberOfSubSets() / 2;
+        e.setNextIndex(middle);
+
+        System.out.println("");
+        for (long i = middle; i < middle + 5; i++)
+        {
+            int[] c = e.nextSubSet();
+            System.out.println(i + " " + Arrays.toString(c) + " rank " +
+                               e.rank(c));
+        }
+
     }//fim de main()
     
 }//fim da classe EnhancedCyclicPermutation
@@ -3,6 +3,7 @@ package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * Metodos para resolver problemas de analise combinatoria relativos a
@@ -109,12 +110,15 @@ public class EnhancedPermutation extends Combinatorial
      * @param r Quantos elementos em cada permutacao.
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @throws ArithmeticException Se o numero de permutacoes nao couber em um
+     * long.
      */
     /*[01]----------------------------------------------------------------------
     *                       Construtor da classe
     --------------------------------------------------------------------------*/
     public EnhancedPermutation(int[] elementsFrequency, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         super(elementsFrequency, r, XMath.nPr(elementsFrequency, r));
                
@@ -194,6 +198,39 @@ public class EnhancedPermutation extends Combinatorial
         
     }//fim de updateCurrentSubSetAfterIPos()
      
+    /**
+     * Retorna um Stream sequencial com todas as permutacoes de r elementos de
+     * um conjunto que pode ter elementos repetidos, em ordem lexografica. Se
+     * tornado paralelo com parallel(), as permutacoes sao divididas em
+     * intervalos de indices e cada intervalo eh gerado por um objeto
+     * EnhancedPermutation proprio. Veja {@link CombinatorialSpliterator}.
+     *
+     * @param elementsFrequency A frequencia de cada elemento no conjunto, como
+     * no construtor da classe.
+     * @param r Quantos elementos em cada permutacao.
+     *
+     * @return Um Stream com as permutacoes.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor
+     * {@link #EnhancedPermutation(int[], int) }.
+     *
+     * @throws ArithmeticException Se o numero de permutacoes nao couber em um
+     * long.
+     */
+    /*[05]----------------------------------------------------------------------
+    *                   Retorna um Stream com as permutacoes
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int[] elementsFrequency, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        int[] frequency = elementsFrequency.clone();
+
+        return CombinatorialSpliterator.stream
+        (
+            () -> new EnhancedPermutation(frequency, r)
+        );
+    }//fim de stream()
+    
     /**
      * Calcula e retorna qualquer enesima permutacao nPr, com as permutacoes
      * indexadas por ordem lexografica, com indices no intervalo
@@ -217,6 +254,9 @@ public class EnhancedPermutation extends Combinatorial
     {
         if (subSetCardinality == 0) return EMPTY_SET;
         
+        if (subSetCardinality == setCardinality)
+            return getFullPermutation(subSetIndex);
+        
         int[] permutation = new int[subSetCardinality];
         
         int[] fq = frequency.clone();
@@ -250,6 +290,144 @@ public class EnhancedPermutation extends Combinatorial
         
     }//fim de getSubSet()
     
+    /*[04B]---------------------------------------------------------------------
+    *   Retorna a permutacao de indice subSetIndex quando r = n, isto eh,
+    *   quando todos os elementos do conjunto sao usados.
+    *
+    *   Neste caso as permutacoes que comecam pelo elemento j sao uma fracao
+    *   fq[j] / m das T permutacoes dos m elementos restantes, e o numero delas
+    *   eh calculado por startingWith() em vez de chamar XMath.nPr().
+    --------------------------------------------------------------------------*/
+    private int[] getFullPermutation(long subSetIndex)
+    {
+        int[] permutation = new int[subSetCardinality];
+        
+        int[] fq = frequency.clone();
+        
+        long total = getNumberOfSubSets();
+        int m = subSetCardinality;
+        
+        for (int i = 0; i < subSetCardinality; i++, m--)
+        {
+            int j = -1;
+            
+            long count = 0;
+            
+            do
+            {
+                subSetIndex -= count;
+                
+                j++;
+                while (fq[j] <= 0) j++;
+                
+                count = startingWith(total, fq[j], m);
+                
+            }while (subSetIndex - count >= 0);
+            
+            permutation[i] = j;
+            
+            fq[j]--; total = count;
+        }
+        
+        return permutation;
+    }//fim de getFullPermutation()
+    
+    /*[04C]---------------------------------------------------------------------
+    *   Dentre as total permutacoes de m elementos, retorna quantas comecam por
+    *   um elemento que ocorre f vezes entre os m: total * f / m. Sendo
+    *   g = mdc(f, m), m / g divide total, e o resultado eh calculado como
+    *   (total / (m / g)) * (f / g), com uma divisao exata e sem overflow.
+    --------------------------------------------------------------------------*/
+    private static long startingWith(long total, int f, int m)
+    {
+        int g = f;
+        for (int b = m; b != 0; )
+        {
+            int t = g % b; g = b; b = t;
+        }
+        
+        return (total / (m / g)) * (f / g);
+    }//fim de startingWith()
+    
+    /**
+     * Retorna o indice lexografico de uma permutacao, o inverso de 
+     * {@link #getSubSet(long) }. Para cada posicao sao somadas as permutacoes
+     * que tem nesta posicao um elemento menor. Se r = n elas sao contadas com
+     * a mesma divisao exata usada por {@link #getSubSet(long) }; senao, por
+     * {@link br.com.hkp.classes.math.XMath#nPr(int[], int) }, tambem como em
+     * {@link #getSubSet(long) }. Em ambos os casos o custo eh o mesmo de
+     * {@link #getSubSet(long) }.
+     * 
+     * @param subSet Uma permutacao: r elementos em que cada elemento e ocorre
+     * no maximo frequency[e] vezes.
+     * 
+     * @return O indice da permutacao, no intervalo 
+     * [0, {@link #getNumberOfSubSets() } - 1].
+     * 
+     * @throws IllegalArgumentException Se subSet nao for uma permutacao que
+     * este objeto possa gerar.
+     */
+    /*[06]----------------------------------------------------------------------
+    *             Retorna o indice lexografico de uma permutacao
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != subSetCardinality) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        int[] fq = frequency.clone();
+        
+        for (int element : subSet)
+            if ((element < 0) || (element >= fq.length) || (fq[element]-- <= 0))
+                throw new IllegalArgumentException("Invalid permutation.");
+        
+        fq = frequency.clone();
+        
+        if (subSetCardinality == setCardinality)
+            return rankFullPermutation(subSet, fq);
+        
+        long index = 0;
+        int r = subSetCardinality - 1;
+        
+        for (int i = 0; i < subSetCardinality; i++)
+        {
+            for (int j = 0; j < subSet[i]; j++)
+                if (fq[j] > 0)
+                {
+                    fq[j]--; index += XMath.nPr(fq, r); fq[j]++;
+                }
+            
+            fq[subSet[i]]--; r--;
+        }
+        
+        return index;
+    }//fim de rank()
+    
+    /*[06B]---------------------------------------------------------------------
+    *   Retorna o indice de uma permutacao quando r = n, o inverso de
+    *   getFullPermutation(). fq eh uma copia de frequency, que eh alterada.
+    --------------------------------------------------------------------------*/
+    private long rankFullPermutation(int[] subSet, int[] fq)
+    {
+        long index = 0;
+        
+        long total = getNumberOfSubSets();
+        int m = subSetCardinality;
+        
+        for (int i = 0; i < subSetCardinality; i++, m--)
+        {
+            for (int j = 0; j < subSet[i]; j++)
+                if (fq[j] > 0) index += startingWith(total, fq[j], m);
+            
+            total = startingWith(total, fq[subSet[i]], m);
+            fq[subSet[i]]--;
+        }
+        
+        return index;
+    }//fim de rankFullPermutation()
+    
     public static void main(String[] args)
     {
         int[] v = {1,1,1};
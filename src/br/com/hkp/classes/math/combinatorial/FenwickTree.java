@@ -0,0 +1,84 @@
+/*arquivo FenwickTree.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+/**
+ * Uma arvore de Fenwick ( ou Binary Indexed Tree ) sobre as posicoes
+ * [0, n - 1], que mantem um contador por posicao e responde, em tempo
+ * O(log n), quanto vale a soma dos contadores das posicoes [0, i).
+ * <p>
+ * Eh usada pelos metodos de rank das permutacoes: marcando com 1 os elementos
+ * jah usados, a soma ateh um elemento x informa quantos elementos menores que
+ * x jah foram usados, sem percorrer os anteriores.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+final class FenwickTree
+{
+    /*
+    tree[k], para k em [1, n], eh a soma dos contadores das posicoes
+    [k - lowbit(k), k - 1].
+    */
+    private final int[] tree;
+
+    /*[01]----------------------------------------------------------------------
+    *   Construtor da classe. Cria a arvore com todos os contadores iguais a 0
+    --------------------------------------------------------------------------*/
+    FenwickTree(int n)
+    {
+        tree = new int[n + 1];
+    }//fim de FenwickTree()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Cria a arvore com todos os contadores iguais a value, em tempo O(n)
+    --------------------------------------------------------------------------*/
+    FenwickTree(int n, int value)
+    {
+        tree = new int[n + 1];
+        for (int k = 1; k <= n; k++) tree[k] = value * (k & -k);
+    }//fim de FenwickTree()
+
+    /*[02]----------------------------------------------------------------------
+    *   Soma delta ao contador da posicao i
+    --------------------------------------------------------------------------*/
+    void add(int i, int delta)
+    {
+        for (int k = i + 1; k < tree.length; k += k & -k) tree[k] += delta;
+    }//fim de add()
+
+    /*[03]----------------------------------------------------------------------
+    *   Retorna a soma dos contadores das posicoes [0, i)
+    --------------------------------------------------------------------------*/
+    int sum(int i)
+    {
+        int s = 0;
+        for (int k = i; k > 0; k -= k & -k) s += tree[k];
+        return s;
+    }//fim de sum()
+
+    /*[04]----------------------------------------------------------------------
+    *   Retorna a menor posicao p tal que a soma dos contadores de [0, p] seja
+    *   maior que k. Com contadores iguais a 0 ou 1, eh a posicao do
+    *   (k + 1)-esimo contador igual a 1. Os contadores nao podem ser
+    *   negativos, e k deve ser menor que a soma de todos eles.
+    --------------------------------------------------------------------------*/
+    int select(int k)
+    {
+        int position = 0;
+
+        for (int bit = Integer.highestOneBit(tree.length - 1); bit > 0;
+             bit >>>= 1)
+        {
+            int next = position + bit;
+
+            if ((next < tree.length) && (tree[next] <= k))
+            {
+                position = next;
+                k -= tree[next];
+            }
+        }
+
+        return position;
+    }//fim de select()
+
+}//fim da classe FenwickTree
@@ -0,0 +1,581 @@
+/*arquivo LongCombination.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import br.com.hkp.classes.math.XMath;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Combinacoes de n elementos tomados r a r, para n <= 64, representadas por
+ * um unico long: o elemento e pertence a combinacao se o bit e estiver
+ * ligado. Nenhum array eh criado para gerar as combinacoes, e a combinacao
+ * sucessora eh obtida com algumas poucas operacoes sobre bits.
+ * <p>
+ * As combinacoes sao geradas na mesma ordem lexografica, e com os mesmos
+ * indices, de {@link Combination}: a combinacao de indice i desta classe tem
+ * os mesmos elementos que o array retornado por getSubSet(i) de um objeto
+ * Combination com os mesmos n e r. Assim como em Combination, apos a
+ * combinacao de indice nCr - 1 vem a de indice 0.
+ * <p>
+ * Exemplo: soma dos pesos de cada combinacao
+ * <pre>
+ * {@code
+ * LongCombination c = new LongCombination(n, r);
+ * for (long i = 0; i < c.getNumberOfSubSets(); i++)
+ * {
+ *     long sum = 0;
+ *     for (long s = c.nextSubSet(); s != 0; s &= s - 1)
+ *         sum += weight[Long.numberOfTrailingZeros(s)];
+ * }
+ * }
+ * </pre>
+ * Ou, sem criar objetos e em paralelo, com {@link #stream(int, int) }.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class LongCombination
+{
+    private final int setCardinality;
+    private final int subSetCardinality;
+    private final long numberOfSubSets;
+
+    /*
+    A ultima combinacao gerada por nextSubSet(), o indice da proxima e se a
+    ultima gerada foi a de indice numberOfSubSets - 1.
+    */
+    private long currentSubSet;
+    private long nextIndex;
+    private boolean wasTheLast;
+
+    /**
+     * Inicializa um objeto LongCombination para obter as combinacoes de r
+     * elementos de um conjunto de n elementos.
+     *
+     * @param n O numero de elementos em um conjunto de numeros inteiros no
+     * intervalo [0, n-1]. No maximo 64.
+     * @param r Quantos elementos terah cada subconjunto extraido.
+     *
+     * @throws IllegalArgumentException Se n maior que 64, r maior que n, ou r
+     * ou n negativos.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                   O construtor da classe
+    --------------------------------------------------------------------------*/
+    public LongCombination(int n, int r)
+        throws IllegalArgumentException
+    {
+        if (n > Long.SIZE) throw new
+            IllegalArgumentException("Set is too large.");
+
+        /*
+        nCr() valida n e r. Com n <= 64 o resultado sempre cabe em um long.
+        */
+        numberOfSubSets = XMath.nCr(n, r);
+        setCardinality = n;
+        subSetCardinality = r;
+        wasTheLast = false;
+        setNextIndex(0);
+    }//fim de LongCombination()
+
+    /**
+     * O numero total de combinacoes.
+     *
+     * @return nCr
+     */
+    /*[02]----------------------------------------------------------------------
+    *         Retorna o numero total de combinacoes possiveis
+    --------------------------------------------------------------------------*/
+    public long getNumberOfSubSets()
+    {
+        return numberOfSubSets;
+    }//fim de getNumberOfSubSets()
+
+    /**
+     * Ajusta o indice da proxima combinacao que sera gerada quando for
+     * chamado o metodo nextSubSet().
+     *
+     * @param next O indice da proxima combinacao. Indices invalidos fora do
+     * intervalo [0, numberOfSubSets - 1] serao ignorados.
+     */
+    /*[03]----------------------------------------------------------------------
+    *   Ajusta qual serah a proxima combinacao retornada por nextSubSet()
+    --------------------------------------------------------------------------*/
+    public void setNextIndex(long next)
+    {
+        if ((next < 0) || (next >= numberOfSubSets)) return;
+
+        nextIndex = next;
+        currentSubSet =
+            getSubSet(((next == 0) ? numberOfSubSets : next) - 1);
+    }//fim de setNextIndex()
+
+    /**
+     * Retorna o indice da proxima combinacao gerada por nextSubSet().
+     *
+     * @return O indice lexografico
+     */
+    /*[04]----------------------------------------------------------------------
+    *     Retorna o indice da proxima combinacao retornada por nextSubSet()
+    --------------------------------------------------------------------------*/
+    public long getNextIndex()
+    {
+        return nextIndex;
+    }//fim de getNextIndex()
+
+    /**
+     * Retorna true imediatamente apos nextSubSet() gerar a combinacao de
+     * indice numberOfSubSets - 1, como {@link Combinatorial#wasTheLast() }.
+     *
+     * @return true se a ultima combinacao gerada for a de indice
+     * numberOfSubSets - 1 e o metodo ainda nao tiver sido chamado depois dela.
+     */
+    /*[05]----------------------------------------------------------------------
+    *   True se a ultima combinacao gerada era a de indice numberOfSubSets - 1
+    --------------------------------------------------------------------------*/
+    public boolean wasTheLast()
+    {
+        if (wasTheLast)
+        {
+            wasTheLast = false;
+            return true;
+        }
+        else
+            return false;
+    }//fim de wasTheLast()
+
+    /**
+     * Retorna a combinacao sucessora lexografica da ultima gerada por este
+     * metodo. Na primeira chamada retorna a de indice 0, a menos que o indice
+     * tenha sido alterado por {@link #setNextIndex(long) }.
+     *
+     * @return A combinacao, com o bit e ligado para cada elemento e.
+     */
+    /*[06]----------------------------------------------------------------------
+    *                  Retorna a proxima combinacao
+    --------------------------------------------------------------------------*/
+    public long nextSubSet()
+    {
+        if (++nextIndex == numberOfSubSets) nextIndex = 0;
+
+        wasTheLast = (nextIndex == 0);
+
+        return currentSubSet = successor(currentSubSet, setCardinality);
+    }//fim de nextSubSet()
+
+    /**
+     * Retorna a combinacao sucessora lexografica de subSet, sem depender de
+     * nenhum objeto. Em um loop que percorre as combinacoes, a combinacao fica
+     * em uma variavel local e cada passo custa algumas poucas operacoes:
+     * <pre>
+     * {@code
+     * long s = LongCombination.first(r);
+     * for (long i = 0; i < count; i++, s = LongCombination.successor(s, n))
+     *     process(s);
+     * }
+     * </pre>
+     *
+     * @param subSet Uma combinacao de elementos do intervalo [0, n - 1].
+     * @param n A cardinalidade do conjunto.
+     *
+     * @return A combinacao seguinte, ou a primeira combinacao se subSet for a
+     * ultima. Se subSet nao for uma combinacao valida o resultado eh
+     * indefinido.
+     */
+    /*[07]----------------------------------------------------------------------
+    *   Retorna a combinacao sucessora lexografica de subSet. Eh o equivalente,
+    *   para a ordem lexografica, do "Gosper's hack", que gera as combinacoes
+    *   na ordem dos valores dos longs.
+    *
+    *   Os k elementos no topo, n - k ateh n - 1, nao podem ser incrementados.
+    *   O maior elemento abaixo deles, p, passa a ser p + 1, e os k elementos
+    *   do topo vao para as posicoes p + 2 ateh p + k + 1. Se nao houver p,
+    *   subSet eh a ultima combinacao e a sucessora eh {0, 1, ..., r - 1}.
+    --------------------------------------------------------------------------*/
+    public static long successor(long subSet, int n)
+    {
+        int k = Long.numberOfLeadingZeros(~(subSet << (Long.SIZE - n)));
+
+        long rest = subSet & lowBits(n - k);
+
+        if (rest == 0) return lowBits(Long.bitCount(subSet));
+
+        int p = Long.SIZE - 1 - Long.numberOfLeadingZeros(rest);
+
+        return (rest ^ (1L << p)) | (lowBits(k + 1) << (p + 1));
+    }//fim de successor()
+
+    /**
+     * A combinacao de indice 0.
+     *
+     * @param r A cardinalidade da combinacao.
+     *
+     * @return {0, 1, ..., r - 1}
+     */
+    /*[07B]---------------------------------------------------------------------
+    *                    Retorna a combinacao de indice 0
+    --------------------------------------------------------------------------*/
+    public static long first(int r)
+    {
+        return lowBits(r);
+    }//fim de first()
+
+    /*[07C]---------------------------------------------------------------------
+    *   Retorna um long com os k bits mais baixos ligados, para k em [0, 64]
+    --------------------------------------------------------------------------*/
+    private static long lowBits(int k)
+    {
+        return (k == Long.SIZE) ? -1L : (1L << k) - 1;
+    }//fim de lowBits()
+
+    /**
+     * Calcula e retorna a combinacao de indice subSetIndex, a mesma de
+     * {@link Combination#getSubSet(long) }.
+     *
+     * @param subSetIndex O indice da combinacao. Nenhuma checagem eh feita.
+     * Portanto deve ser verificado antes se o indice passado ao metodo eh
+     * valido, caso contrario o resultado retornado serah incorreto.
+     *
+     * @return A combinacao, com o bit e ligado para cada elemento e.
+     */
+    /*[08]----------------------------------------------------------------------
+    *   Retorna uma enesima combinacao. Com d = n - 1 - c[i], o indice
+    *   complementar nCr - 1 - subSetIndex eh a soma de C(d, r - i), com os d
+    *   decrescentes ( veja rank() ), e eh decomposto de forma gulosa do maior
+    *   para o menor termo.
+    --------------------------------------------------------------------------*/
+    public long getSubSet(long subSetIndex)
+    {
+        long m = numberOfSubSets - 1 - subSetIndex;
+        long subSet = 0;
+        int d = setCardinality - 1;
+
+        for (int k = subSetCardinality; k > 0; k--)
+        {
+            while (BinomialTable.get(d, k) > m) d--;
+            subSet |= 1L << (setCardinality - 1 - d);
+            m -= BinomialTable.get(d, k);
+            d--;
+        }
+
+        return subSet;
+    }//fim de getSubSet()
+
+    /**
+     * Retorna o indice lexografico de uma combinacao, o mesmo de
+     * {@link Combination#rank(int[]) }.
+     *
+     * @param subSet A combinacao, com o bit e ligado para cada elemento e.
+     *
+     * @return O indice de subSet, no intervalo [0, numberOfSubSets - 1].
+     *
+     * @throws IllegalArgumentException Se subSet nao tiver r bits ligados ou
+     * tiver algum bit ligado fora do intervalo [0, n - 1].
+     */
+    /*[09]----------------------------------------------------------------------
+    *             Retorna o indice lexografico de uma combinacao
+    --------------------------------------------------------------------------*/
+    public long rank(long subSet)
+        throws IllegalArgumentException
+    {
+        if ((Long.bitCount(subSet) != subSetCardinality) ||
+            ((subSet & ~lowBits(setCardinality)) != 0)) throw new
+            IllegalArgumentException("Invalid combination.");
+
+        long index = numberOfSubSets - 1;
+        int i = 0;
+
+        for (long s = subSet; s != 0; s &= s - 1)
+        {
+            int element = Long.numberOfTrailingZeros(s);
+            index -= BinomialTable.get(setCardinality - 1 - element,
+                                       subSetCardinality - i);
+            i++;
+        }
+
+        return index;
+    }//fim de rank()
+
+    /**
+     * Converte uma combinacao para o array de elementos em ordem crescente,
+     * como os retornados por {@link Combination}.
+     *
+     * @param subSet A combinacao.
+     *
+     * @return Os elementos de subSet.
+     */
+    /*[10]----------------------------------------------------------------------
+    *            Retorna os elementos de uma combinacao em um array
+    --------------------------------------------------------------------------*/
+    public static int[] toArray(long subSet)
+    {
+        int[] elements = new int[Long.bitCount(subSet)];
+
+        int i = 0;
+        for (long s = subSet; s != 0; s &= s - 1)
+            elements[i++] = Long.numberOfTrailingZeros(s);
+
+        return elements;
+    }//fim de toArray()
+
+    /**
+     * Retorna um Spliterator sobre as combinacoes de indices [from, to), que
+     * pode ser dividido para processa-las em paralelo. Cada parte se posiciona
+     * com {@link #getSubSet(long) } e segue com {@link #successor(long, int) }.
+     *
+     * @param from O indice da primeira combinacao.
+     * @param to O indice seguinte ao da ultima combinacao.
+     *
+     * @return O Spliterator.
+     *
+     * @throws IllegalArgumentException Se o intervalo nao estiver contido em
+     * [0, getNumberOfSubSets()].
+     */
+    /*[11]----------------------------------------------------------------------
+    *        Retorna um Spliterator sobre um intervalo de combinacoes
+    --------------------------------------------------------------------------*/
+    public Spliterator.OfLong spliterator(long from, long to)
+        throws IllegalArgumentException
+    {
+        if ((from < 0) || (to < from) || (to > numberOfSubSets)) throw new
+            IllegalArgumentException("Invalid range.");
+
+        return new RangeSpliterator(from, to);
+    }//fim de spliterator()
+
+    /**
+     * Retorna um LongStream sequencial com todas as combinacoes de n elementos
+     * tomados r a r, em ordem lexografica. Pode ser tornado paralelo com
+     * parallel().
+     *
+     * @param n A cardinalidade do conjunto. No maximo 64.
+     * @param r A cardinalidade de cada subconjunto.
+     *
+     * @return Um LongStream com as combinacoes.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor.
+     */
+    /*[12]----------------------------------------------------------------------
+    *                 Retorna um LongStream com as combinacoes
+    --------------------------------------------------------------------------*/
+    public static LongStream stream(int n, int r)
+        throws IllegalArgumentException
+    {
+        LongCombination c = new LongCombination(n, r);
+
+        return StreamSupport.longStream
+        (
+            c.spliterator(0, c.getNumberOfSubSets()), false
+        );
+    }//fim de stream()
+
+    /*
+    Spliterator sobre as combinacoes de indices [index, end). Como a combinacao
+    seguinte depende apenas da anterior, nao ha estado alem de subSet.
+    */
+    private final class RangeSpliterator implements Spliterator.OfLong
+    {
+        private static final long MIN_SPLIT = 4096;
+
+        private long index;
+        private final long end;
+
+        /*
+        A ultima combinacao entregue, ou a anterior a de indice index se
+        positioned for false.
+        */
+        private long subSet;
+        private boolean positioned;
+
+        /*[01]------------------------------------------------------------------
+        *                           Construtor
+        ----------------------------------------------------------------------*/
+        private RangeSpliterator(long from, long to)
+        {
+            index = from;
+            end = to;
+            positioned = false;
+        }//fim de RangeSpliterator()
+
+        /*[02]------------------------------------------------------------------
+        *   Retorna a combinacao de indice index, posicionando o Spliterator
+        *   se necessario
+        ----------------------------------------------------------------------*/
+        private long next()
+        {
+            if (positioned)
+                subSet = successor(subSet, setCardinality);
+            else
+            {
+                subSet = getSubSet(index);
+                positioned = true;
+            }
+
+            return subSet;
+        }//fim de next()
+
+        /*[03]------------------------------------------------------------------
+        *                Entrega a action a proxima combinacao
+        ----------------------------------------------------------------------*/
+        @Override
+        public boolean tryAdvance(LongConsumer action)
+        {
+            if (index >= end) return false;
+
+            long s = next();
+            index++;
+            action.accept(s);
+            return true;
+        }//fim de tryAdvance()
+
+        /*[04]------------------------------------------------------------------
+        *          Entrega a action todas as combinacoes restantes
+        ----------------------------------------------------------------------*/
+        @Override
+        public void forEachRemaining(LongConsumer action)
+        {
+            if (index >= end) return;
+
+            long s = next();
+            long count = end - index;
+            index = end;
+            int n = setCardinality;
+
+            action.accept(s);
+            for (long i = 1; i < count; i++)
+            {
+                s = successor(s, n);
+                action.accept(s);
+            }
+
+            subSet = s;
+        }//fim de forEachRemaining()
+
+        /*[05]------------------------------------------------------------------
+        *   Divide o intervalo ao meio e retorna a primeira metade
+        ----------------------------------------------------------------------*/
+        @Override
+        public Spliterator.OfLong trySplit()
+        {
+            long remaining = end - index;
+            if (remaining < 2 * MIN_SPLIT) return null;
+
+            long middle = index + remaining / 2;
+
+            RangeSpliterator prefix = new RangeSpliterator(index, middle);
+            prefix.subSet = subSet;
+            prefix.positioned = positioned;
+
+            index = middle;
+            positioned = false;
+
+            return prefix;
+        }//fim de trySplit()
+
+        /*[06]------------------------------------------------------------------
+        *             Retorna quantas combinacoes restam no intervalo
+        ----------------------------------------------------------------------*/
+        @Override
+        public long estimateSize()
+        {
+            return end - index;
+        }//fim de estimateSize()
+
+        /*[07]------------------------------------------------------------------
+        *               Retorna as caracteristicas do Spliterator
+        ----------------------------------------------------------------------*/
+        @Override
+        public int characteristics()
+        {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }//fim de characteristics()
+
+    }//fim da classe RangeSpliterator
+
+    /**
+     * Um metodo para testar a classe
+     *
+     * @param args Argumentos de linha de comando
+     */
+    public static void main(String[] args)
+    {
+        /*
+        Confere, para todo n <= 12, que cada combinacao coincide com a de
+        Combination, e que rank() inverte getSubSet().
+        */
+        for (int n = 0; n <= 12; n++)
+            for (int r = 0; r <= n; r++)
+            {
+                LongCombination lc = new LongCombination(n, r);
+                Combination c = new Combination(n, r);
+
+                for (long i = 0; i <= lc.getNumberOfSubSets(); i++)
+                {
+                    long s = lc.nextSubSet();
+                    long index = i % lc.getNumberOfSubSets();
+
+                    if (!java.util.Arrays.equals(toArray(s), c.nextSubSet()) ||
+                        (lc.getSubSet(index) != s) || (lc.rank(s) != index))
+                    {
+                        System.out.println(n + "C" + r + " falhou no indice " +
+                                           index);
+                        System.exit(1);
+                    }
+                }
+            }
+        System.out.println("Combinacoes conferidas ateh 12C12.\n");
+
+        /*
+        Conta as combinacoes 28C10 que tem ao menos um elemento de cada um de 7
+        grupos. Com arrays cada elemento da combinacao eh examinado. Com longs
+        basta um AND por grupo.
+        */
+        int n = 28; int r = 10; int groups = 7;
+        long[] group = new long[groups];
+        int[] groupOf = new int[n];
+        for (int e = 0; e < n; e++)
+        {
+            groupOf[e] = (e * 5) % groups;
+            group[groupOf[e]] |= 1L << e;
+        }
+        int allGroups = (1 << groups) - 1;
+
+        long t = System.currentTimeMillis();
+        long total = 0;
+        Combination c = new Combination(n, r);
+        for (long i = 0; i < c.getNumberOfSubSets(); i++)
+        {
+            int hit = 0;
+            for (int e : c.nextSubSetView()) hit |= 1 << groupOf[e];
+            if (hit == allGroups) total++;
+        }
+        System.out.println("Combination.nextSubSetView() : " + total + " em " +
+                           (System.currentTimeMillis() - t) + " milseg");
+
+        t = System.currentTimeMillis();
+        total = 0;
+        long count = XMath.nCr(n, r);
+        long s = first(r);
+        for (long i = 0; i < count; i++, s = successor(s, n))
+        {
+            int j = 0;
+            while ((j < groups) && ((s & group[j]) != 0)) j++;
+            if (j == groups) total++;
+        }
+        System.out.println("LongCombination.successor()  : " + total + " em " +
+                           (System.currentTimeMillis() - t) + " milseg");
+
+        t = System.currentTimeMillis();
+        total = stream(n, r).parallel().filter(x ->
+        {
+            for (long g : group) if ((x & g) == 0) return false;
+            return true;
+        }).count();
+        System.out.println("LongCombination.stream()     : " + total + " em " +
+                           (System.currentTimeMillis() - t) + " milseg");
+
+    }//fim de main()
+
+}//fim da classe LongCombination
@@ -0,0 +1,560 @@
+/*arquivo MappedCombinatorial.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Associa a um objeto {@link Combinatorial} um array de elementos, de modo que
+ * cada arranjo gerado, formado por indices do conjunto {0, 1, ..., n - 1}, eh
+ * obtido ja traduzido para os elementos do array: o indice i corresponde ao
+ * elemento elements[i].
+ * <p>
+ * O metodo {@link #nextSubSetView() } retorna sempre a mesma List, que apenas
+ * consulta o array de elementos e o arranjo corrente do gerador. Nenhum objeto
+ * eh criado por arranjo gerado:
+ * <pre>
+ * {@code
+ * MappedCombinatorial<String> m =
+ *     new MappedCombinatorial<>(new Combination(4, 2), names);
+ * while (!m.wasTheLast()) process(m.nextSubSetView());
+ * }
+ * </pre>
+ * Para elementos int ou double as classes {@link OfInt} e {@link OfDouble}
+ * escrevem os valores dos elementos diretamente em um array do chamador, um
+ * arranjo de cada vez ou em blocos.
+ * <p>
+ * Os indices, setNextIndex() e getSubSet(long) continuam sendo os do gerador,
+ * obtido com {@link #getGenerator() }.
+ *
+ * @param <T> O tipo dos elementos.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class MappedCombinatorial<T>
+{
+    private final Combinatorial generator;
+    private final T[] elements;
+
+    /*
+    A List retornada por nextSubSetView(), e o array do gerador que ela
+    consulta.
+    */
+    private final View view;
+    private int[] subSet;
+
+    /**
+     * Associa um gerador a um array de elementos.
+     *
+     * @param generator O gerador dos arranjos.
+     * @param elements Os elementos. O indice i de um arranjo corresponde a
+     * elements[i]. O array nao eh copiado, e alteracoes nele aparecem nos
+     * arranjos obtidos depois.
+     *
+     * @throws IllegalArgumentException Se elements tiver menos elementos que
+     * o conjunto do gerador.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                       Construtor da classe
+    --------------------------------------------------------------------------*/
+    public MappedCombinatorial(Combinatorial generator, T[] elements)
+        throws IllegalArgumentException
+    {
+        checkLength(generator, elements.length);
+
+        this.generator = generator;
+        this.elements = elements;
+        view = new View();
+        subSet = Combinatorial.EMPTY_SET;
+    }//fim de MappedCombinatorial()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Verifica se ha um elemento para cada indice que o gerador pode gerar.
+    *   Nos geradores com elementos repetidos os indices vao de 0 ateh
+    *   frequency.length - 1.
+    --------------------------------------------------------------------------*/
+    private static void checkLength(Combinatorial generator, int length)
+        throws IllegalArgumentException
+    {
+        if (length < generator.frequency.length) throw new
+            IllegalArgumentException("Array is too short.");
+    }//fim de checkLength()
+
+    /**
+     * O gerador associado aos elementos.
+     *
+     * @return O objeto Combinatorial passado ao construtor.
+     */
+    /*[02]----------------------------------------------------------------------
+    *                          Retorna o gerador
+    --------------------------------------------------------------------------*/
+    public Combinatorial getGenerator()
+    {
+        return generator;
+    }//fim de getGenerator()
+
+    /**
+     * O mesmo que {@link Combinatorial#wasTheLast() } do gerador.
+     *
+     * @return true imediatamente apos a geracao do arranjo de indice
+     * numberOfSubSets - 1.
+     */
+    /*[03]----------------------------------------------------------------------
+    *   True se o ultimo arranjo gerado era o de indice numberOfSubSets - 1
+    --------------------------------------------------------------------------*/
+    public boolean wasTheLast()
+    {
+        return generator.wasTheLast();
+    }//fim de wasTheLast()
+
+    /**
+     * Gera o proximo arranjo e retorna uma List com os seus elementos, sem
+     * copia-los. A List retornada eh sempre a mesma, nao pode ser alterada, e
+     * seu conteudo muda com a proxima chamada a este metodo ou a um dos
+     * metodos nextSubSet() ou setNextIndex() do gerador. Quem precisar manter
+     * o arranjo deve copia-lo, por exemplo com new ArrayList(view).
+     *
+     * @return Os elementos do proximo arranjo.
+     */
+    /*[04]----------------------------------------------------------------------
+    *   Gera o proximo arranjo e retorna, sem copia-los, os seus elementos
+    --------------------------------------------------------------------------*/
+    public List<T> nextSubSetView()
+    {
+        subSet = generator.nextSubSetView();
+        return view;
+    }//fim de nextSubSetView()
+
+    /**
+     * Gera o proximo arranjo e copia os seus elementos para um array do
+     * chamador.
+     *
+     * @param dest O array que recebe, nas suas primeiras posicoes, os
+     * elementos do arranjo. Deve ter ao menos r posicoes.
+     *
+     * @return O proprio array dest.
+     *
+     * @throws IllegalArgumentException Se dest tiver menos que r posicoes.
+     * Neste caso nenhum arranjo eh gerado.
+     */
+    /*[05]----------------------------------------------------------------------
+    *   Gera o proximo arranjo e copia os seus elementos para um array
+    --------------------------------------------------------------------------*/
+    public T[] nextSubSet(T[] dest)
+        throws IllegalArgumentException
+    {
+        if (dest.length < generator.subSetCardinality) throw new
+            IllegalArgumentException("Array is too short.");
+
+        int[] s = generator.nextSubSetView();
+        for (int i = 0; i < s.length; i++) dest[i] = elements[s[i]];
+
+        return dest;
+    }//fim de nextSubSet()
+
+    /**
+     * Retorna os elementos do arranjo de indice subSetIndex em uma nova List,
+     * sem alterar o proximo arranjo gerado.
+     *
+     * @param subSetIndex O indice do arranjo, como em
+     * {@link Combinatorial#getSubSet(long) }.
+     *
+     * @return Os elementos do arranjo.
+     */
+    /*[06]----------------------------------------------------------------------
+    *                  Retorna os elementos de um enesimo arranjo
+    --------------------------------------------------------------------------*/
+    public List<T> getSubSet(long subSetIndex)
+    {
+        int[] s = generator.getSubSet(subSetIndex);
+
+        List<T> list = new ArrayList<>(s.length);
+        for (int index : s) list.add(elements[index]);
+
+        return list;
+    }//fim de getSubSet()
+
+    /*
+    A List retornada por nextSubSetView()
+    */
+    private final class View extends AbstractList<T> implements RandomAccess
+    {
+        /*[01]------------------------------------------------------------------
+        *             Retorna o elemento na posicao i do arranjo
+        ----------------------------------------------------------------------*/
+        @Override
+        public T get(int i)
+        {
+            return elements[subSet[i]];
+        }//fim de get()
+
+        /*[02]------------------------------------------------------------------
+        *                    Retorna o tamanho do arranjo
+        ----------------------------------------------------------------------*/
+        @Override
+        public int size()
+        {
+            return subSet.length;
+        }//fim de size()
+
+    }//fim da classe View
+
+    /**
+     * Associa a um objeto {@link Combinatorial} um array de valores int. Os
+     * valores de cada arranjo sao escritos diretamente em um array do
+     * chamador.
+     */
+    public static final class OfInt
+    {
+        private final Combinatorial generator;
+        private final int[] values;
+
+        /**
+         * Associa um gerador a um array de valores.
+         *
+         * @param generator O gerador dos arranjos.
+         * @param values Os valores. O indice i de um arranjo corresponde a
+         * values[i]. O array nao eh copiado.
+         *
+         * @throws IllegalArgumentException Se values tiver menos elementos que
+         * o conjunto do gerador.
+         */
+        /*[01]------------------------------------------------------------------
+        *                       Construtor da classe
+        ----------------------------------------------------------------------*/
+        public OfInt(Combinatorial generator, int[] values)
+            throws IllegalArgumentException
+        {
+            checkLength(generator, values.length);
+
+            this.generator = generator;
+            this.values = values;
+        }//fim de OfInt()
+
+        /**
+         * O gerador associado aos valores.
+         *
+         * @return O objeto Combinatorial passado ao construtor.
+         */
+        /*[02]------------------------------------------------------------------
+        *                          Retorna o gerador
+        ----------------------------------------------------------------------*/
+        public Combinatorial getGenerator()
+        {
+            return generator;
+        }//fim de getGenerator()
+
+        /**
+         * O mesmo que {@link Combinatorial#wasTheLast() } do gerador.
+         *
+         * @return true imediatamente apos a geracao do arranjo de indice
+         * numberOfSubSets - 1.
+         */
+        /*[03]------------------------------------------------------------------
+        *   True se o ultimo arranjo gerado era o de indice numberOfSubSets - 1
+        ----------------------------------------------------------------------*/
+        public boolean wasTheLast()
+        {
+            return generator.wasTheLast();
+        }//fim de wasTheLast()
+
+        /**
+         * Gera o proximo arranjo e escreve os seus valores em um array do
+         * chamador.
+         *
+         * @param dest O array que recebe, nas suas primeiras posicoes, os
+         * valores do arranjo. Deve ter ao menos r posicoes.
+         *
+         * @return O proprio array dest.
+         *
+         * @throws IllegalArgumentException Se dest tiver menos que r posicoes.
+         * Neste caso nenhum arranjo eh gerado.
+         */
+        /*[04]------------------------------------------------------------------
+        *     Gera o proximo arranjo e escreve os seus valores em um array
+        ----------------------------------------------------------------------*/
+        public int[] nextSubSet(int[] dest)
+            throws IllegalArgumentException
+        {
+            if (dest.length < generator.subSetCardinality) throw new
+                IllegalArgumentException("Array is too short.");
+
+            int[] s = generator.nextSubSetView();
+            for (int i = 0; i < s.length; i++) dest[i] = values[s[i]];
+
+            return dest;
+        }//fim de nextSubSet()
+
+        /**
+         * Como {@link Combinatorial#nextSubSets(int, int[]) }, mas escreve em
+         * dest os valores dos arranjos: o arranjo j ocupa as posicoes
+         * [j * r, j * r + r). Tambem para logo apos o arranjo de indice
+         * numberOfSubSets - 1.
+         *
+         * @param count Quantos arranjos gerar, no maximo.
+         * @param dest O array que recebe os valores. Deve ter ao menos
+         * count * r posicoes.
+         *
+         * @return Quantos arranjos foram gerados e escritos em dest.
+         *
+         * @throws IllegalArgumentException Se count for negativo ou dest tiver
+         * menos que count * r posicoes. Neste caso nenhum arranjo eh gerado.
+         */
+        /*[05]------------------------------------------------------------------
+        *   Gera os proximos count arranjos e escreve os seus valores em
+        *   sequencia em um array
+        ----------------------------------------------------------------------*/
+        public int nextSubSets(int count, int[] dest)
+            throws IllegalArgumentException
+        {
+            int r = generator.subSetCardinality;
+
+            generator.checkBlock(count, dest.length, "Array is too short.");
+
+            int written = 0;
+
+            for (int offset = 0; written < count; offset += r)
+            {
+                int[] s = generator.nextSubSetView();
+                for (int i = 0; i < r; i++) dest[offset + i] = values[s[i]];
+                written++;
+
+                if (generator.getNextIndex() == 0) break;
+            }
+
+            return written;
+        }//fim de nextSubSets()
+
+    }//fim da classe OfInt
+
+    /**
+     * Associa a um objeto {@link Combinatorial} um array de valores double. Os
+     * valores de cada arranjo sao escritos diretamente em um array do
+     * chamador.
+     */
+    public static final class OfDouble
+    {
+        private final Combinatorial generator;
+        private final double[] values;
+
+        /**
+         * Associa um gerador a um array de valores.
+         *
+         * @param generator O gerador dos arranjos.
+         * @param values Os valores. O indice i de um arranjo corresponde a
+         * values[i]. O array nao eh copiado.
+         *
+         * @throws IllegalArgumentException Se values tiver menos elementos que
+         * o conjunto do gerador.
+         */
+        /*[01]------------------------------------------------------------------
+        *                       Construtor da classe
+        ----------------------------------------------------------------------*/
+        public OfDouble(Combinatorial generator, double[] values)
+            throws IllegalArgumentException
+        {
+            checkLength(generator, values.length);
+
+            this.generator = generator;
+            this.values = values;
+        }//fim de OfDouble()
+
+        /**
+         * O gerador associado aos valores.
+         *
+         * @return O objeto Combinatorial passado ao construtor.
+         */
+        /*[02]------------------------------------------------------------------
+        *                          Retorna o gerador
+        ----------------------------------------------------------------------*/
+        public Combinatorial getGenerator()
+        {
+            return generator;
+        }//fim de getGenerator()
+
+        /**
+         * O mesmo que {@link Combinatorial#wasTheLast() } do gerador.
+         *
+         * @return true imediatamente apos a geracao do arranjo de indice
+         * numberOfSubSets - 1.
+         */
+        /*[03]------------------------------------------------------------------
+        *   True se o ultimo arranjo gerado era o de indice numberOfSubSets - 1
+        ----------------------------------------------------------------------*/
+        public boolean wasTheLast()
+        {
+            return generator.wasTheLast();
+        }//fim de wasTheLast()
+
+        /**
+         * Gera o proximo arranjo e escreve os seus valores em um array do
+         * chamador.
+         *
+         * @param dest O array que recebe, nas suas primeiras posicoes, os
+         * valores do arranjo. Deve ter ao menos r posicoes.
+         *
+         * @return O proprio array dest.
+         *
+         * @throws IllegalArgumentException Se dest tiver menos que r posicoes.
+         * Neste caso nenhum arranjo eh gerado.
+         */
+        /*[04]------------------------------------------------------------------
+        *     Gera o proximo arranjo e escreve os seus valores em um array
+        ----------------------------------------------------------------------*/
+        public double[] nextSubSet(double[] dest)
+            throws IllegalArgumentException
+        {
+            if (dest.length < generator.subSetCardinality) throw new
+                IllegalArgumentException("Array is too short.");
+
+            int[] s = generator.nextSubSetView();
+            for (int i = 0; i < s.length; i++) dest[i] = values[s[i]];
+
+            return dest;
+        }//fim de nextSubSet()
+
+        /**
+         * Como {@link Combinatorial#nextSubSets(int, int[]) }, mas escreve em
+         * dest os valores dos arranjos: o arranjo j ocupa as posicoes
+         * [j * r, j * r + r). Tambem para logo apos o arranjo de indice
+         * numberOfSubSets - 1.
+         *
+         * @param count Quantos arranjos gerar, no maximo.
+         * @param dest O array que recebe os valores. Deve ter ao menos
+         * count * r posicoes.
+         *
+         * @return Quantos arranjos foram gerados e escritos em dest.
+         *
+         * @throws IllegalArgumentException Se count for negativo ou dest tiver
+         * menos que count * r posicoes. Neste caso nenhum arranjo eh gerado.
+         */
+        /*[05]------------------------------------------------------------------
+        *   Gera os proximos count arranjos e escreve os seus valores em
+        *   sequencia em um array
+        ----------------------------------------------------------------------*/
+        public int nextSubSets(int count, double[] dest)
+            throws IllegalArgumentException
+        {
+            int r = generator.subSetCardinality;
+
+            generator.checkBlock(count, dest.length, "Array is too short.");
+
+            int written = 0;
+
+            for (int offset = 0; written < count; offset += r)
+            {
+                int[] s = generator.nextSubSetView();
+                for (int i = 0; i < r; i++) dest[offset + i] = values[s[i]];
+                written++;
+
+                if (generator.getNextIndex() == 0) break;
+            }
+
+            return written;
+        }//fim de nextSubSets()
+
+    }//fim da classe OfDouble
+
+    /**
+     * Um metodo para testar a classe
+     *
+     * @param args Argumentos de linha de comando
+     */
+    public static void main(String[] args)
+    {
+        String[] names = {"Ana", "Bia", "Caio", "Davi", "Eva"};
+
+        System.out.println("Combinacoes 5C3 de nomes...\n");
+
+        MappedCombinatorial<String> m =
+            new MappedCombinatorial<>(new Combination(5, 3), names);
+        while (!m.wasTheLast())
+        {
+            long index = m.getGenerator().getNextIndex();
+            System.out.println(index + " " + m.nextSubSetView());
+        }
+
+        System.out.println("\nPermutacoes de {a, a, b, c}...\n");
+
+        MappedCombinatorial<Character> p = new MappedCombinatorial<>
+        (
+            new EnhancedPermutation(new int[] {2, 1, 1}, 4),
+            new Character[] {'a', 'b', 'c'}
+        );
+        while (!p.wasTheLast())
+            System.out.print(p.nextSubSetView() + " ");
+        System.out.println();
+
+        /*
+        Maior soma de precos das combinacoes 28C10: criando uma List de precos
+        por combinacao, e escrevendo os precos em blocos com OfDouble.
+        */
+        int n = 28; int r = 10;
+        double[] price = new double[n];
+        Double[] boxedPrice = new Double[n];
+        for (int i = 0; i < n; i++)
+        {
+            price[i] = ((i * 7919) % 1000) / 10.0;
+            boxedPrice[i] = price[i];
+        }
+
+        long t = System.currentTimeMillis();
+        double best = 0;
+        Combination c = new Combination(n, r);
+        while (!c.wasTheLast())
+        {
+            List<Double> list = new ArrayList<>(r);
+            for (int index : c.nextSubSet()) list.add(boxedPrice[index]);
+            double sum = 0;
+            for (double x : list) sum += x;
+            if (sum > best) best = sum;
+        }
+        System.out.println("\nList por combinacao                  : " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+        t = System.currentTimeMillis();
+        best = 0;
+        MappedCombinatorial<Double> boxed =
+            new MappedCombinatorial<>(new Combination(n, r), boxedPrice);
+        while (!boxed.wasTheLast())
+        {
+            double sum = 0;
+            for (double x : boxed.nextSubSetView()) sum += x;
+            if (sum > best) best = sum;
+        }
+        System.out.println("MappedCombinatorial.nextSubSetView() : " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+        t = System.currentTimeMillis();
+        best = 0;
+        OfDouble prices = new OfDouble(new Combination(n, r), price);
+        double[] block = new double[1024 * r];
+        do
+        {
+            int written = prices.nextSubSets(1024, block);
+            for (int j = 0; j < written; j++)
+            {
+                double sum = 0;
+                for (int i = j * r; i < j * r + r; i++) sum += block[i];
+                if (sum > best) best = sum;
+            }
+        }while (!prices.wasTheLast());
+        System.out.println("OfDouble.nextSubSets()               : " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+        int[] quantity = new int[n];
+        Arrays.fill(quantity, 1);
+        OfInt q = new OfInt(new Combination(n, r), quantity);
+        System.out.println("\nOfInt.nextSubSet(): " +
+                           Arrays.toString(q.nextSubSet(new int[r])));
+
+    }//fim de main()
+
+}//fim da classe MappedCombinatorial
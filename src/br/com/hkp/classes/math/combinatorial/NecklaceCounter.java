@@ -0,0 +1,303 @@
+/*arquivo NecklaceCounter.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import br.com.hkp.classes.math.XMath;
+import java.util.Arrays;
+
+/**
+ * Conta as permutacoes circulares de {@link EnhancedCyclicPermutation} cujo
+ * representante ( a rotacao de menor ordem lexografica ) tem os primeiros m
+ * elementos maiores ou iguais, em ordem lexografica, a um prefixo u dado. Eh
+ * o que permite a EnhancedCyclicPermutation calcular o indice de uma
+ * permutacao e a permutacao de um indice sem percorrer as que a antecedem.
+ * <p>
+ * A contagem segue a de {@link XMath#nCPr(int[], int) }: para cada divisor d
+ * de r sao contados os arranjos y de d elementos, com y repetido r / d vezes
+ * respeitando a frequencia dos elementos, e deles sao descontados os que sao
+ * repeticoes de arranjos menores. Cada arranjo primitivo de d elementos
+ * corresponde a uma das d rotacoes de uma mesma permutacao circular.
+ * <p>
+ * A diferenca eh que soh sao contados os arranjos y tais que toda rotacao de
+ * y repetido tenha os primeiros m elementos maiores ou iguais a u. Isto
+ * equivale a y, lido circularmente, nao conter nenhum dos padroes
+ * u[0..k-1]c com c menor que u[k]. Os padroes sao reconhecidos por um
+ * automato de Knuth-Morris-Pratt sobre u, e y eh contado por programacao
+ * dinamica sobre o estado do automato e quantos elementos de cada tipo jah
+ * foram usados. Como a leitura eh circular, conta-se, para cada estado s, os
+ * arranjos que levam o automato de s de volta a s: cada arranjo aceito eh
+ * contado exatamente uma vez, pelo estado em que o automato estaria na
+ * posicao 0 lendo y repetido indefinidamente.
+ * <p>
+ * O custo de uma contagem eh O(m^2 * V * T) para cada divisor de r, onde T eh
+ * o numero de elementos com frequencia positiva e V o numero de combinacoes
+ * de quantidades de cada um deles, isto eh, o produto das frequencias mais 1.
+ * Nao depende do numero de permutacoes circulares.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+final class NecklaceCounter
+{
+    /*
+    Os elementos com frequencia positiva, em ordem crescente. Na programacao
+    dinamica cada um eh identificado pela sua posicao neste array, o seu tipo.
+    */
+    private final int[] element;
+
+    /*
+    Os divisores de r em ordem crescente.
+    */
+    private final int[] divisors;
+
+    /*
+    bound[k][t] eh quantas vezes o tipo t pode ocorrer em um arranjo de
+    divisors[k] elementos que, repetido r / divisors[k] vezes, respeite a
+    frequencia do elemento.
+    */
+    private final int[][] bound;
+
+    /*
+    As quantidades usadas de cada tipo sao codificadas em um unico indice, em
+    uma base mista: o tipo t tem peso weight[k][t], o produto de
+    bound[k][i] + 1 para i < t. vectors[k] eh quantos indices ha, ou 0 se nao
+    houver arranjos de divisors[k] elementos.
+    */
+    private final int[][] weight;
+    private final long[] vectors;
+
+    /*[01]----------------------------------------------------------------------
+    *   Construtor da classe. frequency nao deve ter valores negativos e r deve
+    *   ser positivo e nao maior que a soma das frequencias.
+    --------------------------------------------------------------------------*/
+    NecklaceCounter(int[] frequency, int r)
+    {
+        element = Arrays.stream(frequency).filter(f -> f > 0).toArray();
+        for (int e = 0, t = 0; e < frequency.length; e++)
+            if (frequency[e] > 0) element[t++] = e;
+
+        int types = element.length;
+
+        divisors = Arrays.stream(XMath.divisors(r)).mapToInt(d -> (int)d)
+                         .toArray();
+
+        bound = new int[divisors.length][types];
+        weight = new int[divisors.length][types];
+        vectors = new long[divisors.length];
+
+        for (int k = 0; k < divisors.length; k++)
+        {
+            int d = divisors[k];
+            long v = 1;
+            long sum = 0;
+
+            for (int t = 0; t < types; t++)
+            {
+                bound[k][t] = frequency[element[t]] / (r / d);
+                sum += bound[k][t];
+
+                /*
+                Acima de Integer.MAX_VALUE os indices nao caberiam em um
+                array, e countNotBelow() lanca OutOfMemoryError.
+                */
+                weight[k][t] = (int)v;
+                v = Math.min(v * (bound[k][t] + 1), Integer.MAX_VALUE + 1L);
+            }
+
+            vectors[k] = (sum < d) ? 0 : v;
+        }
+    }//fim de NecklaceCounter()
+
+    /*[02]----------------------------------------------------------------------
+    *   Retorna quantas permutacoes circulares tem os primeiros m elementos do
+    *   representante maiores ou iguais a u[0..m-1], com 1 <= m <= r.
+    --------------------------------------------------------------------------*/
+    long countNotBelow(int[] u, int m)
+        throws OutOfMemoryError
+    {
+        int states = m + 1;
+        int[] next = automaton(u, m);
+
+        long size = 0;
+        for (long v : vectors) size = Math.max(size, v * states);
+        if (size > Integer.MAX_VALUE - 8) throw new OutOfMemoryError();
+
+        long[] dp = new long[(int)size];
+
+        /*
+        primitive[k] eh quantos arranjos aceitos de divisors[k] elementos nao
+        sao repeticao de um arranjo menor, como mapOfDivR em nCPr().
+        */
+        long[] primitive = new long[divisors.length];
+        long count = 0;
+
+        for (int k = 0; k < divisors.length; k++)
+        {
+            if (vectors[k] == 0) continue;
+
+            int d = divisors[k];
+            long words = closedWalks(k, u, next, states, dp);
+
+            for (int j = 0; j < k; j++)
+                if (d % divisors[j] == 0) words -= primitive[j];
+
+            primitive[k] = words;
+            count += words / d;
+        }
+
+        return count;
+    }//fim de countNotBelow()
+
+    /*[03]----------------------------------------------------------------------
+    *   Retorna as transicoes do automato que reconhece os prefixos de
+    *   u[0..m-1]. O estado q indica que os ultimos q elementos lidos sao
+    *   u[0..q-1], e nenhuma sequencia maior lida eh prefixo de u. A posicao
+    *   q * T + t tem o estado seguinte a leitura do tipo t no estado q, ou -1
+    *   se esta leitura completar um dos padroes u[0..k-1]c com c < u[k].
+    --------------------------------------------------------------------------*/
+    private int[] automaton(int[] u, int m)
+    {
+        int types = bound[0].length;
+
+        /*
+        border[q] eh o tamanho do maior prefixo proprio de u[0..q-1] que eh
+        tambem sufixo de u[0..q-1]. Os padroes que podem terminar no proximo
+        elemento sao os dos prefixos q, border[q], border[border[q]], ... 0.
+        */
+        int[] border = new int[m + 1];
+        for (int q = 2; q <= m; q++)
+        {
+            int b = border[q - 1];
+            while ((b > 0) && (u[b] != u[q - 1])) b = border[b];
+            border[q] = (u[b] == u[q - 1]) ? b + 1 : 0;
+        }
+
+        int[] next = new int[(m + 1) * types];
+
+        for (int q = 0; q <= m; q++)
+            for (int t = 0; t < types; t++)
+            {
+                int e = element[t];
+
+                int viaBorder = (q == 0) ? 0 : next[border[q] * types + t];
+
+                if ((viaBorder < 0) || ((q < m) && (e < u[q])))
+                    next[q * types + t] = -1;
+                else if ((q < m) && (e == u[q]))
+                    next[q * types + t] = q + 1;
+                else
+                    next[q * types + t] = viaBorder;
+            }
+
+        return next;
+    }//fim de automaton()
+
+    /*[04]----------------------------------------------------------------------
+    *   Retorna quantos arranjos de divisors[k] elementos, dentro de bound[k],
+    *   levam o automato de algum estado s de volta a s sem completar nenhum
+    *   padrao. Cada um eh contado uma unica vez: lido repetidamente, o
+    *   automato passa a depender apenas dos ultimos m elementos lidos, entao
+    *   dois ciclos sobre o mesmo arranjo acabam coincidindo.
+    --------------------------------------------------------------------------*/
+    private long closedWalks(int k, int[] u, int[] next, int states, long[] dp)
+    {
+        int d = divisors[k];
+        int[] g = bound[k];
+        int types = g.length;
+
+        int[] step = new int[types];
+        for (int t = 0; t < types; t++) step[t] = weight[k][t] * states;
+
+        int[] type = new int[states - 1];
+        for (int i = 0; i < type.length; i++)
+            type[i] = Arrays.binarySearch(element, u[i]);
+
+        int[] limit = new int[types];
+        int[] used = new int[types];
+        boolean[] closes = new boolean[states];
+        long total = 0;
+
+        for (int s = 0; s < states; s++)
+        {
+            /*
+            Se s <= d, o estado s na posicao 0 significa que y termina em
+            u[0..s-1]. Estes s elementos nao precisam entrar na programacao
+            dinamica: basta saber de quais estados a leitura deles leva a s.
+            */
+            int forced = (s <= d) ? s : 0;
+
+            System.arraycopy(g, 0, limit, 0, types);
+            boolean fits = true;
+            for (int i = 0; i < forced; i++)
+                if (--limit[type[i]] < 0) fits = false;
+            if (!fits) continue;
+
+            for (int q = 0; q < states; q++)
+            {
+                int state = q;
+                for (int i = 0; (i < forced) && (state >= 0); i++)
+                    state = next[state * types + type[i]];
+                closes[q] = (state == s);
+            }
+
+            int free = d - forced;
+            int size = (int)vectors[k];
+            Arrays.fill(dp, 0, size * states, 0);
+            dp[s] = 1;
+
+            Arrays.fill(used, 0);
+            int length = 0;
+            int v = 0;
+
+            /*
+            Acrescentar um elemento aumenta o indice das quantidades usadas,
+            entao percorrer os indices em ordem crescente processa cada
+            posicao de dp depois de todas as que contribuem para ela. Soh sao
+            visitados os indices dentro de limit.
+            */
+            while (true)
+            {
+                int base = v * states;
+
+                if (length == free)
+                {
+                    for (int q = 0; q < states; q++)
+                        if (closes[q]) total += dp[base + q];
+                }
+                else if (length < free)
+                    for (int q = 0; q < states; q++)
+                    {
+                        long ways = dp[base + q];
+                        if (ways == 0) continue;
+
+                        int row = q * types;
+                        for (int t = 0; t < types; t++)
+                        {
+                            int to = next[row + t];
+                            if ((to >= 0) && (used[t] < limit[t]))
+                                dp[base + step[t] + to] += ways;
+                        }
+                    }
+
+                //passa as quantidades usadas para as do proximo indice
+                int t = 0;
+                for (; t < types; t++)
+                {
+                    if (used[t] < limit[t])
+                    {
+                        used[t]++;
+                        length++;
+                        v += weight[k][t];
+                        break;
+                    }
+                    length -= used[t];
+                    v -= used[t] * weight[k][t];
+                    used[t] = 0;
+                }
+                if (t == types) break;
+            }
+        }
+
+        return total;
+    }//fim de closedWalks()
+
+}//fim da classe NecklaceCounter
@@ -3,6 +3,7 @@ package br.com.hkp.classes.math.combinatorial;
 
 import br.com.hkp.classes.math.XMath;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 /**
  * Metodos para resolver problemas de analise combinatoria relativos a
@@ -67,6 +68,11 @@ import java.util.Arrays;
  */
 public class Permutation extends Combinatorial
 {
+    /*
+    Ateh este numero de elementos, lehmerUnrank() remove os elementos
+    escolhidos de um array, o que eh mais rapido que a arvore de Fenwick.
+    */
+    private static final int SMALL_SET = 64;
                
     /**
      * Inicializa um objeto Permutation 
@@ -75,12 +81,15 @@ public class Permutation extends Combinatorial
      * @param r Quantos elementos em cada permutacao.
      * 
      * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     * 
+     * @throws ArithmeticException Se o numero de permutacoes nao couber em um
+     * long.
      */
     /*[01]----------------------------------------------------------------------
     *                       Construtor da classe
     --------------------------------------------------------------------------*/
     public Permutation(int n, int r)
-        throws IllegalArgumentException
+        throws IllegalArgumentException, ArithmeticException
     {
         this(n,r, XMath.nPr(n, r));
     }//fim do construtor Permutation()
@@ -229,37 +238,319 @@ public class Permutation extends Combinatorial
     @Override
     public int[] getSubSet(long subSetIndex)
     {
-        int[] permutation = new int[subSetCardinality];
+        return lehmerUnrank
+        (
+            subSetIndex, setCardinality, new int[subSetCardinality], 0, 0
+        );
+    }//fim de getSubSet()
+     
+    
+    /**
+     * Retorna um Stream sequencial com todas as permutacoes de n elementos
+     * tomados r a r, em ordem lexografica. Se tornado paralelo com parallel(),
+     * as permutacoes sao divididas em intervalos de indices e cada intervalo eh
+     * gerado por um objeto Permutation proprio. Veja {@link
+     * CombinatorialSpliterator}.
+     *
+     * @param n A cardinalidade do conjunto.
+     * @param r A cardinalidade de cada subconjunto.
+     *
+     * @return Um Stream com as permutacoes.
+     *
+     * @throws IllegalArgumentException Nas mesmas condicoes do construtor
+     * {@link #Permutation(int, int) }.
+     *
+     * @throws ArithmeticException Se o numero de permutacoes nao couber em um
+     * long.
+     */
+    /*[05]----------------------------------------------------------------------
+    *                   Retorna um Stream com as permutacoes
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int n, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        return CombinatorialSpliterator.stream
+        (
+            () -> new Permutation(n, r)
+        );
+    }//fim de stream()
+    
+    /**
+     * Retorna o indice lexografico de uma permutacao, o inverso de 
+     * {@link #getSubSet(long) }. O indice eh calculado pelo codigo de Lehmer
+     * da permutacao, contando para cada elemento quantos menores que ele jah
+     * foram usados. Com n <= 64 os elementos usados sao bits de um long, e a
+     * contagem eh O(1). Com r pequeno em relacao a n ficam em um array
+     * ordenado de r posicoes, em O(r^2) operacoes simples no total. Soh quando
+     * r se aproxima de n eh usada uma arvore de Fenwick de n posicoes, em
+     * O(n + r log n).
+     * 
+     * @param subSet Uma permutacao: r elementos distintos do intervalo 
+     * [0, n - 1].
+     * 
+     * @return O indice da permutacao, no intervalo 
+     * [0, {@link #getNumberOfSubSets() } - 1].
+     * 
+     * @throws IllegalArgumentException Se subSet nao for uma permutacao que
+     * este objeto possa gerar.
+     */
+    /*[06]----------------------------------------------------------------------
+    *             Retorna o indice lexografico de uma permutacao
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        return rank(subSet, null);
+    }//fim de rank()
+    
+    /**
+     * Calcula o indice lexografico de cada permutacao de um array de 
+     * permutacoes, reaproveitando a mesma arvore de Fenwick para todas.
+     * 
+     * @param subSets As permutacoes.
+     * @param dest O array que recebe os indices: dest[i] serah o indice de
+     * subSets[i]. Deve ter ao menos subSets.length posicoes.
+     * 
+     * @return O proprio array dest.
+     * 
+     * @throws IllegalArgumentException Se dest for menor que subSets, ou se 
+     * alguma das permutacoes nao puder ser gerada por este objeto.
+     */
+    /*[06B]---------------------------------------------------------------------
+    *       Calcula o indice lexografico de cada permutacao de um array
+    --------------------------------------------------------------------------*/
+    @Override
+    public long[] rank(int[][] subSets, long[] dest)
+        throws IllegalArgumentException
+    {
+        if (dest.length < subSets.length) throw new
+            IllegalArgumentException("Array is too short.");
         
-        int[] set = new int[setCardinality];
-        for (int i = 0; i < setCardinality; set[i] = i++);
+        //uma soh arvore, reaproveitada por todas as permutacoes do lote
+        FenwickTree tree = (setCardinality > SMALL_SET) ?
+                           new FenwickTree(setCardinality) : null;
         
-        int elementPosition; 
+        for (int i = 0; i < subSets.length; i++)
+            dest[i] = rank(subSets[i], tree);
         
-        int k = setCardinality - 1;
- 
-        long dv = getNumberOfSubSets();
-           
-        for (int i = 0; i < subSetCardinality; i++)
+        return dest;
+    }//fim de rank()
+    
+    /*[06C]---------------------------------------------------------------------
+    *   Retorna o indice de uma permutacao usando uma arvore de Fenwick com 
+    *   todos os contadores em 0, e que continua assim quando o metodo retorna,
+    *   ou null para que lehmerRank() crie uma se precisar. Eh sobrescrito por
+    *   CyclicPermutation.
+    --------------------------------------------------------------------------*/
+    long rank(int[] subSet, FenwickTree tree)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != subSetCardinality) throw new
+            IllegalArgumentException("Invalid permutation.");
+        
+        return lehmerRank(subSet, 0, 0, setCardinality, tree);
+    }//fim de rank()
+    
+    /*[06D]---------------------------------------------------------------------
+    *   Retorna o indice lexografico de p[start..], interpretado como uma 
+    *   permutacao dos elementos [0, n - 1] somados a offset. 
+    *
+    *   O elemento na posicao i eh precedido, em ordem lexografica, pelas
+    *   permutacoes que coincidem com p ateh a posicao i - 1 e tem na posicao i
+    *   um dos d elementos menores ainda nao usados. Cada um deles inicia
+    *   (n - i - 1)(n - i - 2)...(n - r + 1) permutacoes, e o indice eh a soma
+    *   destes produtos, calculada pela regra de Horner.
+    *
+    *   Os elementos usados sao marcados nos bits de um long se n <= 64, ou
+    *   mantidos em um array ordenado se forem poucos ( veja usesTree() ), ou
+    *   marcados em uma arvore de Fenwick, que eh devolvida zerada. Se tree
+    *   for null e a arvore for necessaria ela eh criada.
+    --------------------------------------------------------------------------*/
+    static long lehmerRank(int[] p, int start, int offset, int n, 
+                           FenwickTree tree)
+        throws IllegalArgumentException
+    {
+        long index = 0;
+        
+        if (n <= 64)
         {
-            dv /= (setCardinality - i);
+            long used = 0;
             
-            elementPosition = (int)(subSetIndex / dv);
-          
-            subSetIndex = subSetIndex % dv;
-         
-            permutation[i] = set[elementPosition];
-           
-            for (int j = elementPosition; j < k; set[j] = set[++j]);
-              
-            k--;
-           
-        }//fim do for i
-          
-        return permutation;
+            for (int i = start; i < p.length; i++)
+            {
+                int element = p[i] - offset;
+
+                if ((element < 0) || (element >= n) ||
+                    ((used & (1L << element)) != 0)) throw new
+                    IllegalArgumentException("Invalid permutation.");
+
+                int usedBefore = Long.bitCount(used & ((1L << element) - 1));
+                used |= 1L << element;
+
+                index = index * (n - (i - start)) + (element - usedBefore);
+            }
+            
+            return index;
+        }
         
-    }//fim de getSubSet()
-     
+        if (!usesTree(p.length - start, n))
+        {
+            /*
+            A posicao em que element seria inserido no array ordenado dos
+            elementos jah usados eh quantos deles sao menores que element.
+            */
+            int[] used = new int[p.length - start];
+            
+            for (int i = start, m = 0; i < p.length; i++, m++)
+            {
+                int element = p[i] - offset;
+                
+                int usedBefore = (element < 0) || (element >= n) ? 0 :
+                                 Arrays.binarySearch(used, 0, m, element);
+                
+                if (usedBefore >= 0) throw new
+                    IllegalArgumentException("Invalid permutation.");
+                
+                usedBefore = -usedBefore - 1;
+                System.arraycopy(used, usedBefore, used, usedBefore + 1,
+                                 m - usedBefore);
+                used[usedBefore] = element;
+                
+                index = index * (n - (i - start)) + (element - usedBefore);
+            }
+            
+            return index;
+        }
+        
+        if (tree == null) tree = new FenwickTree(n);
+        
+        for (int i = start; i < p.length; i++)
+        {
+            int element = p[i] - offset;
+            
+            int usedBefore = (element < 0) || (element >= n) ? -1 :
+                             tree.sum(element);
+            
+            if ((usedBefore < 0) || (tree.sum(element + 1) != usedBefore))
+            {
+                for (int j = start; j < i; j++) tree.add(p[j] - offset, -1);
+                throw new IllegalArgumentException("Invalid permutation.");
+            }
+            
+            tree.add(element, 1);
+            
+            index = index * (n - (i - start)) + (element - usedBefore);
+        }
+        
+        for (int i = start; i < p.length; i++) tree.add(p[i] - offset, -1);
+        
+        return index;
+    }//fim de lehmerRank()
+    
+    /*[06E]---------------------------------------------------------------------
+    *   O inverso de lehmerRank(): grava em dest[start..] a permutacao de
+    *   indice index dos elementos [0, n - 1] somados a offset, e retorna dest.
+    *
+    *   Os digitos do codigo de Lehmer sao extraidos da direita para a
+    *   esquerda, por divisoes sucessivas pelas bases n - r + 1, ..., n, e
+    *   gravados em dest. Depois, da esquerda para a direita, cada digito d eh
+    *   substituido pelo (d + 1)-esimo elemento ainda disponivel. Para
+    *   conjuntos pequenos os elementos disponiveis ficam em um array, do qual
+    *   o elemento escolhido eh removido deslocando os seguintes. Nos maiores,
+    *   se forem escolhidos poucos elementos ( veja usesTree() ), o digito eh
+    *   ajustado contra um array ordenado dos jah escolhidos, em O(r^2) no
+    *   total. Senao os elementos disponiveis sao localizados em O(log n) por
+    *   uma arvore de Fenwick.
+    --------------------------------------------------------------------------*/
+    static int[] lehmerUnrank(long index, int n, int[] dest, int start,
+                              int offset)
+    {
+        for (int i = dest.length - 1; i > start; i--)
+        {
+            int base = n - (i - start);
+            
+            //divisao de int, mais rapida, assim que o indice couber em um int
+            if (index <= Integer.MAX_VALUE)
+            {
+                int x = (int)index;
+                dest[i] = x % base;
+                index = x / base;
+            }
+            else
+            {
+                dest[i] = (int)(index % base);
+                index /= base;
+            }
+        }
+        if (start < dest.length) dest[start] = (int)index;
+        
+        if (n <= SMALL_SET)
+        {
+            int[] set = new int[n];
+            for (int i = 0; i < n; set[i] = i++);
+            
+            for (int i = start; i < dest.length; i++)
+            {
+                int position = dest[i];
+                dest[i] = set[position] + offset;
+                System.arraycopy(set, position + 1, set, position,
+                                 n - (i - start) - position - 1);
+            }
+            
+            return dest;
+        }
+        
+        if (!usesTree(dest.length - start, n))
+        {
+            /*
+            Cada elemento jah escolhido menor ou igual ao candidato o empurra
+            uma posicao adiante entre os disponiveis.
+            */
+            int[] chosen = new int[dest.length - start];
+            
+            for (int i = start, m = 0; i < dest.length; i++, m++)
+            {
+                int element = dest[i];
+                int position = 0;
+                while ((position < m) && (chosen[position] <= element))
+                {
+                    element++;
+                    position++;
+                }
+                
+                System.arraycopy(chosen, position, chosen, position + 1,
+                                 m - position);
+                chosen[position] = element;
+                dest[i] = element + offset;
+            }
+            
+            return dest;
+        }
+        
+        FenwickTree available = new FenwickTree(n, 1);
+        
+        for (int i = start; i < dest.length; i++)
+        {
+            int element = available.select(dest[i]);
+            available.add(element, -1);
+            dest[i] = element + offset;
+        }
+        
+        return dest;
+    }//fim de lehmerUnrank()
+    
+    /*[06F]---------------------------------------------------------------------
+    *   Decide se lehmerRank() e lehmerUnrank() devem usar uma arvore de 
+    *   Fenwick para r elementos escolhidos entre n. Um array ordenado dos 
+    *   elementos escolhidos custa O(r^2) no total, sem depender de n; a arvore
+    *   custa O(n) soh para ser criada. Para n <= 64 nenhum dos dois eh usado.
+    --------------------------------------------------------------------------*/
+    static boolean usesTree(int r, int n)
+    {
+        return (n > SMALL_SET) && ((long)r * r > n);
+    }//fim de usesTree()
+    
     
     /**
      * Exemplo de utilizacao da classe
@@ -0,0 +1,397 @@
+/*arquivo PlainChangesPermutation.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import br.com.hkp.classes.math.XMath;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Gera as n! permutacoes de n elementos na ordem de Steinhaus-Johnson-Trotter
+ * ( "plain changes" ), em vez da ordem lexografica de {@link Permutation}.
+ * <p>
+ * Nesta ordem cada permutacao difere da anterior pela troca de dois elementos
+ * em posicoes vizinhas, e a permutacao de indice 0 difere assim da ultima.
+ * Depois de cada chamada a {@link #nextSubSet() } o metodo
+ * {@link #getSwappedPosition() } retorna a posicao p tal que as posicoes p e
+ * p + 1 foram trocadas. Quem avalia as permutacoes de forma incremental ( o
+ * custo de uma rota, por exemplo ) pode entao atualizar o valor em tempo O(1),
+ * considerando apenas as posicoes vizinhas de p e p + 1.
+ * <p>
+ * Os indices usados por {@link #getSubSet(long) }, {@link #rank(int[]) } e
+ * {@link #setNextIndex(long) } sao os desta ordem. O maior elemento percorre
+ * as posicoes da permutacao alternadamente da direita para a esquerda e da
+ * esquerda para a direita, enquanto os demais ficam parados. Ao chegar ao
+ * extremo, o elemento imediatamente menor faz um passo na sua propria direcao,
+ * e assim recursivamente ( algoritmo P de Knuth, TAOCP vol. 4A, secao
+ * 7.2.1.2 ).
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class PlainChangesPermutation extends Combinatorial
+{
+    /*
+    Para cada elemento e, digit[e] em [0, e] eh quantos passos e jah deu na
+    passagem corrente, leftward[e] se esta passagem eh para a esquerda, e
+    position[e] a posicao de e em currentSubSet. O indice da permutacao
+    corrente eh o numero de base mista com digitos digit[1], ..., digit[n - 1],
+    em que digit[e] tem base e + 1.
+
+    Sao criados por Initializer(), pois setNextIndex() os usa jah no construtor
+    de Combinatorial.
+    */
+    private int[] digit;
+    private boolean[] leftward;
+    private int[] position;
+
+    /*
+    A posicao p trocada com p + 1 na ultima chamada de nextSubSet(), ou -1.
+    */
+    private int swappedPosition = -1;
+
+    /**
+     * Inicializa um objeto PlainChangesPermutation que gera as n! permutacoes
+     * dos elementos do conjunto {0, 1, ..., n - 1}.
+     *
+     * @param n Numero de elementos a serem permutados
+     *
+     * @throws IllegalArgumentException Se n for negativo.
+     *
+     * @throws ArithmeticException Se n! nao couber em um long.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                       Construtor da classe
+    --------------------------------------------------------------------------*/
+    public PlainChangesPermutation(int n)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        super(n, n, XMath.nPr(n, n));
+    }//fim de PlainChangesPermutation()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Cria os arrays usados por setNextIndex() e nextSubSet()
+    --------------------------------------------------------------------------*/
+    @Override
+    protected void Initializer()
+    {
+        digit = new int[setCardinality];
+        leftward = new boolean[setCardinality];
+        position = new int[setCardinality];
+    }//fim de Initializer()
+
+    /*[02]----------------------------------------------------------------------
+    *   Gera a permutacao sucessora. Como nao eh a sucessora lexografica, toda
+    *   a atualizacao eh feita na primeira chamada, com i = n - 1, e o metodo
+    *   sempre retorna true.
+    *
+    *   Os elementos cujo digito jah atingiu o maximo terminaram sua passagem:
+    *   o digito volta a 0 e a direcao se inverte. O maior elemento que nao
+    *   terminou troca de posicao com o vizinho na sua direcao.
+    --------------------------------------------------------------------------*/
+    @Override
+    protected boolean changeCurrentSubSetAtIPos(int i)
+    {
+        int e = setCardinality - 1;
+
+        while ((e > 0) && (digit[e] == e))
+        {
+            digit[e] = 0;
+            leftward[e] = !leftward[e];
+            e--;
+        }
+
+        if (e > 0)
+        {
+            digit[e]++;
+            int p = position[e];
+            swap(leftward[e] ? p - 1 : p);
+        }
+        else if (setCardinality > 1)
+        {
+            /*
+            A permutacao corrente eh a ultima, {1, 0, 2, ..., n - 1}, e a
+            sucessora eh a de indice 0, em que todos iniciam para a esquerda.
+            */
+            Arrays.fill(leftward, true);
+            swap(0);
+        }
+
+        return true;
+
+    }//fim de changeCurrentSubSetAtIPos()
+
+    /*[02B]---------------------------------------------------------------------
+    *   Troca os elementos das posicoes p e p + 1 de currentSubSet
+    --------------------------------------------------------------------------*/
+    private void swap(int p)
+    {
+        int a = currentSubSet[p];
+        int b = currentSubSet[p + 1];
+        currentSubSet[p] = b;
+        currentSubSet[p + 1] = a;
+        position[a] = p + 1;
+        position[b] = p;
+        swappedPosition = p;
+    }//fim de swap()
+
+    /*[03]----------------------------------------------------------------------
+    *   Nada a fazer: changeCurrentSubSetAtIPos() jah gerou toda a permutacao
+    --------------------------------------------------------------------------*/
+    @Override
+    protected void updateCurrentSubSetAfterIPos(int i)
+    {
+
+    }//fim de updateCurrentSubSetAfterIPos()
+
+    /**
+     * Calcula e retorna a permutacao de indice subSetIndex nesta ordem, com
+     * indices no intervalo [0, {@link #getNumberOfSubSets() } - 1].
+     *
+     * @param subSetIndex O indice da permutacao. Nenhuma checagem eh feita para
+     * nao degradar o desempenho do metodo. Portanto deve ser verificado antes
+     * se o indice passado ao metodo eh valido, caso contrario o resultado
+     * retornado serah incorreto.
+     *
+     * @return A permutacao de indice subSetIndex.
+     */
+    /*[04]----------------------------------------------------------------------
+    *   Retorna uma enesima permutacao. Os elementos sao inseridos em ordem
+    *   crescente: e eh inserido entre os elementos menores que ele, digit[e]
+    *   passos a partir da direita se o indice formado pelos digitos dos
+    *   elementos menores for par, ou a partir da esquerda se for impar.
+    --------------------------------------------------------------------------*/
+    @Override
+    public int[] getSubSet(long subSetIndex)
+    {
+        if (setCardinality == 0) return EMPTY_SET;
+
+        int[] d = new int[setCardinality];
+
+        for (int e = setCardinality - 1; e > 0; e--)
+        {
+            d[e] = (int)(subSetIndex % (e + 1));
+            subSetIndex /= e + 1;
+        }
+
+        int[] subSet = new int[setCardinality];
+        int parity = 0;
+
+        for (int e = 1; e < setCardinality; e++)
+        {
+            int p = (parity == 0) ? e - d[e] : d[e];
+            System.arraycopy(subSet, p, subSet, p + 1, e - p);
+            subSet[p] = e;
+            parity = ((e + 1) & parity & 1) ^ (d[e] & 1);
+        }
+
+        return subSet;
+    }//fim de getSubSet()
+
+    /**
+     * Ajusta o indice da proxima permutacao que sera gerada quando for
+     * chamado o metodo nextSubSet(). Ateh a proxima chamada de nextSubSet(),
+     * {@link #getSwappedPosition() } retorna -1.
+     *
+     * @param next O indice da proxima permutacao retornada pelo metodo
+     * nextSubSet(). Indices invalidos fora do intervalo
+     * [0, numberOfSubSets - 1] serao ignorados.
+     */
+    /*[04B]---------------------------------------------------------------------
+    *   Ajusta qual serah a proxima permutacao retornada pelo metodo
+    *   nextSubSet(), recalculando digitos, direcoes e posicoes a partir do
+    *   indice da permutacao corrente.
+    --------------------------------------------------------------------------*/
+    @Override
+    public void setNextIndex(long next)
+    {
+        if ((next < 0) || (next >= getNumberOfSubSets())) return;
+
+        super.setNextIndex(next);
+        swappedPosition = -1;
+
+        long index = ((next == 0) ? getNumberOfSubSets() : next) - 1;
+
+        for (int e = setCardinality - 1; e > 0; e--)
+        {
+            digit[e] = (int)(index % (e + 1));
+            index /= e + 1;
+        }
+
+        int parity = 0;
+
+        for (int e = 1; e < setCardinality; e++)
+        {
+            leftward[e] = (parity == 0);
+            parity = ((e + 1) & parity & 1) ^ (digit[e] & 1);
+        }
+
+        for (int p = 0; p < setCardinality; p++)
+            position[currentSubSet[p]] = p;
+    }//fim de setNextIndex()
+
+    /**
+     * A posicao p tal que as posicoes p e p + 1 foram trocadas na ultima
+     * chamada de um dos metodos nextSubSet().
+     *
+     * @return A posicao p, ou -1 se nextSubSet() nao foi chamado desde a
+     * criacao do objeto ou a ultima chamada de setNextIndex(), ou se n for
+     * menor que 2.
+     */
+    /*[05]----------------------------------------------------------------------
+    *       Retorna a posicao trocada na ultima chamada de nextSubSet()
+    --------------------------------------------------------------------------*/
+    public int getSwappedPosition()
+    {
+        return swappedPosition;
+    }//fim de getSwappedPosition()
+
+    /**
+     * Retorna o indice de uma permutacao nesta ordem.
+     *
+     * @param subSet Uma permutacao dos elementos {0, 1, ..., n - 1}.
+     *
+     * @return O indice de subSet, no intervalo [0, numberOfSubSets - 1].
+     *
+     * @throws IllegalArgumentException Se subSet nao for uma permutacao que
+     * este objeto possa gerar.
+     */
+    /*[06]----------------------------------------------------------------------
+    *   Retorna o indice de uma permutacao. O digito de cada elemento e eh
+    *   obtido de quantos elementos menores que e estao a sua esquerda,
+    *   contados da direita ou da esquerda conforme a paridade do indice
+    *   formado pelos digitos dos elementos menores. Como n <= 20, a contagem
+    *   direta eh suficiente.
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != setCardinality) throw new
+            IllegalArgumentException("Invalid permutation.");
+
+        int[] pos = new int[setCardinality];
+        Arrays.fill(pos, -1);
+
+        for (int p = 0; p < setCardinality; p++)
+        {
+            int element = subSet[p];
+
+            if ((element < 0) || (element >= setCardinality) ||
+                (pos[element] != -1))
+                throw new IllegalArgumentException("Invalid permutation.");
+
+            pos[element] = p;
+        }
+
+        long index = 0;
+
+        for (int e = 1; e < setCardinality; e++)
+        {
+            int smallerBefore = 0;
+            for (int x = 0; x < e; x++) if (pos[x] < pos[e]) smallerBefore++;
+
+            index = index * (e + 1) +
+                    (((index & 1) == 0) ? e - smallerBefore : smallerBefore);
+        }
+
+        return index;
+    }//fim de rank()
+
+    /**
+     * Retorna um Stream sequencial com as n! permutacoes, nesta ordem. Veja
+     * {@link CombinatorialSpliterator}.
+     *
+     * @param n Numero de elementos a serem permutados.
+     *
+     * @return Um Stream com as permutacoes.
+     *
+     * @throws IllegalArgumentException Se n for negativo.
+     *
+     * @throws ArithmeticException Se n! nao couber em um long.
+     */
+    /*[07]----------------------------------------------------------------------
+    *                 Retorna um Stream com as permutacoes
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int n)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        return CombinatorialSpliterator.stream
+        (
+            () -> new PlainChangesPermutation(n)
+        );
+    }//fim de stream()
+
+    /**
+     * Um metodo para testar a classe
+     *
+     * @param args Argumentos de linha de comando
+     */
+    public static void main(String[] args)
+    {
+        PlainChangesPermutation pc = new PlainChangesPermutation(4);
+
+        System.out.println("Permutacoes 4P4 na ordem plain changes...\n");
+
+        while (!pc.wasTheLast())
+        {
+            long index = pc.getNextIndex();
+            int[] p = pc.nextSubSet();
+            System.out.println(index + " " + Arrays.toString(p) + " troca " +
+                               pc.getSwappedPosition() + " rank " +
+                               pc.rank(p));
+        }
+
+        /*
+        Comprimento de uma rota ciclica por 11 pontos, atualizado em O(1) a
+        cada permutacao, comparado com o recalculo sobre as 11 arestas a cada
+        permutacao de Permutation.
+        */
+        int n = 11;
+        long[][] dist = new long[n][n];
+        for (int a = 0; a < n; a++)
+            for (int b = 0; b < n; b++)
+                dist[a][b] = (a == b) ? 0 : ((a + 1) * (b + 1) * 7919L) % 100 + 1;
+
+        long t = System.currentTimeMillis();
+        long best = Long.MAX_VALUE;
+        Permutation lex = new Permutation(n, n);
+        for (long i = 0; i < lex.getNumberOfSubSets(); i++)
+        {
+            int[] p = lex.nextSubSetView();
+            long length = dist[p[n - 1]][p[0]];
+            for (int k = 1; k < n; k++) length += dist[p[k - 1]][p[k]];
+            if (length < best) best = length;
+        }
+        System.out.println("\nPermutation             : menor rota " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+        t = System.currentTimeMillis();
+        pc = new PlainChangesPermutation(n);
+        int[] p = pc.getSubSet(pc.getNumberOfSubSets() - 1);
+        long length = dist[p[n - 1]][p[0]];
+        for (int k = 1; k < n; k++) length += dist[p[k - 1]][p[k]];
+        best = Long.MAX_VALUE;
+        for (long i = 0; i < pc.getNumberOfSubSets(); i++)
+        {
+            /*
+            a estava na posicao s e b na posicao s + 1. Mudam apenas as arestas
+            entre eles e os seus vizinhos ( a rota eh ciclica ).
+            */
+            p = pc.nextSubSetView();
+            int s = pc.getSwappedPosition();
+            int a = p[s + 1];
+            int b = p[s];
+            int before = p[(s + n - 1) % n];
+            int after = p[(s + 2) % n];
+            length += dist[before][b] + dist[b][a] + dist[a][after]
+                    - dist[before][a] - dist[a][b] - dist[b][after];
+            if (length < best) best = length;
+        }
+        System.out.println("PlainChangesPermutation : menor rota " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+    }//fim de main()
+
+}//fim da classe PlainChangesPermutation
@@ -0,0 +1,392 @@
+/*arquivo RevolvingDoorCombination.java*/
+package br.com.hkp.classes.math.combinatorial;
+
+import br.com.hkp.classes.math.XMath;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Gera as combinacoes de n elementos tomados r a r na ordem "revolving door"
+ * ( porta giratoria ), em vez da ordem lexografica de {@link Combination}.
+ * <p>
+ * Nesta ordem cada combinacao difere da anterior por exatamente um elemento:
+ * um elemento sai e outro entra. Inclusive a combinacao de indice 0 difere
+ * desta forma da ultima, de modo que o ciclo de {@link #nextSubSet() } nunca
+ * faz mais que uma troca. Depois de cada chamada a nextSubSet() os metodos
+ * {@link #getElementOut() } e {@link #getElementIn() } informam qual foi a
+ * troca, e quem avalia as combinacoes de forma incremental ( uma soma de
+ * pesos, por exemplo ) pode atualizar o valor em tempo O(1) em vez de
+ * recalcula-lo sobre os r elementos. Um objeto novo comeca pelo indice 0, e
+ * a primeira chamada a nextSubSet() informa a troca da ultima combinacao para
+ * esta; por isso a soma parte da ultima combinacao:
+ * <pre>
+ * {@code
+ * RevolvingDoorCombination c = new RevolvingDoorCombination(n, r);
+ * double sum = 0;
+ * for (int e : c.getSubSet(c.getNumberOfSubSets() - 1)) sum += weight[e];
+ *
+ * for (long i = 0; i < c.getNumberOfSubSets(); i++)
+ * {
+ *     c.nextSubSet();
+ *     sum += weight[c.getElementIn()] - weight[c.getElementOut()];
+ * }
+ * }
+ * </pre>
+ * Os arranjos continuam sendo retornados com os elementos em ordem crescente,
+ * e os indices usados por {@link #getSubSet(long) }, {@link #rank(int[]) } e
+ * {@link #setNextIndex(long) } sao os da ordem revolving door. A sequencia eh
+ * gerada pelo algoritmo R de Knuth ( TAOCP vol. 4A, secao 7.2.1.3 ).
+ * <p>
+ * O conjunto considerado para se obter combinacoes serah o conjunto de inteiros
+ * sucessivos, com seus elementos pertencendo ao intervalo [0 , N - 1].
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class RevolvingDoorCombination extends Combinatorial
+{
+    /*
+    O elemento que saiu e o que entrou na combinacao na ultima chamada de
+    nextSubSet(). Valem -1 antes da primeira chamada e depois de cada chamada
+    de setNextIndex().
+    */
+    private int elementOut = -1;
+    private int elementIn = -1;
+
+    /**
+     * Inicializa um objeto RevolvingDoorCombination para obter as combinacoes
+     * de r elementos de um conjunto de n elementos.
+     *
+     * @param n O numero de elementos em um conjunto de numeros inteiros no
+     * intervalo [0, n-1]
+     * @param r Quantos elementos terah cada subconjunto extraido.
+     *
+     * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     *
+     * @throws ArithmeticException Se o numero de combinacoes nao couber em um
+     * long.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                   O construtor da classe
+    --------------------------------------------------------------------------*/
+    public RevolvingDoorCombination(int n, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        super(n, r, XMath.nCr(n, r));
+    }//fim de RevolvingDoorCombination()
+
+    /*[02]----------------------------------------------------------------------
+    *   Gera a combinacao sucessora na ordem revolving door. Como a troca nao
+    *   segue a regra lexografica de Combinatorial ( a ultima posicao que pode
+    *   ser incrementada ), toda a atualizacao eh feita na primeira chamada,
+    *   com i = r - 1, e o metodo sempre retorna true.
+    *
+    *   Eh o algoritmo R de Knuth, com c[r] = n como sentinela: se r for impar
+    *   tenta incrementar c[0], se for par tenta decrementa-lo. Se nao puder,
+    *   percorre as posicoes seguintes tentando alternadamente decrementar
+    *   ( R4 ) e incrementar ( R5 ) cada uma.
+    --------------------------------------------------------------------------*/
+    @Override
+    protected boolean changeCurrentSubSetAtIPos(int i)
+    {
+        int[] c = currentSubSet;
+        int r = subSetCardinality;
+
+        if ((r & 1) == 1)
+        {
+            if (c[0] + 1 < ((r > 1) ? c[1] : setCardinality))
+                return change(0, c[0] + 1);
+        }
+        else if (c[0] > 0) return change(0, c[0] - 1);
+
+        boolean decrease = ((r & 1) == 1);
+
+        for (int k = 1; k < r; k++)
+        {
+            if (decrease)
+            {
+                //R4: c[k] eh trocado por c[k - 1], que eh trocado por k - 1
+                if (c[k] > k)
+                {
+                    int out = c[k];
+                    c[k] = c[k - 1];
+                    c[k - 1] = k - 1;
+                    return exchange(out, k - 1);
+                }
+            }
+            else
+            {
+                //R5: c[k - 1] sai, c[k] passa a posicao k - 1 e c[k] + 1 entra
+                int next = (k + 1 < r) ? c[k + 1] : setCardinality;
+
+                if (c[k] + 1 < next)
+                {
+                    int out = c[k - 1];
+                    c[k - 1] = c[k];
+                    c[k]++;
+                    return exchange(out, c[k]);
+                }
+            }
+
+            decrease = !decrease;
+        }//fim do for k
+
+        /*
+        A combinacao corrente eh a ultima, {0, 1, ..., r - 2, n - 1}. A
+        sucessora eh a de indice 0, {0, 1, ..., r - 1}.
+        */
+        c[r - 1] = r - 1;
+        return exchange(setCardinality - 1, r - 1);
+
+    }//fim de changeCurrentSubSetAtIPos()
+
+    /*[02B]---------------------------------------------------------------------
+    *   Troca o elemento da posicao i de currentSubSet por element
+    --------------------------------------------------------------------------*/
+    private boolean change(int i, int element)
+    {
+        int out = currentSubSet[i];
+        currentSubSet[i] = element;
+        return exchange(out, element);
+    }//fim de change()
+
+    /*[02C]---------------------------------------------------------------------
+    *   Registra que out saiu e in entrou na combinacao corrente
+    --------------------------------------------------------------------------*/
+    private boolean exchange(int out, int in)
+    {
+        currentAvailables[out]++;
+        currentAvailables[in]--;
+        elementOut = out;
+        elementIn = in;
+        return true;
+    }//fim de exchange()
+
+    /*[03]----------------------------------------------------------------------
+    *   Nada a fazer: changeCurrentSubSetAtIPos() jah gerou toda a combinacao
+    --------------------------------------------------------------------------*/
+    @Override
+    protected void updateCurrentSubSetAfterIPos(int i)
+    {
+
+    }//fim de updateCurrentSubSetAfterIPos()
+
+    /**
+     * Calcula e retorna a combinacao de indice subSetIndex na ordem revolving
+     * door, com indices no intervalo [0, {@link #getNumberOfSubSets() } - 1].
+     *
+     * @param subSetIndex O indice da combinacao. Nenhuma checagem eh feita para
+     * nao degradar o desempenho do metodo. Portanto deve ser verificado antes
+     * se o indice passado ao metodo eh valido, caso contrario o resultado
+     * retornado serah incorreto.
+     *
+     * @return A combinacao, com os elementos em ordem crescente.
+     */
+    /*[04]----------------------------------------------------------------------
+    *   Retorna uma enesima combinacao. Cada elemento c[i - 1], de i = r ateh
+    *   i = 1, eh o maior x com C(x, i) <= subSetIndex. O indice restante eh
+    *   refletido, C(x + 1, i) - 1 - subSetIndex, porque as combinacoes que
+    *   contem x aparecem em ordem inversa.
+    --------------------------------------------------------------------------*/
+    @Override
+    public int[] getSubSet(long subSetIndex)
+    {
+        if (subSetCardinality == 0) return EMPTY_SET;
+
+        int[] subSet = new int[subSetCardinality];
+        int x = setCardinality;
+
+        for (int i = subSetCardinality; i > 0; i--)
+        {
+            while (BinomialTable.get(x, i) > subSetIndex) x--;
+            subSet[i - 1] = x;
+            subSetIndex = BinomialTable.get(x + 1, i) - 1 - subSetIndex;
+        }
+
+        return subSet;
+    }//fim de getSubSet()
+
+    /**
+     * Ajusta o indice da proxima combinacao que sera gerada quando for
+     * chamado o metodo nextSubSet(). Ateh a proxima chamada de nextSubSet(),
+     * {@link #getElementOut() } e {@link #getElementIn() } retornam -1.
+     *
+     * @param next O indice da proxima combinacao retornada pelo metodo
+     * nextSubSet(). Indices invalidos fora do intervalo
+     * [0, numberOfSubSets - 1] serao ignorados.
+     */
+    /*[04B]---------------------------------------------------------------------
+    *       Ajusta qual serah a proxima combinacao retornada pelo metodo
+    *       nextSubSet()
+    --------------------------------------------------------------------------*/
+    @Override
+    public void setNextIndex(long next)
+    {
+        super.setNextIndex(next);
+        elementOut = -1;
+        elementIn = -1;
+    }//fim de setNextIndex()
+
+    /**
+     * O elemento que saiu da combinacao na ultima chamada de um dos metodos
+     * nextSubSet(). Quando ha uma unica combinacao ( r = n ), o mesmo elemento
+     * sai e entra.
+     *
+     * @return O elemento que saiu, ou -1 se nextSubSet() nao foi chamado desde
+     * a criacao do objeto ou a ultima chamada de setNextIndex(), ou se r = 0.
+     */
+    /*[05]----------------------------------------------------------------------
+    *       Retorna o elemento que saiu na ultima chamada de nextSubSet()
+    --------------------------------------------------------------------------*/
+    public int getElementOut()
+    {
+        return elementOut;
+    }//fim de getElementOut()
+
+    /**
+     * O elemento que entrou na combinacao na ultima chamada de um dos metodos
+     * nextSubSet().
+     *
+     * @return O elemento que entrou, ou -1 se nextSubSet() nao foi chamado
+     * desde a criacao do objeto ou a ultima chamada de setNextIndex(), ou se
+     * r = 0.
+     */
+    /*[05B]---------------------------------------------------------------------
+    *       Retorna o elemento que entrou na ultima chamada de nextSubSet()
+    --------------------------------------------------------------------------*/
+    public int getElementIn()
+    {
+        return elementIn;
+    }//fim de getElementIn()
+
+    /**
+     * Retorna o indice de uma combinacao na ordem revolving door.
+     *
+     * @param subSet Uma combinacao com r elementos em ordem crescente.
+     *
+     * @return O indice de subSet, no intervalo [0, numberOfSubSets - 1].
+     *
+     * @throws IllegalArgumentException Se subSet nao for uma combinacao que
+     * este objeto possa gerar.
+     */
+    /*[06]----------------------------------------------------------------------
+    *   Retorna o indice de uma combinacao. Eh a soma alternada, com sinal
+    *   positivo para i = r, de C(c[i - 1] + 1, i) - 1.
+    --------------------------------------------------------------------------*/
+    @Override
+    public long rank(int[] subSet)
+        throws IllegalArgumentException
+    {
+        if (subSet.length != subSetCardinality) throw new
+            IllegalArgumentException("Invalid combination.");
+
+        long index = 0;
+        int previous = -1;
+
+        for (int i = 1; i <= subSetCardinality; i++)
+        {
+            int element = subSet[i - 1];
+
+            if ((element <= previous) || (element >= setCardinality)) throw new
+                IllegalArgumentException("Invalid combination.");
+
+            long term = BinomialTable.get(element + 1, i) - 1;
+
+            if (((subSetCardinality - i) & 1) == 0)
+                index += term;
+            else
+                index -= term;
+
+            previous = element;
+        }
+
+        return index;
+    }//fim de rank()
+
+    /**
+     * Retorna um Stream sequencial com todas as combinacoes de n elementos
+     * tomados r a r, na ordem revolving door. Veja
+     * {@link CombinatorialSpliterator}.
+     *
+     * @param n A cardinalidade do conjunto.
+     * @param r A cardinalidade de cada subconjunto.
+     *
+     * @return Um Stream com as combinacoes.
+     *
+     * @throws IllegalArgumentException Se r maior que n, ou r ou n negativos.
+     *
+     * @throws ArithmeticException Se o numero de combinacoes nao couber em um
+     * long.
+     */
+    /*[07]----------------------------------------------------------------------
+    *                   Retorna um Stream com as combinacoes
+    --------------------------------------------------------------------------*/
+    public static Stream<int[]> stream(int n, int r)
+        throws IllegalArgumentException, ArithmeticException
+    {
+        return CombinatorialSpliterator.stream
+        (
+            () -> new RevolvingDoorCombination(n, r)
+        );
+    }//fim de stream()
+
+    /**
+     * Um metodo para testar a classe
+     *
+     * @param args Argumentos de linha de comando
+     */
+    public static void main(String[] args)
+    {
+        RevolvingDoorCombination rd = new RevolvingDoorCombination(6, 3);
+
+        System.out.println("Combinacoes 6C3 na ordem revolving door...\n");
+
+        while (!rd.wasTheLast())
+        {
+            long index = rd.getNextIndex();
+            int[] c = rd.nextSubSet();
+            System.out.println(index + " " + Arrays.toString(c) + " sai " +
+                               rd.getElementOut() + " entra " +
+                               rd.getElementIn() + " rank " + rd.rank(c));
+        }
+
+        /*
+        Soma de pesos atualizada em O(1) a cada combinacao 28C10, comparada
+        com a soma recalculada sobre os 10 elementos de Combination.
+        */
+        int n = 28; int r = 10;
+        long[] weight = new long[n];
+        for (int i = 0; i < n; i++) weight[i] = (i * 7919L) % 1000;
+
+        long t = System.currentTimeMillis();
+        long best = 0;
+        Combination lex = new Combination(n, r);
+        for (long i = 0; i < lex.getNumberOfSubSets(); i++)
+        {
+            long sum = 0;
+            for (int e : lex.nextSubSetView()) sum += weight[e];
+            if (sum > best) best = sum;
+        }
+        System.out.println("\nCombination              : maior soma " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+        t = System.currentTimeMillis();
+        rd = new RevolvingDoorCombination(n, r);
+        long sum = 0;
+        for (int e : rd.getSubSet(rd.getNumberOfSubSets() - 1))
+            sum += weight[e];
+        best = 0;
+        for (long i = 0; i < rd.getNumberOfSubSets(); i++)
+        {
+            rd.nextSubSetView();
+            sum += weight[rd.getElementIn()] - weight[rd.getElementOut()];
+            if (sum > best) best = sum;
+        }
+        System.out.println("RevolvingDoorCombination : maior soma " + best +
+                           " em " + (System.currentTimeMillis() - t) +
+                           " milseg");
+
+    }//fim de main()
+
+}//fim da classe RevolvingDoorCombination
@@ -0,0 +1,404 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Versao paralela de {@link SegmentedSieve}. Obtem todos os numeros primos
+ * ateh o valor maximo <b>n</b> passado como argumento para o construtor da
+ * classe, distribuindo os segmentos do intervalo entre os nucleos do
+ * processador.
+ * <p>
+ * Os primos ateh a raiz quadrada de n sao obtidos uma unica vez. Em seguida o
+ * intervalo [3, n] eh dividido em blocos disjuntos de segmentos consecutivos,
+ * e cada bloco eh crivado por uma tarefa de um ForkJoinPool, com seu proprio
+ * conjunto de bits. Como os blocos nao compartilham estado, o tempo cai quase
+ * linearmente com o numero de nucleos.
+ * <p>
+ * O construtor apenas conta os primos e registra o maior deles, sem guardar
+ * nenhum, o que permite usar valores de n maiores que Integer.MAX_VALUE. Se n
+ * nao for maior que Integer.MAX_VALUE, o construtor tambem anota quantos primos
+ * ha em cada bloco. Assim {@link #getPrimeTable() }, na primeira chamada, aloca
+ * a tabela ja no tamanho exato e criva os blocos outra vez em paralelo, cada
+ * tarefa escrevendo seus primos diretamente na sua faixa da tabela. O
+ * resultado eh identico ao de {@link SegmentedSieve} e {@link QuickSieve}.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class ParallelSieve
+{
+    /*
+    Quantos segmentos consecutivos sao crivados por uma mesma tarefa.
+    */
+    private static final int SEGMENTS_PER_TASK = 16;
+
+    /*
+    O limite superior do intervalo de onde sao extraidos os primos.
+    */
+    private final long lastNumber;
+
+    /*
+    O pool onde sao executadas as tarefas do construtor e de getPrimeTable().
+    */
+    private final ForkJoinPool pool;
+
+    /*
+    Todos os primos impares menores ou iguais a raiz quadrada de lastNumber.
+    */
+    private final int[] basePrimes;
+
+    /*
+    Quantos blocos de SEGMENTS_PER_TASK segmentos cobrem o intervalo
+    [3, lastNumber]. Passa de Integer.MAX_VALUE para n perto do limite.
+    */
+    private final long blocks;
+
+    /*
+    Quantos primos ha no intervalo [2, lastNumber]
+    */
+    private final long howManyPrimes;
+
+    /*
+    O maior primo do intervalo [2, lastNumber]
+    */
+    private final long lastPrime;
+
+    /*
+    Quantos primos ha em cada bloco, anotado pelo construtor se lastNumber nao
+    for maior que Integer.MAX_VALUE. Com estes valores getPrimeTable() sabe
+    onde cada bloco comeca na tabela.
+    */
+    private final int[] blockCounts;
+
+    /*
+    A tabela com todos os primos do intervalo. Soh eh criada na primeira
+    chamada a getPrimeTable() ou getList()
+    */
+    private PrimeTable table;
+
+    /**
+     * Construtor da classe. Conta os primos do intervalo [2, n] usando o pool
+     * comum do ForkJoinPool.
+     *
+     * @param n O limite superior do intervalo.
+     *
+     * @throws IllegalArgumentException Excecao lancada se n menor que 2 ou
+     * maior que o quadrado de Integer.MAX_VALUE.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public ParallelSieve(long n)
+        throws IllegalArgumentException
+    {
+        this(n, ForkJoinPool.commonPool());
+    }//fim de ParallelSieve()
+
+    /**
+     * Construtor da classe. Conta os primos do intervalo [2, n] executando as
+     * tarefas no pool passado como argumento.
+     *
+     * @param n O limite superior do intervalo.
+     * @param pool O pool que executarah as tarefas.
+     *
+     * @throws IllegalArgumentException Excecao lancada se n menor que 2 ou
+     * maior que o quadrado de Integer.MAX_VALUE.
+     */
+    /*[01B]---------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public ParallelSieve(long n, ForkJoinPool pool)
+        throws IllegalArgumentException
+    {
+        if ((n < 2) || (Math.sqrt(n) > Integer.MAX_VALUE)) throw new
+            IllegalArgumentException("Unable to create prime's list.");
+
+        lastNumber = n;
+        this.pool = pool;
+
+        basePrimes = SegmentedSieve.oddPrimesUpTo((int)Math.sqrt(n));
+
+        long segments =
+            (n < 3) ? 0 : (n - 3) / (2L * SegmentedSieve.SEGMENT_BITS) + 1;
+        blocks = (segments + SEGMENTS_PER_TASK - 1) / SEGMENTS_PER_TASK;
+
+        /*
+        Com n <= Integer.MAX_VALUE ha poucos blocos, e quantos primos ha em
+        cada um eh anotado para getPrimeTable().
+        */
+        blockCounts = (n > Integer.MAX_VALUE) ? null : new int[(int)blocks];
+
+        /*
+        Cada tarefa retorna quantos primos encontrou e qual o maior deles. O
+        primo 2 nao pertence a nenhum bloco.
+        */
+        long count = 1;
+        long last = 2;
+
+        if (blocks > 0)
+        {
+            SieveTask task = new SieveTask(0, blocks, null, null);
+            pool.invoke(task);
+            count += task.count;
+            if (task.count > 0) last = task.last;
+        }
+
+        howManyPrimes = count;
+        lastPrime = last;
+
+    }//fim de ParallelSieve()
+
+    /*[02]----------------------------------------------------------------------
+    *   Tarefa que criva os blocos [from, to). Divide-se ao meio enquanto
+    *   houver mais de um bloco. Ao terminar, count e last tem quantos primos
+    *   ha nos blocos e qual o maior deles. Se out for null os primos sao
+    *   apenas contados; senao sao escritos em out a partir da posicao
+    *   offset.
+    --------------------------------------------------------------------------*/
+    private final class SieveTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+
+        /*
+        Se nao for null, recebe os primos dos blocos a partir de offset.
+        */
+        private final int[] out;
+        private final int[] offset;
+
+        long count;
+        long last;
+
+        SieveTask(long from, long to, int[] out, int[] offset)
+        {
+            this.from = from;
+            this.to = to;
+            this.out = out;
+            this.offset = offset;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > 1)
+            {
+                long middle = (from + to) >>> 1;
+                SieveTask left = new SieveTask(from, middle, out, offset);
+                SieveTask right = new SieveTask(middle, to, out, offset);
+                invokeAll(left, right);
+
+                count = left.count + right.count;
+                last = (right.count > 0) ? right.last : left.last;
+                return;
+            }
+
+            long span = 2L * SegmentedSieve.SEGMENT_BITS;
+            long low = 3 + from * SEGMENTS_PER_TASK * span;
+            long end = Math.min(lastNumber, low + SEGMENTS_PER_TASK * span - 1);
+
+            long[] bits = new long[SegmentedSieve.SEGMENT_BITS >>> 6];
+
+            int[] at = (out == null) ? null : new int[] {offset[(int)from]};
+
+            for (; low <= end; low += span)
+            {
+                int size = SegmentedSieve.segmentSize(low, end);
+
+                SegmentedSieve.sieveSegment
+                (
+                    low, size, basePrimes, basePrimes.length, bits
+                );
+
+                if (out != null)
+                    SegmentedSieve.forEachPrime
+                    (
+                        low, bits, size, p -> out[at[0]++] = (int)p
+                    );
+
+                int c = SegmentedSieve.countPrimes(bits, size);
+                if (c > 0)
+                {
+                    count += c;
+                    last = low + 2L * SegmentedSieve.lastClearBit(bits, size);
+                }
+            }
+
+            if ((out == null) && (blockCounts != null))
+                blockCounts[(int)from] = (int)count;
+        }
+
+    }//fim da classe SieveTask
+
+    /**
+     * Retorna uma tabela com todos os primos no intervalo de 2 ateh <b>n</b>.
+     * A tabela eh criada na primeira chamada deste metodo, ja com o numero
+     * exato de primos, crivando os blocos outra vez em paralelo.
+     *
+     * @return A tabela com todos os primos do intervalo. Deve ser usada apenas
+     * para leitura.
+     *
+     * @throws UnsupportedOperationException Se n for maior que
+     * Integer.MAX_VALUE, pois a tabela armazena apenas valores int.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para
+     * armazenar a tabela de primos.
+     */
+    /*[03]----------------------------------------------------------------------
+    *                Retorna a tabela com os numeros primos
+    --------------------------------------------------------------------------*/
+    public PrimeTable getPrimeTable()
+        throws UnsupportedOperationException, OutOfMemoryError
+    {
+        if (lastNumber > Integer.MAX_VALUE) throw new
+            UnsupportedOperationException("Primes exceed int range.");
+
+        if (table == null)
+        {
+            int[] primes = new int[(int)howManyPrimes];
+            primes[0] = 2;
+
+            /*
+            O bloco b comeca na tabela logo apos os primos dos blocos
+            anteriores.
+            */
+            int[] offset = new int[blockCounts.length];
+            int at = 1;
+            for (int b = 0; b < blockCounts.length; b++)
+            {
+                offset[b] = at;
+                at += blockCounts[b];
+            }
+
+            if (blocks > 0)
+                pool.invoke(new SieveTask(0, blocks, primes, offset));
+
+            table = new PrimeTable(primes);
+        }
+
+        return table;
+    }//fim de getPrimeTable()
+
+    /**
+     * Retorna uma lista de Integers com todos os primos no intervado de 2 ateh
+     * <b>n</b>. A lista eh gerada na primeira chamada deste metodo.
+     *
+     * @return Uma lista ligada com todos os primos do intervalo. Esta lista
+     * deve ser apenas para leitura, seus elementos não devem ser modificados.
+     * Pois se a lista for alterada ela será passada com essa alteração na
+     * próxima vez em que este método for executado.
+     *
+     * @throws UnsupportedOperationException Se n for maior que
+     * Integer.MAX_VALUE.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para
+     * armazenar a lista de primos.
+     */
+    /*[04]----------------------------------------------------------------------
+    *                Retorna a lista com os numeros primos
+    --------------------------------------------------------------------------*/
+    public LinkedList<Integer> getList()
+        throws UnsupportedOperationException, OutOfMemoryError
+    {
+        return getPrimeTable().getList();
+    }//fim de getList()
+
+    /**
+     * Retorna o maior numero do intervalo.
+     *
+     * @return O limite superior do intervalo de onde foram extraidos os primos.
+     */
+    /*[05]----------------------------------------------------------------------
+    *   Retorna o limite superior do intervalo de onde foram obtidos os primos
+    --------------------------------------------------------------------------*/
+    public long lastNumber()
+    {
+        return lastNumber;
+    }//fim de lastNumber()
+
+    /**
+     * Retorna o maior primo do intervalo.
+     *
+     * @return O maior numero primo do intervalo.
+     */
+    /*[06]----------------------------------------------------------------------
+    *              Retorna o maior numero primo do intervalo
+    --------------------------------------------------------------------------*/
+    public long lastPrime()
+    {
+        return lastPrime;
+    }//fim de lastPrime()
+
+    /**
+     * O numero de primos no intervalo.
+     *
+     * @return Retorna quantos primos ha no intervalo [2, n].
+     */
+    /*[07]----------------------------------------------------------------------
+    *              Retorna quantos primos ha no intervalo
+    --------------------------------------------------------------------------*/
+    public long howManyPrimesOnList()
+    {
+        return howManyPrimes;
+    }//fim de howManyPrimesOnList()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return Quantos primos ha no intervalo, o intervalo de inteiros de onde
+     * foram extraidos os primos e o maior numero primo do intervalo.
+     */
+    /*[08]----------------------------------------------------------------------
+    *            Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return "" + howManyPrimesOnList() +
+               " primes in [2, " + lastNumber() + "] : " +
+               lastPrime() + " is the last prime on list.";
+    }//fim de toString()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        /*
+        Compara com SegmentedSieve para valores que ocupam varios blocos.
+        */
+        int[] values = {2, 3, 4, 100, 8388608, 8388611, 25000000};
+        for (int n: values)
+        {
+            ParallelSieve ps = new ParallelSieve(n);
+            SegmentedSieve ss = new SegmentedSieve(n);
+            PrimeTable pt = ps.getPrimeTable();
+            PrimeTable st = ss.getPrimeTable();
+
+            boolean ok = (ps.howManyPrimesOnList() == ss.howManyPrimesOnList())
+                         && (ps.lastPrime() == ss.lastPrime())
+                         && (pt.size() == st.size());
+            for (int i = 0; ok && (i < pt.size()); i++)
+                ok = (pt.get(i) == st.get(i));
+
+            System.out.println(ps + (ok ? " Ok" : " FALHOU"));
+            if (!ok) System.exit(1);
+        }
+
+        System.out.println
+        (
+            "Nucleos disponiveis: " + Runtime.getRuntime().availableProcessors()
+        );
+
+        long t = System.currentTimeMillis();
+        System.out.println(new ParallelSieve(10000000000L));
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+    }//fim de main()
+
+}//fim da classe ParallelSieve
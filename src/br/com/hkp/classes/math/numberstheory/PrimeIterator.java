@@ -0,0 +1,213 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Um iterador que entrega, em ordem crescente, os numeros primos de um
+ * intervalo que pode nao ter limite superior.
+ * <p>
+ * Nenhum limite precisa ser conhecido de antemao. Os primos sao obtidos por um
+ * crivo segmentado que eh retomado, um segmento por vez, apenas quando os
+ * primos do segmento anterior tiverem sido todos consumidos. Assim a memoria
+ * usada eh a de um segmento mais os primos ateh a raiz quadrada do ultimo
+ * numero alcancado, qualquer que seja a quantidade de primos percorrida.
+ * <p>
+ * Exemplo: soma os primeiros primos enquanto a soma nao ultrapassar 500
+ * <pre>
+ * PrimeIterator it = new PrimeIterator();
+ * long sum = 0;
+ * while (sum + it.peek() &lt;= 500) sum += it.nextLong();
+ * </pre>
+ * Para obter um Stream de primos use {@link PrimeSpliterator#primes() }.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class PrimeIterator implements PrimitiveIterator.OfLong
+{
+    /*
+    O limite superior do intervalo. Se o iterador foi criado sem limite, eh o
+    maior valor aceito pelo crivo.
+    */
+    private final long lastNumber;
+
+    /*
+    O crivo que eh retomado a cada vez que os primos do buffer se esgotam.
+    */
+    private final ResumableSieve sieve;
+
+    /*
+    Os primos do ultimo segmento crivado. Apenas as posicoes
+    [position, size - 1] ainda nao foram entregues.
+    */
+    private long[] buffer;
+    private int size;
+    private int position;
+
+    /**
+     * Cria um iterador sobre todos os primos, a partir de 2 e sem limite
+     * superior.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public PrimeIterator()
+    {
+        this(2, ResumableSieve.MAX_NUMBER);
+    }//fim de PrimeIterator()
+
+    /**
+     * Cria um iterador sobre todos os primos maiores ou iguais a from, sem
+     * limite superior.
+     *
+     * @param from O limite inferior do intervalo.
+     */
+    /*[01B]---------------------------------------------------------------------
+    *     Construtor de um iterador sem limite superior a partir de from
+    --------------------------------------------------------------------------*/
+    public PrimeIterator(long from)
+    {
+        this(from, ResumableSieve.MAX_NUMBER);
+    }//fim de PrimeIterator()
+
+    /**
+     * Cria um iterador sobre os primos do intervalo [from, to].
+     *
+     * @param from O limite inferior do intervalo.
+     * @param to O limite superior do intervalo.
+     *
+     * @throws IllegalArgumentException Se to for maior que o quadrado de
+     * Integer.MAX_VALUE.
+     */
+    /*[01C]---------------------------------------------------------------------
+    *            Construtor de um iterador sobre um intervalo
+    --------------------------------------------------------------------------*/
+    public PrimeIterator(long from, long to)
+        throws IllegalArgumentException
+    {
+        if (to > ResumableSieve.MAX_NUMBER) throw new
+            IllegalArgumentException("Unable to iterate over primes.");
+
+        lastNumber = to;
+        sieve = new ResumableSieve(from);
+        buffer = new long[64];
+        size = 0;
+        position = 0;
+
+        /*
+        O unico primo par entra no buffer antes dos impares crivados.
+        */
+        if ((from <= 2) && (to >= 2)) buffer[size++] = 2;
+    }//fim de PrimeIterator()
+
+    /*[02]----------------------------------------------------------------------
+    *   Se todos os primos do buffer foram entregues, criva o proximo segmento.
+    *   Retorna false se nao houver mais primos no intervalo.
+    --------------------------------------------------------------------------*/
+    private boolean fill()
+    {
+        while (position == size)
+        {
+            long low = sieve.next();
+            if (low > lastNumber) return false;
+
+            size = 0;
+            position = 0;
+
+            long high = Math.min(lastNumber,
+                                 low + 2L * SegmentedSieve.SEGMENT_BITS - 1);
+
+            sieve.sieveTo(high, this::store);
+        }
+        return true;
+    }//fim de fill()
+
+    /*[03]----------------------------------------------------------------------
+    *               Acrescenta um primo ao fim do buffer
+    --------------------------------------------------------------------------*/
+    private void store(long prime)
+    {
+        if (size == buffer.length) buffer = Arrays.copyOf(buffer, 2 * size);
+        buffer[size++] = prime;
+    }//fim de store()
+
+    /**
+     * Informa se ainda ha primos no intervalo.
+     *
+     * @return true se ainda houver primos a serem entregues.
+     */
+    /*[04]----------------------------------------------------------------------
+    *               Informa se ainda ha primos no intervalo
+    --------------------------------------------------------------------------*/
+    @Override
+    public boolean hasNext()
+    {
+        return fill();
+    }//fim de hasNext()
+
+    /**
+     * Retorna o proximo primo do intervalo.
+     *
+     * @return O proximo primo.
+     *
+     * @throws NoSuchElementException Se nao houver mais primos no intervalo.
+     */
+    /*[05]----------------------------------------------------------------------
+    *                      Retorna o proximo primo
+    --------------------------------------------------------------------------*/
+    @Override
+    public long nextLong()
+        throws NoSuchElementException
+    {
+        if (!fill()) throw new NoSuchElementException();
+        return buffer[position++];
+    }//fim de nextLong()
+
+    /**
+     * Retorna o proximo primo do intervalo sem avancar o iterador.
+     *
+     * @return O primo que sera retornado pela proxima chamada a nextLong().
+     *
+     * @throws NoSuchElementException Se nao houver mais primos no intervalo.
+     */
+    /*[06]----------------------------------------------------------------------
+    *            Retorna o proximo primo sem avancar o iterador
+    --------------------------------------------------------------------------*/
+    public long peek()
+        throws NoSuchElementException
+    {
+        if (!fill()) throw new NoSuchElementException();
+        return buffer[position];
+    }//fim de peek()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        PrimeIterator it = new PrimeIterator();
+        for (int i = 0; i < 25; i++) System.out.print(it.nextLong() + " ");
+        System.out.println();
+
+        /*
+        Os primos gemeos a partir de 10^12, sem definir limite superior.
+        */
+        it = new PrimeIterator(1000000000000L);
+        long previous = it.nextLong();
+        for (int twins = 0; twins < 5; )
+        {
+            long p = it.nextLong();
+            if (p - previous == 2)
+            {
+                System.out.println("(" + previous + ", " + p + ")");
+                twins++;
+            }
+            previous = p;
+        }
+    }//fim de main()
+
+}//fim da classe PrimeIterator
@@ -0,0 +1,261 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Um Spliterator dos numeros primos de um intervalo, que pode nao ter limite
+ * superior. Eh a fonte dos streams retornados por {@link #primes() },
+ * {@link #primes(long, long) } e {@link #intPrimes() }.
+ * <p>
+ * Os primos sao obtidos segmento por segmento, por um {@link PrimeIterator},
+ * conforme sao consumidos. A divisao eh feita por faixas de inteiros: um
+ * intervalo limitado eh dividido ao meio e, de um intervalo sem limite, eh
+ * destacada uma faixa inicial cujo tamanho dobra a cada divisao. Assim
+ * <code>primes().parallel()</code> distribui faixas disjuntas entre as
+ * threads, e cada uma crivarah apenas a sua faixa.
+ * <p>
+ * Exemplos:
+ * <pre>
+ * long[] first = PrimeSpliterator.primes().limit(1000).toArray();
+ * long p = PrimeSpliterator.primes().filter(x -&gt; x % 10 == 9).findFirst()
+ *                           .getAsLong();
+ * long count = PrimeSpliterator.primes(0, 1000000000L).parallel().count();
+ * </pre>
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class PrimeSpliterator implements Spliterator.OfLong
+{
+    /*
+    Uma faixa menor que esta nao eh mais dividida. Corresponde a 4 segmentos
+    do crivo.
+    */
+    private static final long MIN_SPLIT = 8L * SegmentedSieve.SEGMENT_BITS;
+
+    /*
+    Tamanho da primeira faixa destacada de um intervalo sem limite.
+    */
+    private static final long FIRST_CHUNK = 16L * SegmentedSieve.SEGMENT_BITS;
+
+    /*
+    O intervalo [from, to] ainda nao percorrido. Se unbounded for true, to eh
+    apenas o maior valor aceito pelo crivo.
+    */
+    private long from;
+    private final long to;
+    private final boolean unbounded;
+
+    /*
+    O tamanho da proxima faixa destacada de um intervalo sem limite.
+    */
+    private long chunk;
+
+    /*
+    Soh eh criado no primeiro avanco. Depois disso o Spliterator nao eh mais
+    dividido.
+    */
+    private PrimeIterator iterator;
+
+    /**
+     * Cria um Spliterator dos primos do intervalo [from, to].
+     *
+     * @param from O limite inferior do intervalo.
+     * @param to O limite superior do intervalo.
+     *
+     * @throws IllegalArgumentException Se to for maior que o quadrado de
+     * Integer.MAX_VALUE.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public PrimeSpliterator(long from, long to)
+        throws IllegalArgumentException
+    {
+        this(from, to, false);
+    }//fim de PrimeSpliterator()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Construtor de um Spliterator limitado ou nao
+    --------------------------------------------------------------------------*/
+    private PrimeSpliterator(long from, long to, boolean unbounded)
+        throws IllegalArgumentException
+    {
+        if (to > ResumableSieve.MAX_NUMBER) throw new
+            IllegalArgumentException("Unable to iterate over primes.");
+
+        this.from = Math.max(from, 2);
+        this.to = to;
+        this.unbounded = unbounded;
+        chunk = FIRST_CHUNK;
+    }//fim de PrimeSpliterator()
+
+    /*[02]----------------------------------------------------------------------
+    *   Divide o intervalo, retornando um Spliterator com a faixa inicial
+    --------------------------------------------------------------------------*/
+    @Override
+    public Spliterator.OfLong trySplit()
+    {
+        if ((iterator != null) || (to - from < MIN_SPLIT)) return null;
+
+        long middle;
+        if (unbounded)
+        {
+            middle = from + Math.min(chunk, to - from) - 1;
+            chunk = Math.min(chunk * 2, ResumableSieve.MAX_NUMBER);
+        }
+        else
+            middle = from + (to - from) / 2;
+
+        PrimeSpliterator prefix = new PrimeSpliterator(from, middle, false);
+        from = middle + 1;
+        return prefix;
+    }//fim de trySplit()
+
+    /*[03]----------------------------------------------------------------------
+    *   Entrega o proximo primo a action
+    --------------------------------------------------------------------------*/
+    @Override
+    public boolean tryAdvance(LongConsumer action)
+    {
+        if (iterator == null) iterator = new PrimeIterator(from, to);
+
+        if (!iterator.hasNext()) return false;
+
+        action.accept(iterator.nextLong());
+        return true;
+    }//fim de tryAdvance()
+
+    /*[04]----------------------------------------------------------------------
+    *   Entrega a action todos os primos restantes
+    --------------------------------------------------------------------------*/
+    @Override
+    public void forEachRemaining(LongConsumer action)
+    {
+        if (iterator == null) iterator = new PrimeIterator(from, to);
+
+        while (iterator.hasNext()) action.accept(iterator.nextLong());
+    }//fim de forEachRemaining()
+
+    /*[05]----------------------------------------------------------------------
+    *   Estima quantos primos ha no intervalo, pelo teorema dos numeros primos
+    --------------------------------------------------------------------------*/
+    @Override
+    public long estimateSize()
+    {
+        if (unbounded) return Long.MAX_VALUE;
+        if (to < from) return 0;
+
+        return (long)((to - from + 1) / Math.log(Math.max(to, 3))) + 1;
+    }//fim de estimateSize()
+
+    /*[06]----------------------------------------------------------------------
+    *                Caracteristicas do Spliterator
+    --------------------------------------------------------------------------*/
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+    }//fim de characteristics()
+
+    /*[07]----------------------------------------------------------------------
+    *   Os primos sao entregues em ordem natural
+    --------------------------------------------------------------------------*/
+    @Override
+    public Comparator<? super Long> getComparator()
+    {
+        return null;
+    }//fim de getComparator()
+
+    /**
+     * Um stream de todos os primos, a partir de 2 e sem limite superior. Deve
+     * ser limitado por uma operacao como limit() ou por uma operacao terminal
+     * que possa encerrar antes do fim, como findFirst() ou anyMatch().
+     *
+     * @return Um LongStream sequencial com todos os primos em ordem crescente.
+     */
+    /*[08]----------------------------------------------------------------------
+    *               Retorna um stream com todos os primos
+    --------------------------------------------------------------------------*/
+    public static LongStream primes()
+    {
+        return StreamSupport.longStream
+        (
+            new PrimeSpliterator(2, ResumableSieve.MAX_NUMBER, true), false
+        );
+    }//fim de primes()
+
+    /**
+     * Um stream com os primos do intervalo [from, to].
+     *
+     * @param from O limite inferior do intervalo.
+     * @param to O limite superior do intervalo.
+     *
+     * @return Um LongStream sequencial com os primos do intervalo em ordem
+     * crescente.
+     *
+     * @throws IllegalArgumentException Se to for maior que o quadrado de
+     * Integer.MAX_VALUE.
+     */
+    /*[09]----------------------------------------------------------------------
+    *           Retorna um stream com os primos de um intervalo
+    --------------------------------------------------------------------------*/
+    public static LongStream primes(long from, long to)
+        throws IllegalArgumentException
+    {
+        return StreamSupport.longStream(new PrimeSpliterator(from, to), false);
+    }//fim de primes()
+
+    /**
+     * Um stream de todos os primos que cabem em um int.
+     *
+     * @return Um IntStream sequencial com todos os primos de 2 ateh
+     * Integer.MAX_VALUE em ordem crescente.
+     */
+    /*[10]----------------------------------------------------------------------
+    *        Retorna um stream com todos os primos que cabem em um int
+    --------------------------------------------------------------------------*/
+    public static IntStream intPrimes()
+    {
+        return primes(2, Integer.MAX_VALUE).mapToInt(p -> (int)p);
+    }//fim de intPrimes()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        System.out.println
+        (
+            "Os 20 primeiros primos: " +
+            Arrays.toString(primes().limit(20).toArray())
+        );
+
+        System.out.println
+        (
+            "O 1.000.000º primo: " + primes().skip(999999).findFirst().getAsLong()
+        );
+
+        long t = System.currentTimeMillis();
+        System.out.println
+        (
+            "Primos ateh 10^9: " + primes(0, 1000000000L).parallel().count()
+        );
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+        System.out.println
+        (
+            "Soma dos 1000 primeiros primos ( em paralelo ): " +
+            primes().parallel().limit(1000).sum()
+        );
+    }//fim de main()
+
+}//fim da classe PrimeSpliterator
@@ -0,0 +1,324 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Uma tabela de numeros primos armazenados em ordem crescente em um array de
+ * int que cresce conforme necessario.
+ * <p>
+ * Substitui a LinkedList&lt;Integer&gt; retornada pelos crivos deste pacote
+ * quando eh preciso acessar os primos por indice. Cada primo ocupa apenas 4
+ * bytes, o acesso ao enesimo primo eh feito em tempo constante e o numero de
+ * primos menores ou iguais a um valor x eh obtido por busca binaria.
+ * <p>
+ * Primos maiores que Integer.MAX_VALUE, que soh aparecem em crivos cujo
+ * intervalo foi estendido alem deste valor, sao armazenados em um segundo
+ * array, de long, que continua a sequencia do primeiro.
+ * <p>
+ * A tabela eh preenchida apenas pelas classes deste pacote e, para quem a
+ * recebe, deve ser considerada somente para leitura.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public final class PrimeTable
+{
+    /*
+    Capacidade inicial do array se nenhuma for especificada.
+    */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /*
+    Os primos da tabela. Apenas as posicoes [0, size - 1] sao validas.
+    */
+    private int[] primes;
+
+    /*
+    Quantos primos ha na tabela.
+    */
+    private int size;
+
+    /*
+    Os primos da tabela maiores que Integer.MAX_VALUE, que seguem os primos do
+    array primes. Soh eh criado quando o primeiro destes primos eh acrescentado.
+    */
+    private long[] bigPrimes;
+
+    /*
+    Quantos primos ha em bigPrimes.
+    */
+    private int bigSize;
+
+    /*
+    Uma LinkedList com os mesmos primos da tabela, criada apenas se algum
+    metodo getList() dos crivos for chamado. Eh mantida para que chamadas
+    sucessivas retornem o mesmo objeto, como sempre fizeram os crivos.
+    */
+    private LinkedList<Integer> list;
+
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    PrimeTable()
+    {
+        this(DEFAULT_CAPACITY);
+    }//fim de PrimeTable()
+
+    /*[01B]---------------------------------------------------------------------
+    *           Construtor da classe com capacidade inicial definida
+    --------------------------------------------------------------------------*/
+    PrimeTable(int capacity)
+    {
+        primes = new int[Math.max(capacity, 1)];
+        size = 0;
+    }//fim de PrimeTable()
+
+    /*[01C]---------------------------------------------------------------------
+    *   Construtor da classe sobre um array ja preenchido com primos em ordem
+    *   crescente. O array passa a pertencer a tabela e nao eh copiado.
+    --------------------------------------------------------------------------*/
+    PrimeTable(int[] primes)
+    {
+        this.primes = primes;
+        size = primes.length;
+    }//fim de PrimeTable()
+
+    /*[02]----------------------------------------------------------------------
+    *   Acrescenta um primo ao fim da tabela. Deve ser maior que o ultimo primo
+    *   da tabela.
+    --------------------------------------------------------------------------*/
+    void add(int prime)
+        throws OutOfMemoryError
+    {
+        if (size == primes.length) ensureCapacity(size + 1);
+        primes[size++] = prime;
+    }//fim de add()
+
+    /*[02B]---------------------------------------------------------------------
+    *   Acrescenta ao fim da tabela um primo que pode ser maior que
+    *   Integer.MAX_VALUE
+    --------------------------------------------------------------------------*/
+    void add(long prime)
+        throws OutOfMemoryError
+    {
+        if (prime <= Integer.MAX_VALUE)
+        {
+            add((int)prime);
+            return;
+        }
+
+        if ((long)size + bigSize >= Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError();
+
+        if (bigPrimes == null)
+            bigPrimes = new long[DEFAULT_CAPACITY];
+        else if (bigSize == bigPrimes.length)
+            bigPrimes = Arrays.copyOf
+            (
+                bigPrimes,
+                (int)Math.min(Integer.MAX_VALUE - 8,
+                              (long)bigSize + (bigSize >> 1))
+            );
+
+        bigPrimes[bigSize++] = prime;
+    }//fim de add()
+
+    /*[02C]---------------------------------------------------------------------
+    *   Acrescenta ao fim da tabela todos os primos de outra tabela. O menor
+    *   primo de other deve ser maior que o ultimo primo desta tabela e nenhuma
+    *   das duas pode conter primos maiores que Integer.MAX_VALUE.
+    --------------------------------------------------------------------------*/
+    void addAll(PrimeTable other)
+        throws OutOfMemoryError
+    {
+        ensureCapacity((long)size + other.size);
+        System.arraycopy(other.primes, 0, primes, size, other.size);
+        size += other.size;
+    }//fim de addAll()
+
+    /*[02D]---------------------------------------------------------------------
+    *   Garante que o array comporte ao menos minCapacity primos
+    --------------------------------------------------------------------------*/
+    private void ensureCapacity(long minCapacity)
+        throws OutOfMemoryError
+    {
+        if (minCapacity <= primes.length) return;
+
+        /*
+        Cresce ao menos 50% a cada realocacao, sem ultrapassar o maior tamanho
+        de array possivel.
+        */
+        long newLength = Math.max(minCapacity,
+                                  (long)primes.length + (primes.length >> 1));
+        newLength = Math.min(newLength, Integer.MAX_VALUE - 8);
+
+        if (newLength < minCapacity) throw new OutOfMemoryError();
+
+        primes = Arrays.copyOf(primes, (int)newLength);
+    }//fim de ensureCapacity()
+
+    /*[03]----------------------------------------------------------------------
+    *   Libera a capacidade excedente do array, apos a tabela estar completa
+    --------------------------------------------------------------------------*/
+    void trimToSize()
+    {
+        if (size < primes.length) primes = Arrays.copyOf(primes, size);
+        if ((bigPrimes != null) && (bigSize < bigPrimes.length))
+            bigPrimes = Arrays.copyOf(bigPrimes, bigSize);
+    }//fim de trimToSize()
+
+    /**
+     * Quantos primos ha na tabela.
+     *
+     * @return O numero de primos na tabela.
+     */
+    /*[04]----------------------------------------------------------------------
+    *                  Retorna quantos primos ha na tabela
+    --------------------------------------------------------------------------*/
+    public int size()
+    {
+        return size + bigSize;
+    }//fim de size()
+
+    /**
+     * Retorna o primo que esta na posicao <b>index</b> da tabela. A posicao 0
+     * contem o primo 2, a posicao 1 o primo 3, e assim sucessivamente.
+     *
+     * @param index A posicao na tabela, no intervalo [0, size() - 1]
+     *
+     * @return O primo na posicao index.
+     *
+     * @throws IndexOutOfBoundsException Se index fora do intervalo
+     * [0, size() - 1]
+     */
+    /*[05]----------------------------------------------------------------------
+    *                Retorna o primo em uma posicao da tabela
+    --------------------------------------------------------------------------*/
+    public long get(int index)
+        throws IndexOutOfBoundsException
+    {
+        if ((index < 0) || (index >= size + bigSize))
+            throw new IndexOutOfBoundsException("Index: " + index);
+
+        return (index < size) ? primes[index] : bigPrimes[index - size];
+    }//fim de get()
+
+    /**
+     * Retorna o enesimo primo. O 1o primo eh 2, o 2o eh 3, e assim por diante.
+     *
+     * @param n A ordem do primo, no intervalo [1, size()]
+     *
+     * @return O enesimo primo.
+     *
+     * @throws IndexOutOfBoundsException Se n fora do intervalo [1, size()]
+     */
+    /*[06]----------------------------------------------------------------------
+    *                       Retorna o enesimo primo
+    --------------------------------------------------------------------------*/
+    public long nthPrime(int n)
+        throws IndexOutOfBoundsException
+    {
+        return get(n - 1);
+    }//fim de nthPrime()
+
+    /**
+     * Retorna quantos primos da tabela sao menores ou iguais a x. Se x nao for
+     * maior que o limite superior do intervalo de onde foram extraidos os
+     * primos da tabela, este eh o valor da funcao pi(x).
+     *
+     * @param x O valor a ser pesquisado.
+     *
+     * @return Quantos primos da tabela sao menores ou iguais a x.
+     */
+    /*[07]----------------------------------------------------------------------
+    *       Retorna por busca binaria quantos primos sao menores ou iguais a x
+    --------------------------------------------------------------------------*/
+    public int primePi(long x)
+    {
+        if (x < 2) return 0;
+        if (x >= Integer.MAX_VALUE)
+        {
+            if (bigSize == 0) return size;
+
+            int index = Arrays.binarySearch(bigPrimes, 0, bigSize, x);
+
+            return size + ((index >= 0) ? index + 1 : -(index + 1));
+        }
+
+        int index = Arrays.binarySearch(primes, 0, size, (int)x);
+
+        return (index >= 0) ? index + 1 : -(index + 1);
+    }//fim de primePi()
+
+    /**
+     * Retorna o maior primo da tabela.
+     *
+     * @return O maior primo da tabela.
+     *
+     * @throws IndexOutOfBoundsException Se a tabela estiver vazia.
+     */
+    /*[08]----------------------------------------------------------------------
+    *                   Retorna o maior primo da tabela
+    --------------------------------------------------------------------------*/
+    public long lastPrime()
+        throws IndexOutOfBoundsException
+    {
+        return get(size + bigSize - 1);
+    }//fim de lastPrime()
+
+    /**
+     * Retorna uma copia dos primos da tabela.
+     *
+     * @return Um array com todos os primos da tabela em ordem crescente.
+     *
+     * @throws UnsupportedOperationException Se a tabela contiver primos
+     * maiores que Integer.MAX_VALUE.
+     */
+    /*[09]----------------------------------------------------------------------
+    *              Retorna os primos da tabela em um array de int
+    --------------------------------------------------------------------------*/
+    public int[] toArray()
+        throws UnsupportedOperationException
+    {
+        if (bigSize > 0) throw new
+            UnsupportedOperationException("Primes exceed int range.");
+
+        return Arrays.copyOf(primes, size);
+    }//fim de toArray()
+
+    /*[10]----------------------------------------------------------------------
+    *   Retorna uma LinkedList com os primos da tabela. A lista eh criada na
+    *   primeira chamada e, nas seguintes, apenas recebe os primos que tiverem
+    *   sido acrescentados a tabela depois disso. Nao pode ser usado se a
+    *   tabela contiver primos maiores que Integer.MAX_VALUE.
+    --------------------------------------------------------------------------*/
+    LinkedList<Integer> getList()
+        throws UnsupportedOperationException
+    {
+        if (bigSize > 0) throw new
+            UnsupportedOperationException("Primes exceed int range.");
+
+        if (list == null) list = new LinkedList<Integer>();
+
+        for (int i = list.size(); i < size; i++) list.add(primes[i]);
+
+        return list;
+    }//fim de getList()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return Quantos primos ha na tabela e o maior deles.
+     */
+    /*[11]----------------------------------------------------------------------
+    *                 Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return "" + size() + " primes on table" +
+               ((size() > 0) ? " : " + lastPrime() + " is the last one." : ".");
+    }//fim de toString()
+
+}//fim da classe PrimeTable
@@ -11,54 +11,18 @@ import java.util.LinkedList;
  */
 public class QuickSieve
 {
-    /*
-    O metodo getPrimes() implementa um algoritmo baseado no crivo de Eratostenes
-    e, para isso, cria um array com os inteiros do intervalo de onde serao 
-    extraidos os numeros primos. O metodo implementa uma lista duplamente ligada
-    sobre este array e para facilitar a leitura do codigo sao definidas aqui
-    algumas constantes uteis na manipulacao desta lista.
-    */
-    
-    /*
-    Indica a posicao anterior (previa) que esta sendo apontada pelo noh corrente
-    Pois cada elemento do array <numbers> e um ponteiro para um array de tamanho
-    2, onde a posicao 0 (PREV) apnonta para o no anterior. E a posicao 1 para o
-    proximo noh da lista duplamente ligada.
-    */
-    private static final int PREV = 0;
-    
-    /*Indica que a posicao 1 do array aponta para o proximo noh da lista 
-    duplamente ligada implementada sobre o array <int numbers[][]>
-    */
-    private static final int NEXT = 1;
-    
-    /*
-    Indica que um ponteiro nas posicoes PREV ou NEXT do array numbers [][]
-    aponta para NULL
-    */
-    private static final int NULL = -1;
-    
-    /*
-    Se um noh eh removido da lista seu ponteiro PREV recebe o valor da constante
-    REMOVED, indicando que nao estah mais na lista.
-    */
-    private static final int REMOVED = -2;
-    
-    /*
-    O primeiro valor do array <numbers> eh sempre 3.
-    */
-    private static final int FIRST_NUMBER_ON_ARRAY = 3;
-    
     /*
     O limite superior do intervalo de onde eh extraida a lista de primos.
     */
     private final int lastNumber;
     
     /*
-    Uma lista ligada que contem todos os numeros primos de um determinado
-    intervalo de inteiros que se inicia em 2. (O primeiro primo da lista)
+    Uma tabela que contem todos os numeros primos de um determinado intervalo
+    de inteiros que se inicia em 2. (O primeiro primo da tabela). A LinkedList
+    retornada por getList() soh eh criada, a partir desta tabela, quando aquele
+    metodo for chamado.
     */
-    private final LinkedList <Integer> list;
+    private final PrimeTable table;
     
     /**
      * Construtor da classe. O objeto criado por este construtor irah construir
@@ -85,158 +49,41 @@ public class QuickSieve
         lastNumber = n;
          
         /*
-        Cria a lista e adiciona o primeiro primo.
+        Cria a tabela e adiciona o primeiro primo.
         */
-        list = new LinkedList<Integer>();
-        list.add(2);
+        table = new PrimeTable();
+        table.add(2);
         
         /*
-        Se n maior que 2 chama getPrimes() para adicionar mais primos na lista.
+        Se n maior que 2 chama getPrimes() para adicionar mais primos na tabela.
         */
         if (n > 2) getPrimes();
+        
+        table.trimToSize();
        
     }//fim de QuickSieve()
     
     /*[02]----------------------------------------------------------------------
-    *       Retorna o numero referente a uma posicao no array de inteiros
-    --------------------------------------------------------------------------*/
-    private int getNumber(int index) 
-    {
-       return (2 * index) + FIRST_NUMBER_ON_ARRAY;
-    }//fim de getNumber()
-    
-    /*[03]----------------------------------------------------------------------
-    *       Retorna a posicao no array de inteiros referente a um numero
-    --------------------------------------------------------------------------*/
-    private int getIndex(int number)
-    {
-       return (number - FIRST_NUMBER_ON_ARRAY) / 2;
-    }//fim de getIndex()
-    
-    /*[04]----------------------------------------------------------------------
-    *   Retira os nao primos de uma lista de n inteiros e acrescenta os primos
-    *   neste intervalo a lista de primos.
+    *   Retira os nao primos do intervalo [3, lastNumber] e acrescenta os primos
+    *   neste intervalo a tabela de primos.
     --------------------------------------------------------------------------*/
     private void getPrimes()
     {
-       
-        /*
-        Calcula o tamanho do array para conter apenas os inteiros impares do
-        intervalo com <n> inteiros
-        */
-        int length = 
-            (lastNumber - FIRST_NUMBER_ON_ARRAY + 1 + (lastNumber % 2)) /2;
-        
-   
-        int[][] numbers = new int[length][2];
-            
         /*
-        Monta uma lista duplamente ligada sobre o array numbers.
+        O intervalo eh percorrido em segmentos por um crivo de Eratostenes
+        segmentado (ver SegmentedSieve). Cada segmento mapeia apenas inteiros
+        impares em um bit cada, de modo que a memoria usada pelo crivo eh 
+        apenas a dos primos ateh a raiz quadrada de lastNumber mais a de um
+        segmento. Os primos de cada segmento sao adicionados a tabela na ordem
+        em que sao encontrados.
         */
-        for (int i = 0; i < numbers.length; i++)
-        {
-            numbers[i][PREV] = i - 1;
-            numbers[i][NEXT] = i + 1;
-        }
-        numbers[0][PREV] = NULL;
-        numbers[numbers.length - 1][NEXT] = NULL;
-             
-        int index = 0;
-        int sqrtOfLastNumber = (int)Math.sqrt(lastNumber);
+        int[] basePrimes = 
+            SegmentedSieve.oddPrimesUpTo((int)Math.sqrt(lastNumber));
         
-        /*
-        Inicia retirando todos os multiplos de 3 da lista. Depois de 5, de 7, e
-        assim sucessivamente ateh atingir raiz quadrada de lastNumber.
-        */
-        while (numbers[index][NEXT] != NULL)
-        {
-            /*
-            Obtem o inteiro primo referente a posicao index da lista.
-            */
-            int number = getNumber(index);
-            
-            /*
-            Se number for maior que a raiz quadrada de lastNumber entao todos 
-            os nao primos jah foram retirados da lista e o loop se encerra.
-            */
-            if (number > sqrtOfLastNumber) break;
-            
-            /*
-            number eh sempre impar pois a lista eh montada apenas com inteiros
-            impares. Se um numero N eh multiplo de number e eh N eh par, entao
-            N + 2 * number eh impar. E depois deste o proximo multiplo serah
-            par e o seguinte impar, e assim sucessivamente. Logo step visita
-            todos os nos que sao multiplos de number mas pulando os pares. Jah
-            que os pares jah foram retirados previamente da lista.
-            */
-            int step = 2 * number;
-            
-            /*
-            A busca por multiplos do primo number que serao retirados da lista
-            pode iniciar em N = number^2. Pois todos os nao primos menores que
-            number^2 jah terao sido retirados da lista.
-            */
-            int first = number * number;
-            
-            /*
-            O indice de first = number^2 na lista montada no array numbers[][].
-            Todos os nos visitados por removingIndex sao retirados da lista.
-            */
-            int removingIndex = getIndex(first);
-            
-            /*
-            Retira todos os multiplos de number que ainda constarem na lista.
-            */
-            for (int i = first; removingIndex < numbers.length; i += step)
-            {
-                /*
-                Se jah foi retirado numbers[removingIndex][PREV] estah marcado
-                como REMOVED
-                */
-                if (numbers[removingIndex][PREV] != REMOVED)
-                {
-                    /*
-                    Faz o no anterior apontar para o posterior e o no posterior
-                    apontar para o anterior, retirando assim o no apontado por
-                    removingIndex da lista.
-                    */
-                    int prevNode = numbers[removingIndex][PREV];
-                    int nextNode = numbers[removingIndex][NEXT];
-
-                    numbers[removingIndex][PREV] = REMOVED;
-
-                    numbers[prevNode][NEXT] = nextNode;
-                    if (nextNode != NULL) numbers[nextNode][PREV] = prevNode;
-                }
-                
-                /*
-                Visita o proximo multiplo de number que pode ainda nao estar
-                marcado como REMOVED
-                */
-                removingIndex = getIndex(i);
-                
-            }//fim do for i
-           
-            /*
-            Pula para o proximo primo da lista.
-            */
-            index = numbers[index][NEXT] ;
-            
-        }//fim do while
-        
-        /*
-        Ao fim do loop while acima soh restarao primos nao marcados como 
-        REMOVED no array numbers[][]. O loop abaixo percorre todos estes nos 
-        e adiciona os valores primos em uma LinkedList
-        */
-        index = 0;
-        
-        while (index != NULL)
-        {
-            list.add(getNumber(index));
-            index = numbers[index][NEXT]; 
-        }
-             
+        SegmentedSieve.forEachOddPrime
+        (
+            lastNumber, basePrimes, p -> table.add((int)p)
+        );
               
     }//fim de getPrimes()
     
@@ -249,21 +96,38 @@ public class QuickSieve
      * Pois se a lista for alterada ela será passada com essa alteração na 
      * próxima vez em que este método for executado.
      */
-    /*[05]----------------------------------------------------------------------
+    /*[03]----------------------------------------------------------------------
     *                Retorna a lista com os numeros primos
     --------------------------------------------------------------------------*/
     public LinkedList<Integer> getList()
     {
-        return list;
+        return table.getList();
     }//fim de getList()
     
+    /**
+     * Retorna uma tabela com todos os primos no intervalo de 2 ateh <b>n</b>.
+     * Ao contrario da lista retornada por {@link #getList() }, a tabela
+     * permite obter o enesimo primo em tempo constante e contar os primos 
+     * menores que um valor por busca binaria.
+     * 
+     * @return A tabela com todos os primos do intervalo. Deve ser usada apenas
+     * para leitura.
+     */
+    /*[03B]---------------------------------------------------------------------
+    *                Retorna a tabela com os numeros primos
+    --------------------------------------------------------------------------*/
+    public PrimeTable getPrimeTable()
+    {
+        return table;
+    }//fim de getPrimeTable()
+    
     /**
      * Retorna o maior numero do intervalo. 
      * 
      * @return O limite superior do intervalo de inteiro de onde foi extraida 
      * a lista com todos os primos.
      */
-    /*[06]----------------------------------------------------------------------
+    /*[04]----------------------------------------------------------------------
     *   Retorna o limite superior do intervalo de onde foi obtida a lista de
     *   primos
     --------------------------------------------------------------------------*/
@@ -277,12 +141,12 @@ public class QuickSieve
      * 
      * @return O maior numero primo da lista.
      */
-    /*[07]----------------------------------------------------------------------
+    /*[05]----------------------------------------------------------------------
     *              Retorna o maior numero primo na lista
     --------------------------------------------------------------------------*/
     public int lastPrime()
     {
-        return list.get(list.size() - 1);
+        return (int)table.lastPrime();
     }//fim de lastPrime()
     
     /**
@@ -290,13 +154,13 @@ public class QuickSieve
      * 
      * @return Retorna quantos primos ha na lista.
      */
-    /*[08]----------------------------------------------------------------------
+    /*[06]----------------------------------------------------------------------
     *              Retorna quantos primos ha na lista
     --------------------------------------------------------------------------*/
     public int howManyPrimesOnList()
     {
-        return list.size();
-    }//fim de lastPrime()
+        return table.size();
+    }//fim de howManyPrimesOnList()
     
     /**
      * Uma representacao textual do objeto.
@@ -304,7 +168,7 @@ public class QuickSieve
      * @return Quantos primos ha na lista, o intervalo de inteiros de onde foram
      * extraidos os primos da lista e o maior numero primo na lista.
      */
-    /*[09]----------------------------------------------------------------------
+    /*[07]----------------------------------------------------------------------
     *            Informacao textual sobre o objeto
     --------------------------------------------------------------------------*/
     @Override
@@ -332,9 +196,9 @@ public class QuickSieve
             try
             {
                 QuickSieve sv = new QuickSieve(value);
-                if (sv.getList().size() >= 10000)
+                if (sv.howManyPrimesOnList() >= 10000)
                     System.out.println
-                        ("10.000º primo = "+ sv.getList().get(9999));
+                        ("10.000º primo = "+ sv.getPrimeTable().nthPrime(10000));
                 else
                     System.out.println(sv.getList());
                 
@@ -0,0 +1,189 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/*
+ * Um crivo de Eratostenes segmentado que pode ser retomado do ponto onde
+ * parou.
+ *
+ * O objeto guarda o primeiro numero impar ainda nao crivado e, para cada primo
+ * base, qual o proximo multiplo impar deste primo que ainda nao foi retirado.
+ * Assim cada chamada a sieveTo() processa apenas os segmentos novos, sem
+ * recalcular por divisao o primeiro multiplo de cada primo base nem percorrer
+ * os primos jah encontrados. Os numeros sao long, portanto o intervalo pode
+ * crescer alem de Integer.MAX_VALUE.
+ *
+ * Os primos base ( primos impares ateh a raiz quadrada do limite corrente ) sao
+ * obtidos por SegmentedSieve.oddPrimesUpTo() e, quando o intervalo cresce alem
+ * do quadrado do maior deles, a tabela de primos base eh refeita com o dobro do
+ * limite anterior.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+final class ResumableSieve
+{
+    /*
+    Maior valor que pode ser passado a sieveTo(). A raiz quadrada deste valor
+    ainda cabe em um int.
+    */
+    static final long MAX_NUMBER = (long)Integer.MAX_VALUE * Integer.MAX_VALUE;
+
+    /*
+    O primeiro numero impar que ainda nao foi crivado.
+    */
+    private long next;
+
+    /*
+    Os primos impares ateh baseLimit, em ordem crescente.
+    */
+    private int[] basePrimes;
+
+    /*
+    Todos os primos impares ateh este valor estao em basePrimes.
+    */
+    private int baseLimit;
+
+    /*
+    nextMultiple[k] eh o menor multiplo impar de basePrimes[k] que eh maior ou
+    igual a max(next, basePrimes[k]^2). Eh o ponto onde sera retomada a
+    retirada dos multiplos deste primo.
+    */
+    private long[] nextMultiple;
+
+    /*
+    O conjunto de bits de um segmento. O bit i representa o impar low + 2 * i e
+    um bit ligado indica um numero composto.
+    */
+    private final long[] bits;
+
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    ResumableSieve()
+    {
+        this(3);
+    }//fim de ResumableSieve()
+
+    /*[01B]---------------------------------------------------------------------
+    *   Construtor de um crivo que se inicia no primeiro impar maior ou igual
+    *   a start, ignorando os numeros anteriores
+    --------------------------------------------------------------------------*/
+    ResumableSieve(long start)
+    {
+        next = Math.max(3, start | 1);
+        basePrimes = new int[0];
+        baseLimit = 0;
+        nextMultiple = new long[0];
+        bits = new long[SegmentedSieve.SEGMENT_BITS >>> 6];
+    }//fim de ResumableSieve()
+
+    /*[02]----------------------------------------------------------------------
+    *   Retorna o primeiro numero impar que ainda nao foi crivado
+    --------------------------------------------------------------------------*/
+    long next()
+    {
+        return next;
+    }//fim de next()
+
+    /*[03]----------------------------------------------------------------------
+    *   Crivam-se os impares do intervalo [next, last], entregando a action os
+    *   primos encontrados em ordem crescente
+    --------------------------------------------------------------------------*/
+    void sieveTo(long last, LongConsumer action)
+        throws IllegalArgumentException
+    {
+        if (last > MAX_NUMBER) throw new
+            IllegalArgumentException("Unable to extend prime's list.");
+
+        if (last < next) return;
+
+        growBasePrimes((int)Math.sqrt(last));
+
+        for (long low = next; low <= last; low += 2L * SegmentedSieve.SEGMENT_BITS)
+        {
+            int size = SegmentedSieve.segmentSize(low, last);
+
+            sieveSegment(low, size);
+
+            SegmentedSieve.forEachPrime(low, bits, size, action);
+
+            next = low + 2L * size;
+        }
+    }//fim de sieveTo()
+
+    /*[04]----------------------------------------------------------------------
+    *   Garante que basePrimes contenha todos os primos impares ateh limit
+    --------------------------------------------------------------------------*/
+    private void growBasePrimes(int limit)
+    {
+        if (limit <= baseLimit) return;
+
+        /*
+        Ao menos dobra o limite, para que extensoes sucessivas e pequenas do
+        intervalo nao refacam a tabela de primos base a cada chamada.
+        */
+        int newLimit = (int)Math.min(Integer.MAX_VALUE - 1,
+                                     Math.max(limit, 2L * baseLimit));
+
+        int[] primes = SegmentedSieve.oddPrimesUpTo(newLimit);
+        long[] multiples = Arrays.copyOf(nextMultiple, primes.length);
+
+        /*
+        A retirada dos multiplos de um primo novo p se inicia em p^2 ou, se o
+        crivo tiver comecado depois de p^2, no primeiro multiplo impar de p
+        que ainda nao foi crivado.
+        */
+        for (int k = basePrimes.length; k < primes.length; k++)
+        {
+            long p = primes[k];
+            long first = p * p;
+            if (first < next)
+            {
+                first = ((next + p - 1) / p) * p;
+                if ((first & 1) == 0) first += p;
+            }
+            multiples[k] = first;
+        }
+
+        basePrimes = primes;
+        nextMultiple = multiples;
+        baseLimit = newLimit;
+    }//fim de growBasePrimes()
+
+    /*[05]----------------------------------------------------------------------
+    *   Criva o segmento de size impares que se inicia em low, atualizando o
+    *   proximo multiplo de cada primo base
+    --------------------------------------------------------------------------*/
+    private void sieveSegment(long low, int size)
+    {
+        Arrays.fill(bits, 0, (size + 63) >>> 6, 0L);
+
+        long high = low + 2L * (size - 1);
+
+        for (int k = 0; k < basePrimes.length; k++)
+        {
+            long first = nextMultiple[k];
+
+            /*
+            Se o proximo multiplo estah alem do segmento nao ha o que retirar.
+            E como os primos base estao em ordem crescente, se o quadrado deste
+            primo estah alem do segmento, o dos seguintes tambem estarah.
+            */
+            if (first > high)
+            {
+                if ((long)basePrimes[k] * basePrimes[k] > high) break;
+                continue;
+            }
+
+            long step = basePrimes[k];
+            long i = (first - low) >>> 1;
+
+            for (; i < size; i += step) bits[(int)(i >>> 6)] |= 1L << i;
+
+            nextMultiple[k] = low + 2 * i;
+        }
+    }//fim de sieveSegment()
+
+}//fim da classe ResumableSieve
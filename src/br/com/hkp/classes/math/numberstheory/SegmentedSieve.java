@@ -0,0 +1,457 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.function.LongConsumer;
+
+/**
+ * Esta classe obtem todos os numeros primos ateh o valor maximo <b>n</b>
+ * passado como argumento para o construtor da classe, utilizando um crivo de
+ * Eratostenes segmentado.
+ * <p>
+ * Ao contrario de {@link QuickSieve}, que mapeia todo o intervalo [3, n] em um
+ * array de uma soh vez, esta classe percorre o intervalo em segmentos de
+ * tamanho fixo. Cada segmento eh representado por um conjunto de bits onde cada
+ * bit mapeia apenas um numero impar, e o tamanho do segmento eh escolhido para
+ * caber na memoria cache L1/L2 do processador. Assim a memoria utilizada pelo
+ * crivo eh proporcional a raiz quadrada de n mais o tamanho de um segmento, e
+ * eh possivel obter primos ateh Integer.MAX_VALUE com um heap de tamanho
+ * normal.
+ * <p>
+ * O construtor apenas conta os primos e registra o maior deles. A tabela com
+ * todos os primos do intervalo soh eh gerada ( percorrendo novamente os
+ * segmentos ) quando {@link #getPrimeTable() } ou {@link #getList() } sao
+ * chamados pela primeira vez. Para processar os primos sem armazena-los use
+ * {@link #forEachPrime(java.util.function.LongConsumer) }.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class SegmentedSieve
+{
+    /*
+    Numero de bits de um segmento. Como cada bit mapeia um numero impar, um
+    segmento cobre 2 * SEGMENT_BITS inteiros consecutivos e ocupa 32 KB, o
+    tamanho tipico da cache L1 de dados.
+    */
+    static final int SEGMENT_BITS = 1 << 18;
+
+    /*
+    O limite superior do intervalo de onde eh extraida a lista de primos.
+    */
+    private final int lastNumber;
+
+    /*
+    Todos os primos impares menores ou iguais a raiz quadrada de lastNumber.
+    Sao os unicos primos cujos multiplos precisam ser retirados dos segmentos.
+    */
+    private final int[] basePrimes;
+
+    /*
+    Quantos primos ha no intervalo [2, lastNumber]
+    */
+    private final int howManyPrimes;
+
+    /*
+    O maior primo do intervalo [2, lastNumber]
+    */
+    private final int lastPrime;
+
+    /*
+    A tabela com todos os primos do intervalo. Soh eh criada na primeira 
+    chamada a getPrimeTable() ou getList()
+    */
+    private PrimeTable table;
+
+    /**
+     * Construtor da classe. O objeto criado por este construtor percorre o
+     * intervalo de 2 ateh n contando os primos deste intervalo.
+     *
+     * @param n {@link #getList() } retornarah uma lista com todos os primos de
+     * 2 ateh <b>n</b>
+     *
+     * @throws IllegalArgumentException Excecao lancada se n menor que 2.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public SegmentedSieve(int n)
+        throws IllegalArgumentException
+    {
+        if (n < 2) throw new
+            IllegalArgumentException("Unable to create prime's list.");
+
+        lastNumber = n;
+
+        basePrimes = oddPrimesUpTo((int)Math.sqrt(n));
+
+        /*
+        Conta o 2 e todos os primos impares do intervalo, segmento por segmento.
+        O maior primo eh o ultimo primo encontrado no ultimo segmento que
+        contiver algum primo.
+        */
+        long[] bits = new long[SEGMENT_BITS >>> 6];
+
+        int count = 1;
+        int last = 2;
+
+        for (long low = 3; low <= n; low += 2L * SEGMENT_BITS)
+        {
+            int size = segmentSize(low, n);
+
+            sieveSegment(low, size, basePrimes, basePrimes.length, bits);
+
+            int c = countPrimes(bits, size);
+            if (c > 0)
+            {
+                count += c;
+                last = (int)(low + 2L * lastClearBit(bits, size));
+            }
+
+        }//fim do for low
+
+        howManyPrimes = count;
+        lastPrime = last;
+
+    }//fim de SegmentedSieve()
+
+    /*[02]----------------------------------------------------------------------
+    *   Retorna quantos impares do segmento que se inicia em low ainda estao
+    *   no intervalo [low, last]
+    --------------------------------------------------------------------------*/
+    static int segmentSize(long low, long last)
+    {
+        return (int)Math.min(SEGMENT_BITS, (last - low) / 2 + 1);
+    }//fim de segmentSize()
+
+    /*[03]----------------------------------------------------------------------
+    *   Retorna um array com todos os primos impares menores ou iguais a limit
+    --------------------------------------------------------------------------*/
+    static int[] oddPrimesUpTo(int limit)
+    {
+        if (limit < 3) return new int[0];
+
+        /*
+        O bit i representa o numero impar 2 * i + 3. Um bit ligado indica um
+        numero composto.
+        */
+        int size = (limit - 1) / 2;
+        long[] bits = new long[(size + 63) >>> 6];
+
+        int count = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if ((bits[i >>> 6] & (1L << i)) != 0) continue;
+
+            count++;
+
+            long p = 2L * i + 3;
+            /*
+            Retira da lista os multiplos impares de p a partir de p^2. O indice
+            de p^2 eh (p^2 - 3) / 2 e os multiplos impares estao a p posicoes
+            uns dos outros.
+            */
+            for (long j = (p * p - 3) / 2; j < size; j += p)
+                bits[(int)(j >>> 6)] |= 1L << j;
+        }
+
+        int[] primes = new int[count];
+        int k = 0;
+        for (int i = 0; i < size; i++)
+            if ((bits[i >>> 6] & (1L << i)) == 0) primes[k++] = 2 * i + 3;
+
+        return primes;
+    }//fim de oddPrimesUpTo()
+
+    /*[04]----------------------------------------------------------------------
+    *   Marca como compostos, no segmento de impares que se inicia em low, os
+    *   multiplos dos primos em basePrimes
+    --------------------------------------------------------------------------*/
+    /*
+    O bit i de bits representa o numero impar low + 2 * i, com i no intervalo
+    [0, size - 1]. Ao final um bit desligado indica um numero primo. low deve
+    ser impar, size nao pode exceder 2^30 e basePrimes deve conter, em ordem
+    crescente, ao menos todos os primos impares ateh a raiz quadrada do maior
+    numero do segmento. Apenas os primeiros nBase elementos de basePrimes sao
+    considerados.
+    */
+    static void sieveSegment(long low, int size, int[] basePrimes, int nBase,
+                             long[] bits)
+    {
+        Arrays.fill(bits, 0, (size + 63) >>> 6, 0L);
+
+        /*
+        O numero 1 nao eh primo.
+        */
+        if (low == 1) bits[0] |= 1L;
+
+        long high = low + 2L * (size - 1);
+
+        for (int k = 0; k < nBase; k++)
+        {
+            long p = basePrimes[k];
+            long first = p * p;
+
+            /*
+            Todos os primos maiores que a raiz do maior numero do segmento nao
+            tem multiplos compostos a serem retirados deste segmento.
+            */
+            if (first > high) break;
+
+            /*
+            Se p^2 eh anterior ao segmento, a busca se inicia no primeiro
+            multiplo impar de p que estiver no segmento.
+            */
+            if (first < low)
+            {
+                first = ((low + p - 1) / p) * p;
+                if ((first & 1) == 0) first += p;
+            }
+
+            int step = (int)p;
+            int i = (int)((first - low) >>> 1);
+
+            /*
+            Se o passo for maior que o segmento ha no maximo um multiplo a
+            retirar, e i + step poderia estourar a capacidade de um int.
+            */
+            if (step >= size)
+            {
+                if (i < size) bits[i >>> 6] |= 1L << i;
+                continue;
+            }
+
+            for (; i < size; i += step) bits[i >>> 6] |= 1L << i;
+        }
+    }//fim de sieveSegment()
+
+    /*[05]----------------------------------------------------------------------
+    *   Conta quantos bits desligados ( primos ) ha nas size primeiras
+    *   posicoes de um segmento
+    --------------------------------------------------------------------------*/
+    static int countPrimes(long[] bits, int size)
+    {
+        int words = size >>> 6;
+        int count = 0;
+
+        for (int w = 0; w < words; w++) count += Long.bitCount(~bits[w]);
+
+        int rest = size & 63;
+        if (rest > 0) count += Long.bitCount(~bits[words] & ((1L << rest) - 1));
+
+        return count;
+    }//fim de countPrimes()
+
+    /*[06]----------------------------------------------------------------------
+    *   Retorna a ultima posicao com bit desligado nas size primeiras posicoes
+    *   de um segmento, ou -1 se nao houver nenhuma
+    --------------------------------------------------------------------------*/
+    static int lastClearBit(long[] bits, int size)
+    {
+        for (int w = (size - 1) >>> 6; w >= 0; w--)
+        {
+            long clear = ~bits[w];
+            if ((w == (size - 1) >>> 6) && ((size & 63) != 0))
+                clear &= (1L << (size & 63)) - 1;
+
+            if (clear != 0) return (w << 6) + 63 - Long.numberOfLeadingZeros(clear);
+        }
+        return -1;
+    }//fim de lastClearBit()
+
+    /*[07]----------------------------------------------------------------------
+    *   Entrega a action, em ordem crescente, os primos de um segmento
+    --------------------------------------------------------------------------*/
+    static void forEachPrime(long low, long[] bits, int size,
+                             LongConsumer action)
+    {
+        int words = (size + 63) >>> 6;
+
+        for (int w = 0; w < words; w++)
+        {
+            long clear = ~bits[w];
+            if ((w == words - 1) && ((size & 63) != 0))
+                clear &= (1L << (size & 63)) - 1;
+
+            while (clear != 0)
+            {
+                int i = (w << 6) + Long.numberOfTrailingZeros(clear);
+                action.accept(low + 2L * i);
+                clear &= clear - 1;
+            }
+        }
+    }//fim de forEachPrime()
+
+    /*[08]----------------------------------------------------------------------
+    *   Entrega a action, em ordem crescente, todos os primos impares do
+    *   intervalo [3, last]
+    --------------------------------------------------------------------------*/
+    static void forEachOddPrime(int last, int[] basePrimes, LongConsumer action)
+    {
+        long[] bits = new long[SEGMENT_BITS >>> 6];
+
+        for (long low = 3; low <= last; low += 2L * SEGMENT_BITS)
+        {
+            int size = segmentSize(low, last);
+            sieveSegment(low, size, basePrimes, basePrimes.length, bits);
+            forEachPrime(low, bits, size, action);
+        }
+    }//fim de forEachOddPrime()
+
+    /**
+     * Entrega ao argumento <b>action</b>, em ordem crescente, todos os primos
+     * do intervalo [2, n], sem armazena-los. Os primos sao obtidos percorrendo
+     * novamente os segmentos do intervalo.
+     *
+     * @param action O que deve ser feito com cada primo do intervalo.
+     */
+    /*[09]----------------------------------------------------------------------
+    *       Percorre todos os primos do intervalo sem armazena-los
+    --------------------------------------------------------------------------*/
+    public void forEachPrime(LongConsumer action)
+    {
+        action.accept(2);
+        forEachOddPrime(lastNumber, basePrimes, action);
+    }//fim de forEachPrime()
+
+    /**
+     * Retorna uma lista de Integers com todos os primos no intervado de 2 ateh
+     * <b>n</b>. A lista eh gerada na primeira chamada deste metodo.
+     *
+     * @return Uma lista ligada com todos os primos do intervalo. Esta lista
+     * deve ser apenas para leitura, seus elementos não devem ser modificados.
+     * Pois se a lista for alterada ela será passada com essa alteração na
+     * próxima vez em que este método for executado.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para
+     * armazenar a lista de primos.
+     */
+    /*[10]----------------------------------------------------------------------
+    *                Retorna a lista com os numeros primos
+    --------------------------------------------------------------------------*/
+    public LinkedList<Integer> getList()
+        throws OutOfMemoryError
+    {
+        return getPrimeTable().getList();
+    }//fim de getList()
+
+    /**
+     * Retorna uma tabela com todos os primos no intervalo de 2 ateh <b>n</b>.
+     * A tabela eh gerada na primeira chamada deste metodo, ja com o tamanho
+     * exato, pois o numero de primos do intervalo eh conhecido desde a
+     * construcao do objeto.
+     *
+     * @return A tabela com todos os primos do intervalo. Deve ser usada apenas
+     * para leitura.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para
+     * armazenar a tabela de primos.
+     */
+    /*[10B]---------------------------------------------------------------------
+    *                Retorna a tabela com os numeros primos
+    --------------------------------------------------------------------------*/
+    public PrimeTable getPrimeTable()
+        throws OutOfMemoryError
+    {
+        if (table == null)
+        {
+            PrimeTable t = new PrimeTable(howManyPrimes);
+            forEachPrime(p -> t.add((int)p));
+            table = t;
+        }
+        return table;
+    }//fim de getPrimeTable()
+
+    /**
+     * Retorna o maior numero do intervalo.
+     *
+     * @return O limite superior do intervalo de inteiro de onde foi extraida
+     * a lista com todos os primos.
+     */
+    /*[11]----------------------------------------------------------------------
+    *   Retorna o limite superior do intervalo de onde foi obtida a lista de
+    *   primos
+    --------------------------------------------------------------------------*/
+    public int lastNumber()
+    {
+        return lastNumber;
+    }//fim de lastNumber()
+
+    /**
+     * Retorna o maior primo do intervalo.
+     *
+     * @return O maior numero primo do intervalo.
+     */
+    /*[12]----------------------------------------------------------------------
+    *              Retorna o maior numero primo do intervalo
+    --------------------------------------------------------------------------*/
+    public int lastPrime()
+    {
+        return lastPrime;
+    }//fim de lastPrime()
+
+    /**
+     * O numero de primos no intervalo.
+     *
+     * @return Retorna quantos primos ha no intervalo [2, n].
+     */
+    /*[13]----------------------------------------------------------------------
+    *              Retorna quantos primos ha no intervalo
+    --------------------------------------------------------------------------*/
+    public int howManyPrimesOnList()
+    {
+        return howManyPrimes;
+    }//fim de howManyPrimesOnList()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return Quantos primos ha na lista, o intervalo de inteiros de onde foram
+     * extraidos os primos da lista e o maior numero primo na lista.
+     */
+    /*[14]----------------------------------------------------------------------
+    *            Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return "" + howManyPrimesOnList() +
+               " primes in [2, " + lastNumber() + "] : " +
+               lastPrime() + " is the last prime on list.";
+    }//fim de toString()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        /*
+        Compara com ExtensibleSieve para alguns valores pequenos.
+        */
+        for (int n = 2; n < 3000; n++)
+        {
+            ExtensibleSieve qs = new ExtensibleSieve(n);
+            SegmentedSieve ss = new SegmentedSieve(n);
+            if (
+                   (qs.howManyPrimesOnList() != ss.howManyPrimesOnList())
+                                       ||
+                   (qs.lastPrime() != ss.lastPrime())
+                                       ||
+                   (! qs.getList().equals(ss.getList()))
+               )
+            {
+                System.out.println("Falhou para n = " + n);
+                System.exit(1);
+            }
+        }
+
+        long t = System.currentTimeMillis();
+        SegmentedSieve sv = new SegmentedSieve(Integer.MAX_VALUE);
+        System.out.println(sv);
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+    }//fim de main()
+
+}//fim da classe SegmentedSieve
@@ -0,0 +1,284 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Uma tabela com o menor fator primo de cada inteiro do intervalo [2, n],
+ * criada uma unica vez para fatorar rapidamente muitos inteiros deste
+ * intervalo.
+ * <p>
+ * A tabela eh gerada por um crivo linear, que atribui a cada numero composto
+ * o seu menor fator primo exatamente uma vez. Para economizar memoria apenas
+ * os impares sao mapeados ( a fatoracao remove antes os fatores 2 ) e, como o
+ * menor fator primo de um composto nunca eh maior que a raiz quadrada de n, ele
+ * cabe em um char. Os primos sao marcados com 0. Assim a tabela ocupa 1 byte
+ * por inteiro do intervalo: cerca de 100 MB para n = 10^8.
+ * <p>
+ * Depois de criada a tabela nao eh mais alterada, e pode ser compartilhada
+ * livremente entre threads. A fatoracao de um inteiro x eh uma sequencia de no
+ * maximo log2(x) consultas a tabela, sem criacao de objetos se os fatores forem
+ * gravados em um array fornecido pelo chamador.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class SmallestPrimeFactorTable
+{
+    /*
+    Nenhum int positivo tem mais que 30 fatores primos.
+    */
+    private static final int MAX_FACTORS = 31;
+
+    /*
+    O limite superior do intervalo mapeado pela tabela.
+    */
+    private final int lastNumber;
+
+    /*
+    spf[i] eh o menor fator primo do impar 2 * i + 1, ou 0 se este for primo
+    ( ou igual a 1 ).
+    */
+    private final char[] spf;
+
+    /**
+     * Construtor da classe. Cria a tabela com o menor fator primo de cada
+     * inteiro do intervalo [2, n].
+     *
+     * @param n O limite superior do intervalo.
+     *
+     * @throws IllegalArgumentException Se n menor que 2.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para
+     * criar a tabela.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public SmallestPrimeFactorTable(int n)
+        throws IllegalArgumentException, OutOfMemoryError
+    {
+        if (n < 2) throw new
+            IllegalArgumentException("Unable to create factor's table.");
+
+        lastNumber = n;
+
+        int size = (int)(((long)n + 1) / 2);
+        spf = new char[size];
+
+        int sqrt = (int)Math.sqrt(n);
+
+        /*
+        Os primos impares ateh a raiz quadrada de n, na ordem em que sao
+        encontrados pelo crivo. Sao os unicos que podem ser o menor fator primo
+        de um composto do intervalo.
+        */
+        int[] primes = new int[Math.max(16, sqrt / 2)];
+        int howManyPrimes = 0;
+
+        for (int i = 1; i < size; i++)
+        {
+            int number = 2 * i + 1;
+            int smallest = spf[i];
+
+            if (smallest == 0)
+            {
+                if (number <= sqrt) primes[howManyPrimes++] = number;
+                smallest = number;
+            }
+
+            /*
+            Cada composto c eh marcado uma unica vez: quando o crivo passa por
+            c / p, onde p eh o menor fator primo de c. Os primos p usados com
+            number nao podem, portanto, ser maiores que o menor fator primo de
+            number.
+            */
+            for (int k = 0; k < howManyPrimes; k++)
+            {
+                int p = primes[k];
+                if (p > smallest) break;
+
+                long multiple = (long)number * p;
+                if (multiple > n) break;
+
+                spf[(int)(multiple >>> 1)] = (char)p;
+            }
+        }
+
+    }//fim de SmallestPrimeFactorTable()
+
+    /**
+     * Retorna o menor fator primo de um inteiro do intervalo.
+     *
+     * @param x Um inteiro do intervalo [2, n].
+     *
+     * @return O menor fator primo de x.
+     *
+     * @throws IllegalArgumentException Se x fora do intervalo [2, n].
+     */
+    /*[02]----------------------------------------------------------------------
+    *             Retorna o menor fator primo de um inteiro
+    --------------------------------------------------------------------------*/
+    public int smallestPrimeFactor(int x)
+        throws IllegalArgumentException
+    {
+        if ((x < 2) || (x > lastNumber)) throw new
+            IllegalArgumentException(x + " is out of table.");
+
+        if ((x & 1) == 0) return 2;
+
+        int p = spf[x >>> 1];
+        return (p == 0) ? x : p;
+    }//fim de smallestPrimeFactor()
+
+    /**
+     * Informa se um inteiro do intervalo eh primo.
+     *
+     * @param x Um inteiro do intervalo [2, n].
+     *
+     * @return true se x for primo.
+     *
+     * @throws IllegalArgumentException Se x fora do intervalo [2, n].
+     */
+    /*[03]----------------------------------------------------------------------
+    *              Informa se um inteiro do intervalo eh primo
+    --------------------------------------------------------------------------*/
+    public boolean isPrime(int x)
+        throws IllegalArgumentException
+    {
+        return smallestPrimeFactor(x) == x;
+    }//fim de isPrime()
+
+    /**
+     * Grava no inicio de dest os fatores primos de x, com repeticoes e em ordem
+     * crescente. Nenhum objeto eh criado.
+     *
+     * @param x Um inteiro do intervalo [1, n].
+     *
+     * @param dest O array que recebe os fatores. Como nenhum int tem mais que
+     * 30 fatores primos, um array de tamanho 31 eh sempre suficiente.
+     *
+     * @return Quantos fatores foram gravados em dest. Se x for 1 retorna 0.
+     *
+     * @throws IllegalArgumentException Se x fora do intervalo [1, n].
+     *
+     * @throws ArrayIndexOutOfBoundsException Se dest nao comportar todos os
+     * fatores.
+     */
+    /*[04]----------------------------------------------------------------------
+    *          Fatora um inteiro gravando os fatores em um array
+    --------------------------------------------------------------------------*/
+    public int factor(int x, int[] dest)
+        throws IllegalArgumentException, ArrayIndexOutOfBoundsException
+    {
+        if ((x < 1) || (x > lastNumber)) throw new
+            IllegalArgumentException(x + " is out of table.");
+
+        int count = 0;
+
+        int twos = Integer.numberOfTrailingZeros(x);
+        for (int i = 0; i < twos; i++) dest[count++] = 2;
+        x >>>= twos;
+
+        while (x > 1)
+        {
+            int p = spf[x >>> 1];
+            if (p == 0) p = x;
+
+            dest[count++] = p;
+            x /= p;
+        }
+
+        return count;
+    }//fim de factor()
+
+    /**
+     * Fatora todos os inteiros de um array, em paralelo.
+     *
+     * @param values Inteiros do intervalo [1, n].
+     *
+     * @return Um array onde a posicao i contem os fatores primos de values[i],
+     * com repeticoes e em ordem crescente.
+     *
+     * @throws IllegalArgumentException Se algum valor estiver fora do intervalo
+     * [1, n].
+     */
+    /*[05]----------------------------------------------------------------------
+    *            Fatora, em paralelo, todos os inteiros de um array
+    --------------------------------------------------------------------------*/
+    public int[][] factorAll(int[] values)
+        throws IllegalArgumentException
+    {
+        int[][] factors = new int[values.length][];
+
+        IntStream.range(0, values.length).parallel().forEach
+        (
+            i ->
+            {
+                int[] dest = new int[MAX_FACTORS];
+                factors[i] = Arrays.copyOf(dest, factor(values[i], dest));
+            }
+        );
+
+        return factors;
+    }//fim de factorAll()
+
+    /**
+     * Retorna o maior numero do intervalo.
+     *
+     * @return O limite superior do intervalo mapeado pela tabela.
+     */
+    /*[06]----------------------------------------------------------------------
+    *        Retorna o limite superior do intervalo mapeado pela tabela
+    --------------------------------------------------------------------------*/
+    public int lastNumber()
+    {
+        return lastNumber;
+    }//fim de lastNumber()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return O intervalo mapeado pela tabela.
+     */
+    /*[07]----------------------------------------------------------------------
+    *                 Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return "Smallest prime factors of [2, " + lastNumber + "]";
+    }//fim de toString()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        long t = System.currentTimeMillis();
+        SmallestPrimeFactorTable table = new SmallestPrimeFactorTable(100000000);
+        System.out.println(table + " : " +
+                           (System.currentTimeMillis() - t) + " milseg");
+
+        int[] dest = new int[MAX_FACTORS];
+        int count = table.factor(99999999, dest);
+        System.out.println(Arrays.toString(Arrays.copyOf(dest, count)));
+
+        /*
+        Fatora um milhao de inteiros aleatorios.
+        */
+        java.util.Random random = new java.util.Random(1);
+        int[] values = new int[1000000];
+        for (int i = 0; i < values.length; i++)
+            values[i] = 1 + random.nextInt(100000000);
+
+        t = System.currentTimeMillis();
+        int[][] factors = table.factorAll(values);
+        System.out.println(values[0] + " = " + Arrays.toString(factors[0]));
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+    }//fim de main()
+
+}//fim da classe SmallestPrimeFactorTable
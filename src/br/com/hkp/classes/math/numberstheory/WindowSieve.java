@@ -0,0 +1,332 @@
+package br.com.hkp.classes.math.numberstheory;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Obtem os numeros primos de uma janela [lo, hi] de inteiros long, sem crivar
+ * o intervalo [2, lo). Permite, por exemplo, percorrer os primos de
+ * [10^15, 10^15 + 10^8] ou de uma janela proxima de 10^18.
+ * <p>
+ * O resultado eh um conjunto de bits compacto, onde cada bit representa um
+ * numero impar da janela. A janela pode ter ateh cerca de 4 * 10^9 inteiros,
+ * e a memoria usada eh a deste conjunto de bits ( 1 bit para cada 2 inteiros )
+ * mais a de um segmento do crivo, qualquer que seja o valor de hi.
+ * <p>
+ * Os primos base ( ateh a raiz quadrada de hi ) sao divididos em dois grupos.
+ * Os pequenos, menores que o numero de inteiros de um segmento, sao guardados
+ * e a janela eh crivada com eles segmento por segmento, como em
+ * {@link SegmentedSieve}. Os grandes tem no maximo um multiplo por segmento,
+ * entao nao sao guardados: sao obtidos um a um de um {@link PrimeIterator} e
+ * seus multiplos sao retirados diretamente de toda a janela.
+ *
+ * @author Hugo Kaulino Pereira
+ * @since 1.0
+ */
+public class WindowSieve
+{
+    /*
+    O maior numero de impares que uma janela pode conter.
+    */
+    private static final long MAX_BITS = Integer.MAX_VALUE - 63;
+
+    /*
+    Os primos base menores que este valor sao crivados segmento por segmento.
+    Os maiores tem no maximo um multiplo impar em cada segmento.
+    */
+    private static final int SMALL_LIMIT = 2 * SegmentedSieve.SEGMENT_BITS;
+
+    /*
+    Os limites da janela.
+    */
+    private final long firstNumber;
+    private final long lastNumber;
+
+    /*
+    O primeiro numero impar mapeado no conjunto de bits.
+    */
+    private final long firstOdd;
+
+    /*
+    Quantos impares ha na janela. O bit i de bits representa firstOdd + 2 * i.
+    */
+    private final int size;
+
+    /*
+    Um bit ligado indica um numero composto.
+    */
+    private final long[] bits;
+
+    /*
+    Quantos primos ha na janela.
+    */
+    private final long howManyPrimes;
+
+    /**
+     * Construtor da classe. Criva a janela [lo, hi].
+     *
+     * @param lo O limite inferior da janela.
+     * @param hi O limite superior da janela.
+     *
+     * @throws IllegalArgumentException Se lo for negativo, se hi for menor que
+     * lo ou maior que o quadrado de Integer.MAX_VALUE, ou se a janela tiver
+     * mais de 2 * (Integer.MAX_VALUE - 63) inteiros.
+     *
+     * @throws OutOfMemoryError Lancada se nao houver memoria suficiente para o
+     * conjunto de bits da janela.
+     */
+    /*[01]----------------------------------------------------------------------
+    *                         Construtor da classe
+    --------------------------------------------------------------------------*/
+    public WindowSieve(long lo, long hi)
+        throws IllegalArgumentException, OutOfMemoryError
+    {
+        if ((lo < 0) || (hi < lo) || (hi > ResumableSieve.MAX_NUMBER) ||
+            ((hi - lo) / 2 + 1 > MAX_BITS)) throw new
+            IllegalArgumentException("Unable to sieve window.");
+
+        firstNumber = lo;
+        lastNumber = hi;
+        firstOdd = Math.max(1, lo | 1);
+
+        size = (firstOdd > hi) ? 0 : (int)((hi - firstOdd) / 2 + 1);
+        bits = new long[(size + 63) >>> 6];
+
+        int sqrt = (int)Math.sqrt(hi);
+
+        sieveSmallPrimes(SegmentedSieve.oddPrimesUpTo(Math.min(sqrt, SMALL_LIMIT)));
+
+        if (sqrt > SMALL_LIMIT)
+        {
+            PrimeIterator it = new PrimeIterator(SMALL_LIMIT + 1, sqrt);
+            while (it.hasNext()) removeMultiples(it.nextLong());
+        }
+
+        long count = SegmentedSieve.countPrimes(bits, size);
+        if ((lo <= 2) && (hi >= 2)) count++;
+
+        howManyPrimes = count;
+
+    }//fim de WindowSieve()
+
+    /*[02]----------------------------------------------------------------------
+    *   Criva a janela, segmento por segmento, com os primos base pequenos
+    --------------------------------------------------------------------------*/
+    private void sieveSmallPrimes(int[] smallPrimes)
+    {
+        long[] segment = new long[SegmentedSieve.SEGMENT_BITS >>> 6];
+
+        /*
+        Como SEGMENT_BITS eh multiplo de 64, cada segmento ocupa palavras
+        inteiras do conjunto de bits da janela e pode ser copiado diretamente.
+        */
+        for (int start = 0; start < size; start += SegmentedSieve.SEGMENT_BITS)
+        {
+            int length = Math.min(SegmentedSieve.SEGMENT_BITS, size - start);
+            long low = firstOdd + 2L * start;
+
+            SegmentedSieve.sieveSegment
+            (
+                low, length, smallPrimes, smallPrimes.length, segment
+            );
+
+            System.arraycopy
+            (
+                segment, 0, bits, start >>> 6, (length + 63) >>> 6
+            );
+        }
+    }//fim de sieveSmallPrimes()
+
+    /*[03]----------------------------------------------------------------------
+    *   Retira da janela os multiplos impares de um primo base grande
+    --------------------------------------------------------------------------*/
+    private void removeMultiples(long p)
+    {
+        long first = p * p;
+
+        if (first < firstOdd)
+        {
+            first = ((firstOdd + p - 1) / p) * p;
+            if ((first & 1) == 0) first += p;
+        }
+
+        for (long i = (first - firstOdd) >>> 1; i < size; i += p)
+            bits[(int)(i >>> 6)] |= 1L << i;
+    }//fim de removeMultiples()
+
+    /**
+     * Informa se um numero da janela eh primo.
+     *
+     * @param x Um numero do intervalo [lo, hi].
+     *
+     * @return true se x for primo.
+     *
+     * @throws IllegalArgumentException Se x estiver fora da janela.
+     */
+    /*[04]----------------------------------------------------------------------
+    *               Informa se um numero da janela eh primo
+    --------------------------------------------------------------------------*/
+    public boolean isPrime(long x)
+        throws IllegalArgumentException
+    {
+        if ((x < firstNumber) || (x > lastNumber)) throw new
+            IllegalArgumentException(x + " is out of window.");
+
+        if (x == 2) return true;
+        if ((x & 1) == 0) return false;
+
+        int i = (int)((x - firstOdd) >>> 1);
+        return (bits[i >>> 6] & (1L << i)) == 0;
+    }//fim de isPrime()
+
+    /**
+     * Entrega a action, em ordem crescente, todos os primos da janela.
+     *
+     * @param action A acao executada para cada primo.
+     */
+    /*[05]----------------------------------------------------------------------
+    *            Entrega a action todos os primos da janela
+    --------------------------------------------------------------------------*/
+    public void forEachPrime(LongConsumer action)
+    {
+        if ((firstNumber <= 2) && (lastNumber >= 2)) action.accept(2);
+
+        SegmentedSieve.forEachPrime(firstOdd, bits, size, action);
+    }//fim de forEachPrime()
+
+    /**
+     * Retorna os primos da janela em um array.
+     *
+     * @return Um array com todos os primos da janela em ordem crescente.
+     *
+     * @throws OutOfMemoryError Se os primos da janela nao couberem em um array.
+     */
+    /*[06]----------------------------------------------------------------------
+    *              Retorna os primos da janela em um array
+    --------------------------------------------------------------------------*/
+    public long[] toArray()
+        throws OutOfMemoryError
+    {
+        if (howManyPrimes > Integer.MAX_VALUE - 8) throw new OutOfMemoryError();
+
+        long[] primes = new long[(int)howManyPrimes];
+        int[] k = {0};
+        forEachPrime(p -> primes[k[0]++] = p);
+        return primes;
+    }//fim de toArray()
+
+    /**
+     * Retorna uma copia do conjunto de bits da janela. O bit i ( bit i % 64 da
+     * posicao i / 64 do array ) estah ligado se e somente se o numero impar
+     * {@link #firstOddNumber() } + 2 * i for primo. O primo 2, se estiver na
+     * janela, nao eh representado.
+     *
+     * @return Um array com os bits dos impares da janela.
+     */
+    /*[07]----------------------------------------------------------------------
+    *      Retorna o conjunto de bits, com os primos ligados, da janela
+    --------------------------------------------------------------------------*/
+    public long[] getBits()
+    {
+        long[] primes = new long[bits.length];
+
+        for (int w = 0; w < bits.length; w++) primes[w] = ~bits[w];
+
+        if ((size & 63) != 0) primes[bits.length - 1] &= (1L << (size & 63)) - 1;
+
+        return primes;
+    }//fim de getBits()
+
+    /**
+     * O numero impar representado pelo bit 0 de {@link #getBits() }.
+     *
+     * @return O menor numero impar da janela.
+     */
+    /*[08]----------------------------------------------------------------------
+    *                Retorna o menor numero impar da janela
+    --------------------------------------------------------------------------*/
+    public long firstOddNumber()
+    {
+        return firstOdd;
+    }//fim de firstOddNumber()
+
+    /**
+     * Retorna o limite inferior da janela.
+     *
+     * @return O valor lo passado ao construtor.
+     */
+    /*[09]----------------------------------------------------------------------
+    *                  Retorna o limite inferior da janela
+    --------------------------------------------------------------------------*/
+    public long firstNumber()
+    {
+        return firstNumber;
+    }//fim de firstNumber()
+
+    /**
+     * Retorna o limite superior da janela.
+     *
+     * @return O valor hi passado ao construtor.
+     */
+    /*[10]----------------------------------------------------------------------
+    *                  Retorna o limite superior da janela
+    --------------------------------------------------------------------------*/
+    public long lastNumber()
+    {
+        return lastNumber;
+    }//fim de lastNumber()
+
+    /**
+     * O numero de primos na janela.
+     *
+     * @return Retorna quantos primos ha no intervalo [lo, hi].
+     */
+    /*[11]----------------------------------------------------------------------
+    *                Retorna quantos primos ha na janela
+    --------------------------------------------------------------------------*/
+    public long howManyPrimes()
+    {
+        return howManyPrimes;
+    }//fim de howManyPrimes()
+
+    /**
+     * Uma representacao textual do objeto.
+     *
+     * @return Quantos primos ha na janela e os limites da janela.
+     */
+    /*[12]----------------------------------------------------------------------
+    *                 Informacao textual sobre o objeto
+    --------------------------------------------------------------------------*/
+    @Override
+    public String toString()
+    {
+        return "" + howManyPrimes + " primes in [" + firstNumber + ", " +
+               lastNumber + "]";
+    }//fim de toString()
+
+    /**
+     * Um metodo exemplificando usos da classe.
+     *
+     * @param args Argumentos de linha de comando. Nao utilizados.
+     */
+    public static void main(String[] args)
+    {
+        System.out.println
+        (
+            Arrays.toString(new WindowSieve(0, 100).toArray())
+        );
+
+        long t = System.currentTimeMillis();
+        System.out.println(new WindowSieve(1000000000000000L,
+                                           1000000000000000L + 100000000L));
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+        t = System.currentTimeMillis();
+        WindowSieve ws = new WindowSieve(1000000000000000000L,
+                                         1000000000000000000L + 1000);
+        System.out.println(ws + " " + Arrays.toString(ws.toArray()));
+        System.out.println((System.currentTimeMillis() - t) + " milseg");
+
+    }//fim de main()
+
+}//fim da classe WindowSieve